@@ -1,57 +1,58 @@
-package io.deepstream;
-
-
-import java.net.URISyntaxException;
-import java.util.concurrent.CountDownLatch;
-
-public class Context {
-
-    private static final char MPS =  '\u001f';
-    private static final char MS = '\u001e';
-    static int GENERAL_TIMEOUT = 75;
-    static int serverPort = 7777;
-    static int server2port = 8888;
-    DeepstreamClient client;
-    MockTcpServer server, server2;
-    CountDownLatch serverResponseLatch;
-
-    public Context() throws InterruptedException, URISyntaxException, InvalidDeepstreamConfig {
-        this.server = Singleton.getSingleton().getServer1();
-        this.server2 = Singleton.getSingleton().getServer2();
-
-        this.client = Singleton.getSingleton().getNewClient();
-        Thread.sleep( 200 );
-    }
-
-    public String getUid() {
-        return this.client.getUid();
-    }
-
-    public String getLastErrorMessage() {
-        return Singleton.getSingleton().getLastErrorMessage();
-    }
-
-    public String sendMessage(String input ) {
-        return input
-                .replaceAll( "<FIRST_SERVER_URL>", "localhost:" + Context.serverPort )
-                .replaceAll( "<SECOND_SERVER_URL>", "localhost:" + Context.server2port )
-                .replace( '|', MPS )
-                .replace( '+', MS );
-    }
-
-    public String recieveMessage(String input ) {
-        return input
-                .replace( "{", "\\{" )
-                .replace( "}", "\\}" )
-                .replaceAll( "<UID>", "[a-z0-9]{8}-[a-z0-9]{4}-[a-z0-9]{4}-[a-z0-9]{4}-[a-z0-9]{12}")
-                .replaceAll( "<FIRST_SERVER_URL>", "localhost:[0-9]{4}")
-                .replace( '|', MPS )
-                .replace( '+', MS );
-    }
-
-    public MockTcpServer getNewServer1() {
-        this.server = Singleton.getSingleton().getNewServer1();
-        return this.server;
-    }
-
-}
+package io.deepstream;
+
+
+import java.net.URISyntaxException;
+import java.util.concurrent.CountDownLatch;
+
+public class Context {
+
+    private static final char MPS =  '\u001f';
+    private static final char MS = '\u001e';
+    static int GENERAL_TIMEOUT = 75;
+    static int serverPort = 7777;
+    static int server2port = 8888;
+    DeepstreamClient client;
+    MockTcpServer server, server2;
+    CountDownLatch serverResponseLatch;
+
+    public Context() throws InterruptedException, URISyntaxException, InvalidDeepstreamConfig {
+        this.server = Singleton.getSingleton().getServer1();
+        this.server2 = Singleton.getSingleton().getServer2();
+
+        this.client = Singleton.getSingleton().getNewClient();
+        Thread.sleep( 200 );
+    }
+
+    public String getUid() {
+        return this.client.getUid();
+    }
+
+    public String getLastErrorMessage() {
+        return Singleton.getSingleton().getLastErrorMessage();
+    }
+
+    public String sendMessage(String input ) {
+        return input
+                .replaceAll( "<FIRST_SERVER_URL>", "localhost:" + Context.serverPort )
+                .replaceAll( "<SECOND_SERVER_URL>", "localhost:" + Context.server2port )
+                .replace( '|', MPS )
+                .replace( '+', MS );
+    }
+
+    public String recieveMessage(String input ) {
+        return input
+                .replace( "{", "\\{" )
+                .replace( "}", "\\}" )
+                // Rpcs the client makes carry the client uid followed by a counter, rpcs it provides echo the server's id
+                .replaceAll( "<UID>", "[a-z0-9]{8}-[a-z0-9]{4}-[a-z0-9]{4}-[a-z0-9]{4}-[a-z0-9]{12}(-[0-9a-z]+)?")
+                .replaceAll( "<FIRST_SERVER_URL>", "localhost:[0-9]{4}")
+                .replace( '|', MPS )
+                .replace( '+', MS );
+    }
+
+    public MockTcpServer getNewServer1() {
+        this.server = Singleton.getSingleton().getNewServer1();
+        return this.server;
+    }
+
+}
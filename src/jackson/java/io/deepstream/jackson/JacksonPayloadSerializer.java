@@ -0,0 +1,180 @@
+package io.deepstream.jackson;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.internal.LazilyParsedNumber;
+import io.deepstream.GsonPayloadSerializer;
+import io.deepstream.PayloadSerializer;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.lang.reflect.Type;
+import java.util.Map;
+
+/**
+ * A {@link PayloadSerializer} that uses the Jackson streaming parser and generator to read and write json. It
+ * builds the {@link JsonElement} tree straight from the UTF-8 bytes of received messages, which makes parsing
+ * large records considerably cheaper than with Gson.
+ *
+ * Only json trees are handled by Jackson, any other java object is converted by a {@link GsonPayloadSerializer}.
+ * Unlike Gson, the parser is strict and the generator doesn't escape html characters.
+ *
+ * Enable it by adding jackson-core to the classpath and setting payloadSerializer to
+ * io.deepstream.jackson.JacksonPayloadSerializer
+ */
+public class JacksonPayloadSerializer implements PayloadSerializer {
+
+    private final JsonFactory factory;
+    private final GsonPayloadSerializer fallback;
+
+    public JacksonPayloadSerializer() {
+        this.factory = new JsonFactory();
+        this.fallback = new GsonPayloadSerializer();
+    }
+
+    @Override
+    public JsonElement parse( String json ) {
+        if( json == null ) {
+            return null;
+        }
+        try {
+            return this.read( this.factory.createParser( json ) );
+        } catch( IOException e ) {
+            throw new JsonSyntaxException( e );
+        }
+    }
+
+    @Override
+    public JsonElement parse( byte[] json, int offset, int length ) {
+        try {
+            return this.read( this.factory.createParser( json, offset, length ) );
+        } catch( IOException e ) {
+            throw new JsonSyntaxException( e );
+        }
+    }
+
+    @Override
+    public String toJson( Object value ) {
+        if( value instanceof JsonElement ) {
+            return this.write( (JsonElement) value );
+        }
+        return this.fallback.toJson( value );
+    }
+
+    @Override
+    public String toTypedJson( Object value ) {
+        if( value instanceof JsonElement ) {
+            return this.write( (JsonElement) value );
+        }
+        return this.fallback.toTypedJson( value );
+    }
+
+    @Override
+    public JsonElement toJsonTree( Object value ) {
+        return this.fallback.toJsonTree( value );
+    }
+
+    @Override
+    public <T> T fromJsonTree( JsonElement element, Type type ) {
+        return this.fallback.fromJsonTree( element, type );
+    }
+
+    private JsonElement read( JsonParser parser ) throws IOException {
+        try {
+            JsonToken token = parser.nextToken();
+            if( token == null ) {
+                return null;
+            }
+            JsonElement element = this.readValue( parser, token );
+            if( parser.nextToken() != null ) {
+                throw new JsonSyntaxException( "JSON document was not fully consumed." );
+            }
+            return element;
+        } finally {
+            parser.close();
+        }
+    }
+
+    private JsonElement readValue( JsonParser parser, JsonToken token ) throws IOException {
+        switch( token ) {
+            case START_OBJECT:
+                JsonObject object = new JsonObject();
+                while( parser.nextToken() == JsonToken.FIELD_NAME ) {
+                    String name = parser.getCurrentName();
+                    object.add( name, this.readValue( parser, parser.nextToken() ) );
+                }
+                return object;
+            case START_ARRAY:
+                JsonArray array = new JsonArray();
+                while( ( token = parser.nextToken() ) != JsonToken.END_ARRAY ) {
+                    array.add( this.readValue( parser, token ) );
+                }
+                return array;
+            case VALUE_STRING:
+                return new JsonPrimitive( parser.getText() );
+            case VALUE_NUMBER_INT:
+            case VALUE_NUMBER_FLOAT:
+                // Keeps the number as written, the same as Gson does
+                return new JsonPrimitive( new LazilyParsedNumber( parser.getText() ) );
+            case VALUE_TRUE:
+                return new JsonPrimitive( true );
+            case VALUE_FALSE:
+                return new JsonPrimitive( false );
+            case VALUE_NULL:
+                return JsonNull.INSTANCE;
+            default:
+                throw new JsonSyntaxException( "Unexpected token " + token );
+        }
+    }
+
+    private String write( JsonElement element ) {
+        StringWriter out = new StringWriter();
+        try {
+            JsonGenerator generator = this.factory.createGenerator( out );
+            this.writeValue( generator, element );
+            generator.close();
+        } catch( IOException e ) {
+            throw new JsonSyntaxException( e );
+        }
+        return out.toString();
+    }
+
+    private void writeValue( JsonGenerator generator, JsonElement element ) throws IOException {
+        if( element == null || element.isJsonNull() ) {
+            generator.writeNull();
+        } else if( element.isJsonObject() ) {
+            generator.writeStartObject();
+            for( Map.Entry<String, JsonElement> entry : element.getAsJsonObject().entrySet() ) {
+                // Gson doesn't serialize null members either
+                if( entry.getValue() != null && !entry.getValue().isJsonNull() ) {
+                    generator.writeFieldName( entry.getKey() );
+                    this.writeValue( generator, entry.getValue() );
+                }
+            }
+            generator.writeEndObject();
+        } else if( element.isJsonArray() ) {
+            generator.writeStartArray();
+            for( JsonElement entry : element.getAsJsonArray() ) {
+                this.writeValue( generator, entry );
+            }
+            generator.writeEndArray();
+        } else {
+            JsonPrimitive primitive = element.getAsJsonPrimitive();
+            if( primitive.isBoolean() ) {
+                generator.writeBoolean( primitive.getAsBoolean() );
+            } else if( primitive.isNumber() ) {
+                generator.writeNumber( primitive.getAsString() );
+            } else {
+                generator.writeString( primitive.getAsString() );
+            }
+        }
+    }
+}
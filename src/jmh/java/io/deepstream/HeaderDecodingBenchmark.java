@@ -0,0 +1,80 @@
+package io.deepstream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.charset.Charset;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures decoding the topic and action of received messages. Run using gradle jmh, which enables the gc
+ * profiler; gc.alloc.rate.norm should be ~0 B/op for every benchmark to show that decoding doesn't allocate.
+ */
+@State( Scope.Thread )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public class HeaderDecodingBenchmark {
+
+    private static final String[] MESSAGES = {
+            "E\u001fEVT\u001fevent1\u001fSsomeData",
+            "R\u001fU\u001frecordA\u001f2\u001f{\"name\":\"sam\"}",
+            "R\u001fP\u001frecordA\u001f3\u001fname\u001fSsam",
+            "P\u001fREQ\u001faddTwo\u001f1234\u001fO{\"a\":1,\"b\":2}",
+            "R\u001fA\u001fS\u001frecordA",
+            "C\u001fCHR\u001flocalhost:6021"
+    };
+
+    private byte[][] frames;
+    private int[] actionStarts;
+    private int[] actionLengths;
+    private char[] types;
+    private int index;
+
+    @Setup
+    public void setUp() {
+        Charset utf8 = Charset.forName( "UTF-8" );
+        this.frames = new byte[ MESSAGES.length ][];
+        this.actionStarts = new int[ MESSAGES.length ];
+        this.actionLengths = new int[ MESSAGES.length ];
+        this.types = new char[ MESSAGES.length ];
+
+        for( int i = 0; i < MESSAGES.length; i++ ) {
+            String[] parts = MESSAGES[ i ].split( "\u001f" );
+            this.frames[ i ] = MESSAGES[ i ].getBytes( utf8 );
+            this.actionStarts[ i ] = parts[ 0 ].length() + 1;
+            this.actionLengths[ i ] = parts[ 1 ].length();
+            this.types[ i ] = parts[ parts.length - 1 ].charAt( 0 );
+        }
+    }
+
+    @Benchmark
+    public void decodeHeader( Blackhole blackhole ) {
+        int i = this.next();
+        byte[] frame = this.frames[ i ];
+        blackhole.consume( Topic.getTopic( frame, 0, 1 ) );
+        blackhole.consume( Actions.getAction( frame, this.actionStarts[ i ], this.actionLengths[ i ] ) );
+    }
+
+    @Benchmark
+    public Types decodeType() {
+        return Types.getType( this.types[ this.next() ] );
+    }
+
+    private int next() {
+        int i = this.index;
+        this.index = i + 1 == MESSAGES.length ? 0 : i + 1;
+        return i;
+    }
+}
@@ -1,8 +1,6 @@
 package io.deepstream;
 
 import java.util.EnumSet;
-import java.util.HashMap;
-import java.util.Map;
 
 /**
  * Actions provide the intent of a message sent. A user of this sdk will only need to access these
@@ -121,11 +119,33 @@ public enum Actions {
      */
     REJECTION( "REJ" );
 
-    private static final Map<String,Actions> lookup  = new HashMap<>();
+    /**
+     * Single letter actions are indexed by their letter, the few longer ones are found by comparing
+     * their letters packed into an int
+     */
+    private static final int MAX_LENGTH = 3;
+    private static final Actions[] singleLetterLookup = new Actions[ 128 ];
+    private static final int[] packedKeys;
+    private static final Actions[] packedLookup;
 
     static {
-        for( Actions s : EnumSet.allOf( Actions.class ) )
-            lookup.put( s.toString(), s);
+        EnumSet<Actions> multiLetterActions = EnumSet.noneOf( Actions.class );
+        for( Actions s : EnumSet.allOf( Actions.class ) ) {
+            if( s.action.length() == 1 ) {
+                singleLetterLookup[ s.action.charAt( 0 ) ] = s;
+            } else {
+                multiLetterActions.add( s );
+            }
+        }
+
+        packedKeys = new int[ multiLetterActions.size() ];
+        packedLookup = new Actions[ multiLetterActions.size() ];
+        int i = 0;
+        for( Actions s : multiLetterActions ) {
+            packedKeys[ i ] = pack( s.action );
+            packedLookup[ i ] = s;
+            i++;
+        }
     }
 
     private String action;
@@ -135,7 +155,66 @@ public enum Actions {
     }
 
     static Actions getAction( String action ) {
-        return lookup.get( action );
+        int length = action.length();
+        if( length == 1 ) {
+            char c = action.charAt( 0 );
+            return c < singleLetterLookup.length ? singleLetterLookup[ c ] : null;
+        }
+        if( length == 0 || length > MAX_LENGTH ) {
+            return null;
+        }
+        int key = pack( action );
+        return key == -1 ? null : getPackedAction( key );
+    }
+
+    /**
+     * Decodes the action straight from the bytes of a received message
+     *
+     * @param buffer The buffer containing the action
+     * @param offset The index of the first byte of the action
+     * @param length The length of the action
+     * @return The action, or null if it is unknown
+     */
+    static Actions getAction( byte[] buffer, int offset, int length ) {
+        if( length == 1 ) {
+            int c = buffer[ offset ];
+            return c >= 0 ? singleLetterLookup[ c ] : null;
+        }
+        if( length == 0 || length > MAX_LENGTH ) {
+            return null;
+        }
+        int key = 0;
+        for( int i = offset; i < offset + length; i++ ) {
+            if( buffer[ i ] < 0 ) {
+                return null;
+            }
+            key = ( key << 8 ) | buffer[ i ];
+        }
+        return getPackedAction( key );
+    }
+
+    private static Actions getPackedAction( int key ) {
+        for( int i = 0; i < packedKeys.length; i++ ) {
+            if( packedKeys[ i ] == key ) {
+                return packedLookup[ i ];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return The ASCII letters of the action packed into an int, or -1 if it contains anything else
+     */
+    private static int pack( String action ) {
+        int key = 0;
+        for( int i = 0; i < action.length(); i++ ) {
+            char c = action.charAt( i );
+            if( c > 0x7f ) {
+                return -1;
+            }
+            key = ( key << 8 ) | c;
+        }
+        return key;
     }
 
     @Override
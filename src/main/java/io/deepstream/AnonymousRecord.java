@@ -3,7 +3,7 @@ package io.deepstream;
 import com.google.gson.JsonElement;
 
 import java.util.ArrayList;
-import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
 
 /**
  * An AnonymousRecord is a record without a predefined name. It
@@ -261,29 +261,44 @@ public class AnonymousRecord {
      * @return The AnonymousRecord
      */
     public AnonymousRecord setName( String recordName ) {
+        try {
+            this.setNameAsync( recordName ).await();
+        } catch( ExecutionException e ) {
+            // Records never fail to become ready
+        }
+        return this;
+    }
+
+    /**
+     * The non-blocking version of {@link AnonymousRecord#setName(String)}. The record is swapped straight away,
+     * the future completes and the {@link AnonymousRecordNameChangedListener}s are notified once it is ready.
+     *
+     * @param recordName The name of the new record
+     * @return A future that completes with the AnonymousRecord
+     */
+    public DeepstreamFuture<AnonymousRecord> setNameAsync( final String recordName ) {
+        final DeepstreamFuture<AnonymousRecord> future = new DeepstreamFuture<>();
+
         this.unsubscribeRecord();
-        this.record = this.recordHandler.getRecord( recordName );
+        this.record = this.recordHandler.acquireRecord( recordName );
         this.subscribeRecord();
 
-        final CountDownLatch readyLatch = new CountDownLatch(1);
-        record.whenReady(new Record.RecordReadyListener() {
+        this.recordHandler.whenReady( this.record ).addListener( new DeepstreamFuture.Listener<Record>() {
             @Override
-            public void onRecordReady(String recordName, Record record) {
-                readyLatch.countDown();
+            public void onSuccess( Record record ) {
+                for( AnonymousRecordNameChangedListener anonymousRecordNameChangedCallback : anonymousRecordNameChangedCallbacks ) {
+                    anonymousRecordNameChangedCallback.recordNameChanged( recordName, AnonymousRecord.this );
+                }
+                future.complete( AnonymousRecord.this );
             }
-        });
-
-        try {
-            readyLatch.await();
-        } catch (InterruptedException e) {
-            e.printStackTrace();
-        }
 
-        for( AnonymousRecordNameChangedListener anonymousRecordNameChangedCallback : this.anonymousRecordNameChangedCallbacks ) {
-            anonymousRecordNameChangedCallback.recordNameChanged( recordName, this );
-        }
+            @Override
+            public void onFailure( Throwable error ) {
+                future.fail( error );
+            }
+        } );
 
-        return this;
+        return future;
     }
 
     /**
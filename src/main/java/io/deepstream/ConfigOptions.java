@@ -8,7 +8,7 @@ import java.util.Properties;
  */
 public enum ConfigOptions {
     /**
-     * A {@link EndpointType}, currently either TCP or EngineIO
+     * A {@link EndpointType}, currently either TCP, NIO or EngineIO
      * Defaults to TCP
      */
     ENDPOINT_TYPE("endpointType"),
@@ -44,11 +44,11 @@ public enum ConfigOptions {
     /**
      * If your app sends a large number of messages in quick succession, the deepstream client will try to split them
      * into smaller packets and send these every ms. This parameter specifies the number of messages after which
-     * deepstream sends the packet and queues the remaining messages.
+     * deepstream sends the packet and queues the remaining messages. Set to 1 to send every message on its own.
      */
     MAX_MESSAGES_PER_PACKET("maxMessagesPerPacket"),
     /**
-     * Please see description for maxMessagesPerPacket. Sets the time in ms.
+     * Please see description for maxMessagesPerPacket. Sets the time in ms. Set to 0 to send every message on its own.
      */
     TIME_BETWEEN_SENDING_QUEUED_PACKAGES("timeBetweenSendingQueuedPackages"),
     /**
@@ -65,7 +65,38 @@ public enum ConfigOptions {
      * The number of milliseconds from the moment record.delete() is called until an error is thrown since no delete ack
      * message has been received. Please take into account that the deletion is only complete after the record has been deleted from both cache and storage.
      */
-    RECORD_DELETE_TIMEOUT("recordDeleteTimeout");
+    RECORD_DELETE_TIMEOUT("recordDeleteTimeout"),
+    /**
+     * The maximum number of messages that can wait to be written to the socket. Sending beyond this applies
+     * the OUTBOUND_QUEUE_POLICY.
+     */
+    OUTBOUND_QUEUE_SIZE("outboundQueueSize"),
+    /**
+     * A {@link OutboundQueuePolicy}, either block, fail or drop
+     * Defaults to block
+     */
+    OUTBOUND_QUEUE_POLICY("outboundQueuePolicy"),
+    /**
+     * The fully qualified class name of the {@link PayloadSerializer} used to convert the payloads of records,
+     * events and rpcs between json and java objects.
+     * Defaults to {@link GsonPayloadSerializer}
+     */
+    PAYLOAD_SERIALIZER("payloadSerializer"),
+    /**
+     * The number of threads that handle incoming record messages. Messages for the same record are always handled in
+     * order by the same thread, so record changes and their callbacks only run in parallel for different records.
+     * Set to 1 to handle all records on a single thread. Ignored for clients created with a shared
+     * {@link DeepstreamRuntime}, whose lanes are used instead.
+     * Defaults to the number of available processors
+     */
+    RECORD_DISPATCH_LANES("recordDispatchLanes"),
+    /**
+     * The window in milliseconds within which ack and response timeouts of the same duration share a single
+     * timer, which only reports the acks still missing once it fires. Useful when subscribing to many records,
+     * events or rpcs at once, at the cost of timeouts being reported up to the window late.
+     * Defaults to 0, which gives every timeout its own timer
+     */
+    ACK_BATCH_WINDOW("ackBatchWindow");
 
     private String configOption;
 
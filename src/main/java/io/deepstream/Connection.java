@@ -6,35 +6,41 @@ import com.google.gson.JsonObject;
 import java.net.URISyntaxException;
 import java.util.*;
 import java.util.List;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Establishes a connection to a deepstream server, either
  * using TCP or engine.io.
  */
-class Connection implements IConnection {
+class Connection implements IConnection, UtilFrameDecoder.FrameListener, UtilPacketQueue.PacketSender {
+
+    private static final AtomicInteger connectionCount = new AtomicInteger();
 
     private final DeepstreamClient client;
     private final String originalUrl;
-    private final ArrayList<ConnectionStateListener> connectStateListeners;
+    private final List<ConnectionStateListener> connectStateListeners;
     private final DeepstreamConfig options;
     private Endpoint endpoint;
     private boolean tooManyAuthAttempts;
     private boolean challengeDenied;
     private boolean deliberateClose;
     private boolean redirecting;
-    private Timer reconnectTimeout;
+    private ScheduledFuture<?> reconnectTimeout;
     private int reconnectionAttempt;
+    private final Object bufferLock;
     private StringBuilder messageBuffer;
+    private boolean bufferFlushed;
+    private final UtilPacketQueue packetQueue;
     private String url;
-    private ConnectionState connectionState;
+    private volatile ConnectionState connectionState;
     private DeepstreamClient.LoginCallback loginCallback;
     private JsonElement authParameters;
 
-    private ExecutorService rpcThread;
-    private ExecutorService recordThread;
-    private ExecutorService eventThread;
+    private final DeepstreamRuntime runtime;
+    private final String dispatchKey;
+    private final UtilMultiplexer multiplexer;
 
     /**
      * Creates an endpoint and passed it to {@link Connection#Connection(String, DeepstreamConfig, DeepstreamClient, Endpoint)}
@@ -44,10 +50,11 @@ class Connection implements IConnection {
      * @param url The endpoint url
      * @param options The options used to initialise the deepstream client
      * @param client The deepstream client
+     * @param runtime The runtime the connection does its I/O and dispatches messages on
      * @throws URISyntaxException An exception if an invalid url is passed in
      */
-    Connection(final String url, final DeepstreamConfig options, DeepstreamClient client) throws URISyntaxException {
-        this( url, options, client, null );
+    Connection(final String url, final DeepstreamConfig options, DeepstreamClient client, DeepstreamRuntime runtime) throws URISyntaxException {
+        this( url, options, client, null, runtime );
         this.endpoint = createEndpoint();
     }
 
@@ -57,14 +64,18 @@ class Connection implements IConnection {
      * @param url The endpoint url* @param options The options used to initialise the deepstream client
      * @param client The deepstream client
      * @param endpoint The endpoint, whether TCP, Engine.io, mock or anything else
+     * @param runtime The runtime the connection does its I/O and dispatches messages on
      */
-    Connection(final String url, final DeepstreamConfig options, DeepstreamClient client, Endpoint endpoint) {
+    Connection(final String url, final DeepstreamConfig options, DeepstreamClient client, Endpoint endpoint, DeepstreamRuntime runtime) {
         this.client = client;
-        this.connectStateListeners = new ArrayList<>();
+        // Sessions add and remove listeners from their own threads while the state changes
+        this.connectStateListeners = new CopyOnWriteArrayList<>();
         this.originalUrl = url;
         this.url = url;
         this.connectionState = ConnectionState.CLOSED;
+        this.bufferLock = new Object();
         this.messageBuffer = new StringBuilder();
+        this.bufferFlushed = false;
         this.tooManyAuthAttempts = false;
         this.challengeDenied = false;
         this.deliberateClose = false;
@@ -73,10 +84,36 @@ class Connection implements IConnection {
         this.reconnectionAttempt = 0;
         this.options = options;
         this.endpoint = endpoint;
+        this.runtime = runtime;
+        // Keeps the events and rpcs of this connection in order on one lane, while other connections use the rest
+        this.dispatchKey = String.valueOf( connectionCount.incrementAndGet() );
+        this.packetQueue = new UtilPacketQueue( options, this, runtime, this.dispatchKey );
+        this.multiplexer = new UtilMultiplexer( this, client );
+    }
 
-        this.recordThread = Executors.newSingleThreadExecutor();
-        this.eventThread = Executors.newSingleThreadExecutor();
-        this.rpcThread = Executors.newSingleThreadExecutor();
+    /**
+     * @return The runtime the connection does its I/O and dispatches messages on
+     */
+    DeepstreamRuntime getRuntime() {
+        return this.runtime;
+    }
+
+    /**
+     * Runs a task on the lane of this connection, after the events already dispatched to it. Used by endpoints
+     * whose I/O thread is shared and must not run the connection and auth handling itself, and for work the
+     * shared scheduler and timer hand off, so that neither starts a thread per task.
+     *
+     * @param task The task to run
+     */
+    void execute( Runnable task ) {
+        this.runtime.getEventLanes().execute( this.dispatchKey, task );
+    }
+
+    /**
+     * @return The multiplexer the sessions sharing the connection send and receive their messages through
+     */
+    UtilMultiplexer getMultiplexer() {
+        return this.multiplexer;
     }
 
     /**
@@ -102,10 +139,61 @@ class Connection implements IConnection {
 
     @Override
     public void send( String message ) {
-        if( this.connectionState != ConnectionState.OPEN ) {
+        // Messages go through the packet queue even while the connection isn't open, since a packet that was
+        // still waiting for its window to close would otherwise end up in the buffer after newer messages
+        this.packetQueue.add( message );
+    }
+
+    /**
+     * Called by the packet queue with one or more coalesced messages. Messages sent while the connection isn't
+     * open, or was lost while they were queued, are kept until it is open again.
+     * @param packet The messages to send
+     */
+    @Override
+    public void sendPacket( String packet ) {
+        Endpoint endpoint = this.endpoint;
+        if( endpoint == null ) {
+            synchronized( this.bufferLock ) {
+                this.messageBuffer.append( packet );
+            }
+        } else if( !this.buffer( packet ) ) {
+            endpoint.send( packet );
+        }
+    }
+
+    /**
+     * Keeps messages until the connection is open and the messages kept before have been sent, so that they go
+     * out in the order they were sent in
+     * @param message The message to keep
+     * @return true if the message was kept, false if it can be sent straight away
+     */
+    private boolean buffer( String message ) {
+        synchronized( this.bufferLock ) {
+            if( this.connectionState == ConnectionState.OPEN && this.bufferFlushed ) {
+                return false;
+            }
             this.messageBuffer.append( message );
-        } else {
-            this.endpoint.send( message );
+            return true;
+        }
+    }
+
+    /**
+     * Sends the messages kept while the connection wasn't open. The buffer is swapped under the lock but sent
+     * outside of it, since the send can block while the outbound queue is full, and anything kept in the
+     * meantime is sent by the next pass.
+     */
+    private void flushBuffer() {
+        while( true ) {
+            String buffered;
+            synchronized( this.bufferLock ) {
+                if( this.messageBuffer.length() == 0 ) {
+                    this.bufferFlushed = this.connectionState == ConnectionState.OPEN;
+                    return;
+                }
+                buffered = this.messageBuffer.toString();
+                this.messageBuffer = new StringBuilder();
+            }
+            this.endpoint.send( buffered );
         }
     }
 
@@ -147,7 +235,7 @@ class Connection implements IConnection {
             endpoint = null;
         }
         if( this.reconnectTimeout != null ) {
-            this.reconnectTimeout.cancel();
+            this.reconnectTimeout.cancel( false );
             this.reconnectTimeout = null;
         }
     }
@@ -163,46 +251,88 @@ class Connection implements IConnection {
          * If the implementation isn't listening on the error event this will throw
          * an error. So let's defer it to allow the reconnection to kick in.
          */
-        Timer timer = new Timer();
-        timer.schedule(new TimerTask() {
+        this.runtime.schedule(new Runnable() {
             public void run() {
-                client.onError( null, Event.CONNECTION_ERROR, error);
+                // The error handler is application code, so keep it off the shared scheduler thread
+                Connection.this.execute(new Runnable() {
+                    public void run() {
+                        client.onError( null, Event.CONNECTION_ERROR, error);
+                    }
+                });
             }
         }, 1000);
     }
 
+    @Override
+    public void onFrame( byte[] buffer, int offset, int length ) {
+        if( length == 0 ) {
+            return;
+        }
+        Message message = MessageParser.parseMessage( buffer, offset, length, this.client );
+        if( message != null ) {
+            this.onMessage( message );
+        }
+    }
+
     void onMessage(String rawMessage) {
         List<Message> parsedMessages = MessageParser.parse( rawMessage, this.client );
         for (final Message message : parsedMessages) {
-            if (message.topic == Topic.CONNECTION) {
-                handleConnectionResponse(message);
-            } else if (message.topic == Topic.AUTH) {
-                handleAuthResponse(message);
-            } else if (message.topic == Topic.EVENT) {
-                this.eventThread.execute(new Runnable() {
-                    @Override
-                    public void run() {
-                        client.event.handle(message);
-                    }
-                });
-            } else if (message.topic == Topic.RPC) {
-                this.rpcThread.execute(new Runnable() {
-                    @Override
-                    public void run() {
-                        client.rpc.handle(message);
-                    }
-                });
-            } else if ( message.topic == Topic.RECORD ) {
-                this.recordThread.execute(new Runnable() {
-                    @Override
-                    public void run() {
-                        client.record.handle(message);
+            this.onMessage( message );
+        }
+    }
+
+    private void onMessage(final Message message) {
+        if (message.topic == Topic.CONNECTION) {
+            handleConnectionResponse(message);
+        } else if (message.topic == Topic.AUTH) {
+            handleAuthResponse(message);
+        } else if (message.topic == Topic.EVENT || message.topic == Topic.RPC || message.topic == Topic.RECORD) {
+            this.dispatch(message, this.multiplexer.route(message));
+        } else {
+            //TODO: Throw error
+        }
+    }
+
+    /**
+     * Hands a message to the handlers of the sessions it is meant for. All sessions get it on the same lane, so
+     * they see the messages of a record, and the events and rpcs of the connection, in the same order.
+     *
+     * @param message The message
+     * @param sessions The sessions to hand it to
+     */
+    void dispatch(final Message message, final List<DeepstreamClient> sessions) {
+        if (sessions.isEmpty()) {
+            return;
+        }
+
+        UtilStripedExecutor lanes;
+        String key;
+        if (message.topic == Topic.EVENT) {
+            lanes = this.runtime.getEventLanes();
+            key = this.dispatchKey;
+        } else if (message.topic == Topic.RPC) {
+            lanes = this.runtime.getRpcLanes();
+            key = this.dispatchKey;
+        } else {
+            // Messages for the same record are handled in order, different records in parallel
+            lanes = this.runtime.getRecordLanes();
+            key = RecordHandler.getRecordName(message);
+        }
+
+        lanes.execute(key, new Runnable() {
+            @Override
+            public void run() {
+                for (DeepstreamClient session : sessions) {
+                    if (message.topic == Topic.EVENT) {
+                        session.event.handle(message);
+                    } else if (message.topic == Topic.RPC) {
+                        session.rpc.handle(message);
+                    } else {
+                        session.record.handle(message);
                     }
-                });
-            } else {
-                //TODO: Throw error
+                }
             }
-        }
+        });
     }
 
     void onClose() throws URISyntaxException {
@@ -239,7 +369,7 @@ class Connection implements IConnection {
             this.close();
         }
         else if( message.action == Actions.REDIRECT ) {
-            this.url = message.data[ 0 ];
+            this.url = message.data( 0 );
             this.redirecting = true;
             this.endpoint.close();
         }
@@ -247,7 +377,7 @@ class Connection implements IConnection {
 
     private void handleAuthResponse( Message message ) {
         if( message.action == Actions.ERROR ) {
-            if( message.data[0].equals( Event.TOO_MANY_AUTH_ATTEMPTS.name() ) ) {
+            if( message.data( 0 ).equals( Event.TOO_MANY_AUTH_ATTEMPTS.name() ) ) {
                 this.deliberateClose = true;
                 this.tooManyAuthAttempts = true;
             } else {
@@ -256,26 +386,40 @@ class Connection implements IConnection {
 
             if( this.loginCallback != null ) {
                 this.loginCallback.loginFailed(
-                        Event.getEvent( message.data[ 0 ] ),
-                        MessageParser.convertTyped( message.data[ 1 ], this.client )
+                        Event.getEvent( message.data( 0 ) ),
+                        MessageParser.convertTyped( message.data( 1 ), this.client )
                 );
             }
         }
         else if( message.action == Actions.ACK ) {
             this.setState( ConnectionState.OPEN );
-
-            if( this.messageBuffer.length() > 0 ) {
-                this.endpoint.send( this.messageBuffer.toString() );
-                this.messageBuffer = new StringBuilder();
-            }
+            this.flushBuffer();
 
             if( this.loginCallback != null ) {
-                this.loginCallback.loginSuccess( new HashMap() );
+                this.loginCallback.loginSuccess( new HashMap<String, Object>() );
             }
         }
     }
 
+    /**
+     * @return The messages that are queued or buffered but haven't been handed to the endpoint yet
+     */
+    private String getUnsentMessages() {
+        String queued = this.packetQueue.getQueued();
+        synchronized( this.bufferLock ) {
+            return queued + this.messageBuffer;
+        }
+    }
+
     private void setState( ConnectionState connectionState ) {
+        if( this.connectionState == ConnectionState.OPEN && connectionState != ConnectionState.OPEN ) {
+            this.multiplexer.reset( this.getUnsentMessages() );
+        }
+        if( connectionState != ConnectionState.OPEN ) {
+            synchronized( this.bufferLock ) {
+                this.bufferFlushed = false;
+            }
+        }
         this.connectionState = connectionState;
 
         if( connectionState == ConnectionState.AWAITING_CONNECTION && this.authParameters != null ) {
@@ -293,6 +437,11 @@ class Connection implements IConnection {
         if (options.getEndpointType().equals(EndpointType.TCP)) {
             endpoint = new EndpointTCP( url, options, this );
             this.endpoint = endpoint;
+        } else if (options.getEndpointType().equals(EndpointType.NIO)) {
+            // The connect completes on the selector thread, so the endpoint has to be assigned before opening it
+            endpoint = new EndpointNIO( url, options, this );
+            this.endpoint = endpoint;
+            endpoint.open();
         } else if (options.getEndpointType().equals(EndpointType.ENGINEIO)) {
             System.out.println( "EngineIO doesn't transpile" );
         }
@@ -310,10 +459,14 @@ class Connection implements IConnection {
 
         if( this.reconnectionAttempt < maxReconnectAttempts ) {
             this.setState( ConnectionState.RECONNECTING );
-            this.reconnectTimeout = new Timer();
-            this.reconnectTimeout.schedule(new TimerTask() {
+            this.reconnectTimeout = this.runtime.schedule(new Runnable() {
                 public void run() {
-                    tryOpen();
+                    // Opening a TCP endpoint blocks until it is connected
+                    runtime.execute(new Runnable() {
+                        public void run() {
+                            tryOpen();
+                        }
+                    });
                 }
             }, Math.min(
                     reconnectIntervalIncrement * this.reconnectionAttempt,
@@ -328,7 +481,6 @@ class Connection implements IConnection {
     }
 
     private void tryOpen() {
-        this.reconnectTimeout.cancel();
         this.reconnectTimeout = null;
         this.endpoint.open();
     }
@@ -3,15 +3,19 @@ package io.deepstream;
 import com.google.gson.JsonElement;
 
 import java.net.URISyntaxException;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.UUID;
-import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
 
 /**
  * The main entry point for a DeepstreamClient. You can create a client directly using the constructors or use the
  * {@link DeepstreamFactory#getClient()}, {@link DeepstreamFactory#getClient(String)} or
  * {@link DeepstreamFactory#getClient(String, Properties)} to create one for you and hold them for future reference.
+ * Further clients sharing the connection of a client can be created with {@link DeepstreamClient#createSession()}.
  */
 public class DeepstreamClient extends DeepstreamClientAbstract {
 
@@ -32,6 +36,12 @@ public class DeepstreamClient extends DeepstreamClientAbstract {
      */
     public final RpcHandler rpc;
     private final Connection connection;
+    private final UtilSessionConnection sessionConnection;
+    private final DeepstreamRuntime runtime;
+    private final DeepstreamConfig deepstreamConfig;
+    private final boolean isSession;
+    private final List<ConnectionStateListener> sessionListeners;
+    private volatile boolean sessionClosed;
     private String uuid;
 
     /**
@@ -41,7 +51,18 @@ public class DeepstreamClient extends DeepstreamClientAbstract {
      * @throws URISyntaxException Thrown if the url in incorrect
      */
     public DeepstreamClient(final String url) throws URISyntaxException {
-        this(url, new DeepstreamConfig());
+        this(url, new DeepstreamConfig(), null);
+    }
+
+    /**
+     * deepstream.io java client that runs on a runtime shared with other clients, defaults to using default properties
+     *
+     * @param url URL to connect to. The protocol can be omited, e.g. <host>:<port>
+     * @param runtime The threads the client runs on, see {@link DeepstreamRuntime}
+     * @throws URISyntaxException Thrown if the url in incorrect
+     */
+    public DeepstreamClient(final String url, DeepstreamRuntime runtime) throws URISyntaxException {
+        this(url, new DeepstreamConfig(), runtime);
     }
 
     /**
@@ -50,20 +71,76 @@ public class DeepstreamClient extends DeepstreamClientAbstract {
      * @throws URISyntaxException Thrown if the url in incorrect
      */
     public DeepstreamClient(final String url, Properties options) throws URISyntaxException, InvalidDeepstreamConfig {
-        this(url, new DeepstreamConfig(options));
+        this(url, new DeepstreamConfig(options), null);
+    }
+
+    /**
+     * deepstream.io java client that runs on a runtime shared with other clients. The
+     * {@link ConfigOptions#RECORD_DISPATCH_LANES} option is ignored, the runtime decides the amount of lanes.
+     *
+     * @param url URL to connect to. The protocol can be omited, e.g. <host>:<port>
+     * @param options The options to use within the deepstream connection
+     * @param runtime The threads the client runs on, see {@link DeepstreamRuntime}
+     * @throws URISyntaxException Thrown if the url in incorrect
+     * @throws InvalidDeepstreamConfig An exception if any of the options are invalid
+     */
+    public DeepstreamClient(final String url, Properties options, DeepstreamRuntime runtime) throws URISyntaxException, InvalidDeepstreamConfig {
+        this(url, new DeepstreamConfig(options), runtime);
     }
 
     /**
      * deepstream.io java client
      * @param url URL to connect to. The protocol can be omited, e.g. <host>:<port>
      * @param deepstreamConfig A map of options that extend the ones specified in DefaultConfig.properties
+     * @param runtime The runtime to run on, or null to create one for this client
      * @throws URISyntaxException Thrown if the url in incorrect
      */
-    private DeepstreamClient(final String url, DeepstreamConfig deepstreamConfig) throws URISyntaxException {
-        this.connection = new Connection(url, deepstreamConfig, this);
-        this.event = new EventHandler(deepstreamConfig, this.connection, this);
-        this.rpc = new RpcHandler(deepstreamConfig, this.connection, this);
-        this.record = new RecordHandler(deepstreamConfig, this.connection, this);
+    private DeepstreamClient(final String url, DeepstreamConfig deepstreamConfig, DeepstreamRuntime runtime) throws URISyntaxException {
+        super(new UtilJsonCodec(deepstreamConfig.getPayloadSerializer()));
+        this.runtime = runtime != null ? runtime : new DeepstreamRuntime(deepstreamConfig.getRecordDispatchLanes());
+        this.deepstreamConfig = deepstreamConfig;
+        this.isSession = false;
+        this.sessionListeners = null;
+        this.connection = new Connection(url, deepstreamConfig, this, this.runtime);
+        this.sessionConnection = this.connection.getMultiplexer().addSession(this);
+        this.getAckTimeoutRegistry().setBatchWindow(deepstreamConfig.getAckBatchWindow());
+        this.event = new EventHandler(deepstreamConfig, this.sessionConnection, this);
+        this.rpc = new RpcHandler(deepstreamConfig, this.sessionConnection, this);
+        this.record = new RecordHandler(deepstreamConfig, this.sessionConnection, this);
+    }
+
+    /**
+     * A session sharing the connection of another client
+     * @param client The client whose connection, runtime and options the session shares
+     */
+    private DeepstreamClient(DeepstreamClient client) {
+        super(client.getJsonCodec());
+        this.runtime = client.runtime;
+        this.deepstreamConfig = client.deepstreamConfig;
+        this.isSession = true;
+        this.sessionListeners = new CopyOnWriteArrayList<>();
+        this.connection = client.connection;
+        this.sessionConnection = this.connection.getMultiplexer().addSession(this);
+        this.getAckTimeoutRegistry().setBatchWindow(deepstreamConfig.getAckBatchWindow());
+        this.event = new EventHandler(deepstreamConfig, this.sessionConnection, this);
+        this.rpc = new RpcHandler(deepstreamConfig, this.sessionConnection, this);
+        this.record = new RecordHandler(deepstreamConfig, this.sessionConnection, this);
+    }
+
+    /**
+     * Creates a session, a client of its own with its own records, subscriptions and rpcs that shares the
+     * connection of this client rather than opening another one. Subscriptions are reference counted on the
+     * connection, so sessions subscribing to the same record or event cause a single subscribe and receive
+     * the same stream of updates.<br/>
+     *
+     * Sessions share the authentication of the connection: logging in a session doesn't send anything and
+     * only waits for the connection to be open. Closing a session unsubscribes from what only it was subscribed
+     * to and leaves the connection open, closing the client that created the connection closes it for all sessions.
+     *
+     * @return The session
+     */
+    public DeepstreamClient createSession() {
+        return new DeepstreamClient(this);
     }
 
     /**
@@ -112,38 +189,68 @@ public class DeepstreamClient extends DeepstreamClientAbstract {
      * @return The login result
      */
     public LoginResult login(JsonElement authParams) {
-        final CountDownLatch loggedInLatch = new CountDownLatch(1);
-        final LoginResult[] loginResult = new LoginResult[1];
+        try {
+            return this.loginAsync(authParams).get();
+        } catch (InterruptedException | ExecutionException e) {
+            return new LoginResult(false, null, "An issue occured during login");
+        }
+    }
+
+    /**
+     * The non-blocking version of {@link DeepstreamClient#login()}
+     *
+     * @return A future that completes with the login result
+     */
+    public DeepstreamFuture<LoginResult> loginAsync() {
+        return this.loginAsync(null);
+    }
+
+    /**
+     * The non-blocking version of {@link DeepstreamClient#login(JsonElement)}. A failed login is not reported by
+     * failing the future but as a {@link LoginResult} that isn't logged in
+     *
+     * @param authParams JSON.serializable authentication data
+     * @return A future that completes with the login result
+     */
+    public DeepstreamFuture<LoginResult> loginAsync(JsonElement authParams) {
+        final DeepstreamFuture<LoginResult> future = new DeepstreamFuture<>();
+
+        if (this.isSession) {
+            this.awaitOpen(future);
+            return future;
+        }
 
         this.connection.authenticate(authParams, new LoginCallback() {
             @Override
             public void loginSuccess(Map userData) {
-                loginResult[0] = new LoginResult(true, userData);
-                loggedInLatch.countDown();
+                future.complete(new LoginResult(true, userData));
             }
 
             @Override
             public void loginFailed(Event errorEvent, Object data) {
-                loginResult[0] = new LoginResult(false, errorEvent, data);
-                loggedInLatch.countDown();
+                future.complete(new LoginResult(false, errorEvent, data));
             }
         });
 
-        try {
-            loggedInLatch.await();
-        } catch (InterruptedException e) {
-            loginResult[0] = new LoginResult(false, null, "An issue occured during login");
-        }
-
-        return loginResult[0];
+        return future;
     }
 
     /**
-     * Closes the connection to the server.
+     * Closes the connection to the server. Closing a session, see {@link DeepstreamClient#createSession()},
+     * only unsubscribes it and leaves the connection open for the other sessions.
      * @return The deepstream client
      */
     public DeepstreamClient close() {
-        this.connection.close();
+        if (this.isSession) {
+            this.sessionClosed = true;
+            this.sessionConnection.close();
+            for (ConnectionStateListener listener : this.sessionListeners) {
+                this.connection.removeConnectionChangeListener(listener);
+            }
+            this.sessionListeners.clear();
+        } else {
+            this.connection.close();
+        }
         return this;
     }
 
@@ -154,6 +261,9 @@ public class DeepstreamClient extends DeepstreamClientAbstract {
      * @return The deepstream client
      */
     public DeepstreamClient addConnectionChangeListener( ConnectionStateListener connectionStateListener) {
+        if (this.isSession) {
+            this.sessionListeners.add(connectionStateListener);
+        }
         this.connection.addConnectionChangeListener(connectionStateListener);
         return this;
     }
@@ -164,6 +274,9 @@ public class DeepstreamClient extends DeepstreamClientAbstract {
      * @return The deepstream client
      */
     public DeepstreamClient removeConnectionChangeListener( ConnectionStateListener connectionStateListener) {
+        if (this.isSession) {
+            this.sessionListeners.remove(connectionStateListener);
+        }
         this.connection.removeConnectionChangeListener(connectionStateListener);
         return this;
     }
@@ -173,9 +286,20 @@ public class DeepstreamClient extends DeepstreamClientAbstract {
      * @return The connection state
      */
     public ConnectionState getConnectionState() {
+        if (this.sessionClosed) {
+            return ConnectionState.CLOSED;
+        }
         return this.connection.getConnectionState();
     }
 
+    /**
+     * Runs the task on the lane of the connection, rather than starting a thread for it
+     */
+    @Override
+    void execute(Runnable task) {
+        this.connection.execute(task);
+    }
+
     /**
      * Returns a random string. The first block of characters
      * is a timestamp, in order to allow databases to optimize for semi-
@@ -190,6 +314,22 @@ public class DeepstreamClient extends DeepstreamClientAbstract {
         return uuid;
     }
 
+    /**
+     * Completes the login of a session once the connection it shares is open
+     */
+    private void awaitOpen(final DeepstreamFuture<LoginResult> future) {
+        ConnectionStateListener listener = new ConnectionStateListener() {
+            @Override
+            public void connectionStateChanged(ConnectionState connectionState) {
+                if (connectionState == ConnectionState.OPEN && future.complete(new LoginResult(true, new HashMap<String, Object>()))) {
+                    removeConnectionChangeListener(this);
+                }
+            }
+        };
+        this.addConnectionChangeListener(listener);
+        listener.connectionStateChanged(this.getConnectionState());
+    }
+
     /**
      * A callback that notifies the user if the login process was completed successfully or not, and contains optional data
      * received from the server associated to the user
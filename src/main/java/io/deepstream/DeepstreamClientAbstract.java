@@ -4,8 +4,20 @@ import com.google.gson.JsonElement;
 
 abstract class DeepstreamClientAbstract {
     private UtilAckTimeoutRegistry utilAckTimeoutRegistry;
+    private final UtilJsonCodec jsonCodec;
     private DeepstreamRuntimeErrorHandler deepstreamRuntimeErrorHandler;
 
+    DeepstreamClientAbstract() {
+        this( new UtilJsonCodec() );
+    }
+
+    /**
+     * @param jsonCodec The codec used by everything in the client to convert between json and java objects
+     */
+    DeepstreamClientAbstract( UtilJsonCodec jsonCodec ) {
+        this.jsonCodec = jsonCodec;
+    }
+
     abstract DeepstreamClientAbstract addConnectionChangeListener(ConnectionStateListener connectionStateListener);
     abstract DeepstreamClientAbstract removeConnectionChangeListener(ConnectionStateListener connectionStateListener);
     abstract ConnectionState getConnectionState();
@@ -23,6 +35,24 @@ abstract class DeepstreamClientAbstract {
         return utilAckTimeoutRegistry;
     }
 
+    /**
+     * Runs a task that may block or call application code, such as sending a message or reporting an error,
+     * away from the timer thread that all clients share. Clients without threads of their own run it straight
+     * away.
+     *
+     * @param task The task to run
+     */
+    void execute( Runnable task ) {
+        task.run();
+    }
+
+    /**
+     * @return The codec shared by everything in the client that converts between json and java objects
+     */
+    UtilJsonCodec getJsonCodec() {
+        return jsonCodec;
+    }
+
     /**
      * Adds a {@link DeepstreamRuntimeErrorHandler} that will catch all RuntimeErrors such as AckTimeouts and allow
      * the user to gracefully handle them.
@@ -20,10 +20,16 @@ class DeepstreamConfig {
             this.getRpcResponseTimeout();
             this.getSubscriptionTimeout();
             this.getMaxReconnectAttempts();
+            this.getMaxMessagesPerPacket();
             this.getTimeBetweenSendingQueuedPackages();
             this.getRecordReadAckTimeout();
             this.getRecordReadTimeout();
             this.getRecordDeleteTimeout();
+            this.getOutboundQueueSize();
+            this.getOutboundQueuePolicy();
+            this.getPayloadSerializerClass();
+            this.getRecordDispatchLanes();
+            this.getAckBatchWindow();
         } catch( Exception e ) {
             throw new InvalidDeepstreamConfig();
         }
@@ -78,6 +84,46 @@ class DeepstreamConfig {
         return Integer.parseInt(getOption(ConfigOptions.RECORD_DELETE_TIMEOUT, "3000"));
     }
 
+    int getOutboundQueueSize() {
+        return Integer.parseInt(getOption(ConfigOptions.OUTBOUND_QUEUE_SIZE, "10000"));
+    }
+
+    OutboundQueuePolicy getOutboundQueuePolicy() {
+        return OutboundQueuePolicy.getOutboundQueuePolicy(getOption(ConfigOptions.OUTBOUND_QUEUE_POLICY, OutboundQueuePolicy.BLOCK.toString()));
+    }
+
+    int getRecordDispatchLanes() {
+        return Integer.parseInt(getOption(ConfigOptions.RECORD_DISPATCH_LANES, String.valueOf(Runtime.getRuntime().availableProcessors())));
+    }
+
+    int getAckBatchWindow() {
+        return Integer.parseInt(getOption(ConfigOptions.ACK_BATCH_WINDOW, "0"));
+    }
+
+    PayloadSerializer getPayloadSerializer() {
+        Class<? extends PayloadSerializer> serializerClass = getPayloadSerializerClass();
+        if( serializerClass == GsonPayloadSerializer.class ) {
+            return new GsonPayloadSerializer();
+        }
+        try {
+            return serializerClass.newInstance();
+        } catch( ReflectiveOperationException e ) {
+            throw new IllegalArgumentException( "Unable to create payload serializer " + serializerClass.getName(), e );
+        }
+    }
+
+    Class<? extends PayloadSerializer> getPayloadSerializerClass() {
+        String className = getOption(ConfigOptions.PAYLOAD_SERIALIZER, GsonPayloadSerializer.class.getName());
+        if( className.equals( GsonPayloadSerializer.class.getName() ) ) {
+            return GsonPayloadSerializer.class;
+        }
+        try {
+            return Class.forName( className ).asSubclass( PayloadSerializer.class );
+        } catch( ClassNotFoundException e ) {
+            throw new IllegalArgumentException( "Unknown payload serializer " + className, e );
+        }
+    }
+
     private String getOption(ConfigOptions option, String defaultValue) {
         if (properties.containsKey(option)) {
             return properties.get(option).toString();
@@ -11,10 +11,14 @@ import java.util.Properties;
  * around the codebase, making application development easier in frameworks such android.
  * <p>
  * Currently this only contains a single deepstream client;
+ * <p>
+ * All clients created by the factory share one {@link DeepstreamRuntime}, so creating more of them doesn't add
+ * threads.
  */
 public class DeepstreamFactory {
     private static DeepstreamFactory ourInstance = new DeepstreamFactory();
     Map<String, DeepstreamClient> clients;
+    private DeepstreamRuntime runtime;
 
     /**
      * DeepstreamFactory is a map of all url connections created
@@ -54,7 +58,7 @@ public class DeepstreamFactory {
     public DeepstreamClient getClient(String url) throws URISyntaxException {
         DeepstreamClient client = this.clients.get(url);
         if (clientDoesNotExist(client)) {
-            client = new DeepstreamClient(url);
+            client = new DeepstreamClient(url, this.getRuntime());
             this.clients.put(url, client);
         }
         return client;
@@ -73,12 +77,19 @@ public class DeepstreamFactory {
     public DeepstreamClient getClient(String url, Properties options) throws URISyntaxException, InvalidDeepstreamConfig {
         DeepstreamClient client = this.clients.get(url);
         if (clientDoesNotExist(client)) {
-            client = new DeepstreamClient(url, options);
+            client = new DeepstreamClient(url, options, this.getRuntime());
             this.clients.put(url, client);
         }
         return client;
     }
 
+    private synchronized DeepstreamRuntime getRuntime() {
+        if (this.runtime == null) {
+            this.runtime = new DeepstreamRuntime();
+        }
+        return this.runtime;
+    }
+
     private boolean clientDoesNotExist(DeepstreamClient client) {
         return client == null || client.getConnectionState() == ConnectionState.CLOSED || client.getConnectionState() == ConnectionState.ERROR;
     }
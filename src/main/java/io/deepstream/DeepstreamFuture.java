@@ -0,0 +1,201 @@
+package io.deepstream;
+
+import java.util.ArrayList;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * The result of a request that is answered by the server, returned by the non-blocking methods such as
+ * {@link RecordHandler#getRecordAsync(String)} and {@link RpcHandler#makeAsync(String, Object)}.<br/>
+ *
+ * Rather than parking a thread in {@link DeepstreamFuture#get()} you can add a {@link Listener} that is notified
+ * once the result arrives. Listeners are called on the thread that handles the response, so they should return
+ * quickly and must not block on another request.
+ *
+ * @param <T> The type of the result
+ */
+public class DeepstreamFuture<T> implements Future<T> {
+
+    private final CountDownLatch doneLatch;
+    private ArrayList<Listener<? super T>> listeners;
+    private boolean done;
+    private boolean cancelled;
+    private T result;
+    private Throwable error;
+
+    DeepstreamFuture() {
+        this.doneLatch = new CountDownLatch( 1 );
+        this.listeners = new ArrayList<>();
+    }
+
+    /**
+     * Adds a listener that is notified once the result is available. If the result is already available the
+     * listener is notified straight away on the calling thread.
+     *
+     * @param listener The listener to add
+     * @return The future
+     */
+    public DeepstreamFuture<T> addListener( Listener<? super T> listener ) {
+        synchronized( this ) {
+            if( !this.done ) {
+                this.listeners.add( listener );
+                return this;
+            }
+        }
+        this.callListener( listener );
+        return this;
+    }
+
+    /**
+     * Cancelling only stops waiting for the result, the request itself is still completed by the server
+     */
+    @Override
+    public boolean cancel( boolean mayInterruptIfRunning ) {
+        return this.finish( null, new CancellationException(), true );
+    }
+
+    @Override
+    public synchronized boolean isCancelled() {
+        return this.cancelled;
+    }
+
+    @Override
+    public synchronized boolean isDone() {
+        return this.done;
+    }
+
+    @Override
+    public T get() throws InterruptedException, ExecutionException {
+        this.doneLatch.await();
+        return this.getResult();
+    }
+
+    @Override
+    public T get( long timeout, TimeUnit unit ) throws InterruptedException, ExecutionException, TimeoutException {
+        if( !this.doneLatch.await( timeout, unit ) ) {
+            throw new TimeoutException();
+        }
+        return this.getResult();
+    }
+
+    /**
+     * Waits for the result the way the blocking methods always have, printing an interrupt and
+     * returning early without a result.
+     *
+     * @return The result, or null if the thread was interrupted
+     * @throws ExecutionException If the request failed
+     */
+    T await() throws ExecutionException {
+        try {
+            return this.get();
+        } catch( InterruptedException e ) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Used to hand the same request to several callers
+     *
+     * @return A new future that completes with this one, cancelling it doesn't affect this future
+     */
+    DeepstreamFuture<T> copy() {
+        final DeepstreamFuture<T> copy = new DeepstreamFuture<>();
+        this.addListener( new Listener<T>() {
+            @Override
+            public void onSuccess( T result ) {
+                copy.complete( result );
+            }
+
+            @Override
+            public void onFailure( Throwable error ) {
+                copy.fail( error );
+            }
+        } );
+        return copy;
+    }
+
+    /**
+     * @param result The result of the request
+     * @return true if this completed the future, false if it was already done
+     */
+    boolean complete( T result ) {
+        return this.finish( result, null, false );
+    }
+
+    /**
+     * @param error The reason the request failed
+     * @return true if this completed the future, false if it was already done
+     */
+    boolean fail( Throwable error ) {
+        return this.finish( null, error, false );
+    }
+
+    private boolean finish( T result, Throwable error, boolean cancelled ) {
+        ArrayList<Listener<? super T>> listeners;
+        synchronized( this ) {
+            if( this.done ) {
+                return false;
+            }
+            this.done = true;
+            this.cancelled = cancelled;
+            this.result = result;
+            this.error = error;
+            listeners = this.listeners;
+            this.listeners = null;
+        }
+        this.doneLatch.countDown();
+
+        for( Listener<? super T> listener : listeners ) {
+            this.callListener( listener );
+        }
+        return true;
+    }
+
+    private void callListener( Listener<? super T> listener ) {
+        Throwable error;
+        T result;
+        synchronized( this ) {
+            error = this.error;
+            result = this.result;
+        }
+        if( error == null ) {
+            listener.onSuccess( result );
+        } else {
+            listener.onFailure( error );
+        }
+    }
+
+    private synchronized T getResult() throws ExecutionException {
+        if( this.cancelled ) {
+            throw (CancellationException) this.error;
+        }
+        if( this.error != null ) {
+            throw new ExecutionException( this.error );
+        }
+        return this.result;
+    }
+
+    /**
+     * Notified once the result of a {@link DeepstreamFuture} is available
+     *
+     * @param <T> The type of the result
+     */
+    public interface Listener<T> {
+        /**
+         * Called when the request completed
+         * @param result The result of the request
+         */
+        void onSuccess( T result );
+
+        /**
+         * Called when the request failed or the future was cancelled
+         * @param error The reason, a {@link java.util.concurrent.CancellationException} if it was cancelled
+         */
+        void onFailure( Throwable error );
+    }
+}
@@ -0,0 +1,122 @@
+package io.deepstream;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The threads a {@link DeepstreamClient} runs on: a scheduler for delayed work such as reconnects and packet
+ * flushes, a pool for the blocking socket I/O of TCP endpoints and the lanes incoming record, event and rpc
+ * messages are handled on.<br/>
+ *
+ * Every client creates a runtime of its own unless one is passed in. Passing the same runtime to several clients,
+ * as {@link DeepstreamFactory} does, keeps the amount of threads and the cost of creating a client constant however
+ * many clients there are. Threads are only started once they are needed and stop again after a minute without
+ * work, so an idle runtime doesn't hold on to any.
+ */
+public class DeepstreamRuntime {
+
+    private static final int KEEP_ALIVE_SECONDS = 60;
+
+    private final ScheduledThreadPoolExecutor scheduler;
+    private final ThreadPoolExecutor ioExecutor;
+    private final UtilStripedExecutor recordLanes;
+    private final UtilStripedExecutor eventLanes;
+    private final UtilStripedExecutor rpcLanes;
+
+    /**
+     * Creates a runtime with a dispatch lane per available processor
+     */
+    public DeepstreamRuntime() {
+        this( Runtime.getRuntime().availableProcessors() );
+    }
+
+    /**
+     * @param dispatchLanes The number of threads each of records, events and rpcs are handled on. Messages for the
+     *                      same record, and all event and rpc messages of a client, are always handled in order on
+     *                      the same thread.
+     */
+    public DeepstreamRuntime( int dispatchLanes ) {
+        this.scheduler = new ScheduledThreadPoolExecutor( 1, new NamedThreadFactory( "deepstream-scheduler", true ) );
+        this.scheduler.setRemoveOnCancelPolicy( true );
+        this.scheduler.setKeepAliveTime( KEEP_ALIVE_SECONDS, TimeUnit.SECONDS );
+        this.scheduler.allowCoreThreadTimeOut( true );
+
+        this.ioExecutor = new ThreadPoolExecutor( 0, Integer.MAX_VALUE, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new SynchronousQueue<Runnable>(), new NamedThreadFactory( "deepstream-io", false ) );
+
+        this.recordLanes = new UtilStripedExecutor( dispatchLanes, "deepstream-record" );
+        this.eventLanes = new UtilStripedExecutor( dispatchLanes, "deepstream-event" );
+        this.rpcLanes = new UtilStripedExecutor( dispatchLanes, "deepstream-rpc" );
+    }
+
+    /**
+     * Stops all threads once the work they already accepted is done. Only call this once every client using the
+     * runtime has been closed.
+     */
+    public void shutdown() {
+        this.scheduler.shutdown();
+        this.ioExecutor.shutdown();
+        this.recordLanes.shutdown();
+        this.eventLanes.shutdown();
+        this.rpcLanes.shutdown();
+    }
+
+    /**
+     * Runs a task after a delay on the scheduler thread, which is shared by every client of the runtime. Tasks
+     * therefore have to return quickly and hand anything that could block or call application code to the lane of
+     * their connection.
+     *
+     * @param task The task to run
+     * @param delay The delay in milliseconds
+     * @return The future to cancel the task with
+     */
+    ScheduledFuture<?> schedule( Runnable task, long delay ) {
+        return this.scheduler.schedule( task, delay, TimeUnit.MILLISECONDS );
+    }
+
+    /**
+     * Runs a task that blocks on a socket, such as the reader and writer of a TCP endpoint, on a thread of the
+     * I/O pool. The pool starts a thread for every task that finds none idle, so anything else belongs on a lane.
+     *
+     * @param task The task to run
+     */
+    void execute( Runnable task ) {
+        this.ioExecutor.execute( task );
+    }
+
+    UtilStripedExecutor getRecordLanes() {
+        return this.recordLanes;
+    }
+
+    UtilStripedExecutor getEventLanes() {
+        return this.eventLanes;
+    }
+
+    UtilStripedExecutor getRpcLanes() {
+        return this.rpcLanes;
+    }
+
+    private static class NamedThreadFactory implements ThreadFactory {
+        private final String name;
+        private final boolean daemon;
+        private final AtomicInteger count;
+
+        NamedThreadFactory( String name, boolean daemon ) {
+            this.name = name;
+            this.daemon = daemon;
+            this.count = new AtomicInteger();
+        }
+
+        @Override
+        public Thread newThread( Runnable runnable ) {
+            Thread thread = new Thread( runnable, this.name + "-" + this.count.incrementAndGet() );
+            thread.setDaemon( this.daemon );
+            return thread;
+        }
+    }
+}
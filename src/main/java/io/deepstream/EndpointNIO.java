@@ -0,0 +1,283 @@
+package io.deepstream;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.InetSocketAddress;
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * An implementation of {@link Endpoint} that talks to deepstream over a non-blocking {@link SocketChannel}. Unlike
+ * {@link EndpointTCP} it doesn't start a thread of its own, all reads and writes are done by the
+ * {@link UtilSelectorLoop} that is shared between all connections.<br/>
+ *
+ * The loop only does I/O and decodes frames. Opening, closing, errors and the connection and auth messages are
+ * handed to the lane of the connection, since handling them calls back into the application and sends messages,
+ * and a send that waits for room in the outbound queue would stop the loop that makes the room.
+ */
+class EndpointNIO implements Endpoint, UtilSelectorLoop.SelectorListener, UtilFrameDecoder.FrameListener {
+
+    private static final int MAX_WRITE_SIZE = 64 * 1024;
+
+    private final String host;
+    private final Integer port;
+    private final Connection connection;
+    private final UtilSelectorLoop selectorLoop;
+    private final DeepstreamConfig deepstreamConfig;
+    private volatile UtilOutboundQueue<String> outbound;
+    private final ConcurrentLinkedQueue<String> overflow;
+    private UtilFrameEncoder encoder;
+    private final AtomicBoolean writeRequested;
+    private final UtilFrameDecoder frameDecoder;
+    private SocketChannel channel;
+    private volatile SelectionKey key;
+    private volatile boolean closed;
+
+    /**
+     * Creates the endpoint. The connection is only established once {@link EndpointNIO#open()} is called, since
+     * the connect completes asynchronously and the {@link Connection} needs to hold a reference to the
+     * endpoint before it does.
+     *
+     * @param url The host and port to connect to, e.g. localhost:6021
+     * @param deepstreamConfig The deepstream config
+     * @param connection The connection to notify
+     * @throws URISyntaxException Thrown if the url isn't of the form host:port
+     */
+    public EndpointNIO(String url, DeepstreamConfig deepstreamConfig, Connection connection) throws URISyntaxException {
+        try {
+            this.host = url.substring( 0, url.indexOf( ':' ) );
+            this.port = Integer.parseInt( url.substring( url.indexOf( ':' ) + 1 )  );
+        } catch( Exception e ) {
+            throw new URISyntaxException( url, "URL provided is not correct" );
+        }
+
+        try {
+            this.selectorLoop = UtilSelectorLoop.getSharedLoop();
+        } catch( IOException e ) {
+            throw new IllegalStateException( "Unable to open selector", e );
+        }
+
+        this.connection = connection;
+        this.deepstreamConfig = deepstreamConfig;
+        this.outbound = new UtilOutboundQueue<>( deepstreamConfig );
+        this.overflow = new ConcurrentLinkedQueue<>();
+        this.writeRequested = new AtomicBoolean( false );
+        this.frameDecoder = new UtilFrameDecoder( this );
+    }
+
+    public void open() {
+        this.closed = false;
+        this.key = null;
+        this.outbound = new UtilOutboundQueue<>( this.deepstreamConfig );
+        this.encoder = new UtilFrameEncoder( UtilBufferPool.getSharedPool() );
+        this.overflow.clear();
+        this.writeRequested.set( false );
+        this.frameDecoder.reset();
+
+        try {
+            this.channel = SocketChannel.open();
+            this.channel.configureBlocking( false );
+            this.channel.socket().setKeepAlive( true );
+            if( this.channel.connect( new InetSocketAddress( host, port ) ) ) {
+                this.selectorLoop.register( this.channel, SelectionKey.OP_READ, this );
+            } else {
+                this.selectorLoop.register( this.channel, SelectionKey.OP_CONNECT, this );
+            }
+        } catch( IOException e ) {
+            this.onError( e );
+        }
+    }
+
+    public void send( String message ) {
+        if( this.closed ) {
+            return;
+        }
+        if( this.selectorLoop.inLoop() && this.deepstreamConfig.getOutboundQueuePolicy() == OutboundQueuePolicy.BLOCK ) {
+            // The loop can't wait for itself to make room, so its messages wait in the overflow, in order, until
+            // onWritable has written enough to take them
+            if( !this.overflow.isEmpty() || !this.outbound.tryOffer( message ) ) {
+                this.overflow.add( message );
+            }
+        } else if( !this.outbound.offer( message ) ) {
+            return;
+        }
+        if( this.key != null && this.writeRequested.compareAndSet( false, true ) ) {
+            this.selectorLoop.setInterestOps( this.key, SelectionKey.OP_READ | SelectionKey.OP_WRITE );
+        }
+    }
+
+    public void close() {
+        this.closeChannel();
+
+        try {
+            this.connection.onClose();
+        } catch (URISyntaxException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private void closeChannel() {
+        this.closed = true;
+        this.outbound.close();
+        this.overflow.clear();
+
+        // The encoder belongs to the loop thread, which could be in the middle of a write
+        final UtilFrameEncoder encoder = this.encoder;
+        if( encoder != null ) {
+            this.selectorLoop.execute(new Runnable() {
+                @Override
+                public void run() {
+                    encoder.release();
+                }
+            });
+        }
+
+        try {
+            if( this.channel != null ) {
+                this.channel.close();
+            }
+        } catch( IOException e ) {
+            e.printStackTrace();
+        }
+    }
+
+    @Override
+    public void onRegistered( SelectionKey key ) {
+        this.key = key;
+        if( this.channel.isConnected() ) {
+            this.onConnected();
+        }
+    }
+
+    @Override
+    public void onConnectable( SelectionKey key ) throws IOException {
+        if( this.channel.finishConnect() ) {
+            this.onConnected();
+        }
+    }
+
+    @Override
+    public void onReadable( SelectionKey key, ByteBuffer readBuffer ) throws IOException {
+        int bytesRead = this.channel.read( readBuffer );
+        if( bytesRead == -1 ) {
+            this.onError( new ConnectException() );
+            return;
+        }
+        if( bytesRead == 0 ) {
+            return;
+        }
+        readBuffer.flip();
+        this.frameDecoder.decode( readBuffer );
+    }
+
+    /**
+     * Messages for records, events and rpcs are routed and dispatched straight away, neither of which blocks.
+     * Connection and auth messages are copied out of the shared read buffer and handled on the lane.
+     */
+    @Override
+    public void onFrame( byte[] buffer, int offset, int length ) {
+        if( length > 0 && ( buffer[ offset ] == 'C' || buffer[ offset ] == 'A' ) ) {
+            final byte[] frame = Arrays.copyOfRange( buffer, offset, offset + length );
+            this.connection.execute(new Runnable() {
+                @Override
+                public void run() {
+                    connection.onFrame( frame, 0, frame.length );
+                }
+            });
+        } else {
+            this.connection.onFrame( buffer, offset, length );
+        }
+    }
+
+    @Override
+    public void onWritable( SelectionKey key ) throws IOException {
+        while( true ) {
+            if( this.encoder.isEmpty() ) {
+                String message;
+                while( this.encoder.size() < MAX_WRITE_SIZE && ( message = this.nextMessage() ) != null ) {
+                    this.encoder.encode( message );
+                }
+                if( this.encoder.isEmpty() ) {
+                    break;
+                }
+            }
+            if( !this.encoder.writeTo( this.channel ) ) {
+                return;
+            }
+        }
+
+        key.interestOps( SelectionKey.OP_READ );
+        this.writeRequested.set( false );
+
+        // A message could have been queued after the queue was drained but before the flag was reset
+        if( !this.outbound.isEmpty() && this.writeRequested.compareAndSet( false, true ) ) {
+            key.interestOps( SelectionKey.OP_READ | SelectionKey.OP_WRITE );
+        }
+    }
+
+    /**
+     * @return The next message to write, the ones in the overflow after the ones queued before them
+     */
+    private String nextMessage() {
+        String message = this.outbound.poll();
+        if( message == null ) {
+            return this.overflow.poll();
+        }
+        // Polling made room, which the overflow uses rather than waiting for the queue to run empty
+        String overflowed = this.overflow.peek();
+        if( overflowed != null && this.outbound.tryOffer( overflowed ) ) {
+            this.overflow.poll();
+        }
+        return message;
+    }
+
+    @Override
+    public void onSelectorError( IOException e ) {
+        if( !this.closed ) {
+            this.onError( e );
+        }
+    }
+
+    private void onConnected() {
+        if( this.outbound.isEmpty() ) {
+            this.key.interestOps( SelectionKey.OP_READ );
+        } else {
+            this.writeRequested.set( true );
+            this.key.interestOps( SelectionKey.OP_READ | SelectionKey.OP_WRITE );
+        }
+        this.connection.execute(new Runnable() {
+            @Override
+            public void run() {
+                connection.onOpen();
+            }
+        });
+    }
+
+    private void onError( Exception e ) {
+        final String message;
+
+        if( e instanceof ConnectException || e instanceof EOFException ) {
+            message = String.format( "Can\'t connect! Deepstream server unreachable on %s:%s", this.host, this.port );
+        } else {
+            message = e.getMessage();
+        }
+        this.closeChannel();
+        this.connection.execute(new Runnable() {
+            @Override
+            public void run() {
+                connection.onError( message );
+                try {
+                    connection.onClose();
+                } catch (URISyntaxException e) {
+                    e.printStackTrace();
+                }
+            }
+        });
+    }
+}
@@ -2,30 +2,32 @@ package io.deepstream;
 
 import java.io.EOFException;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.OutputStreamWriter;
 import java.net.ConnectException;
 import java.net.InetSocketAddress;
-import java.net.Socket;
 import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
 
 /**
  * An implementation of {@link Endpoint} that allows use to interact with with deepstream via TCP. This provides much
  * better speed, but does mean you'll have to be careful which firewalls lie inbetween.
+ *
+ * Sending only queues the message, a writer per connection does the actual writing so that the sending
+ * thread never waits on the network unless the queue is full. The reader and writer run on the I/O pool of the
+ * {@link DeepstreamRuntime}, so reconnecting reuses their threads.
  */
 class EndpointTCP implements Endpoint {
 
-    private final String MPS = Character.toString( '\u001f' );
-    private final String MS = Character.toString( '\u001e' );
+    private static final int READ_BUFFER_SIZE = 16 * 1024;
+    private static final int MAX_WRITE_SIZE = 64 * 1024;
     private final String host;
     private final Integer port;
     private final Connection connection;
-    private Socket socket;
-    private String messageBuffer;
-    private boolean closed;
-
-    private OutputStreamWriter out;
-    private InputStreamReader in;
+    private final UtilFrameDecoder frameDecoder;
+    private final DeepstreamConfig deepstreamConfig;
+    private volatile UtilOutboundQueue<String> outbound;
+    private SocketChannel channel;
+    private volatile boolean closed;
 
     public EndpointTCP(String url, DeepstreamConfig deepstreamConfig, Connection connection) throws URISyntaxException {
         try {
@@ -36,50 +38,52 @@ class EndpointTCP implements Endpoint {
         }
 
         this.connection = connection;
+        this.deepstreamConfig = deepstreamConfig;
 
-        this.messageBuffer = "";
+        this.frameDecoder = new UtilFrameDecoder( connection );
 
         this.open();
     }
 
     public void open() {
+        this.closed = false;
+        this.outbound = new UtilOutboundQueue<>( this.deepstreamConfig );
+
         try {
-            this.socket = new Socket();
-            this.socket.setKeepAlive( true );
-            this.socket.connect(new InetSocketAddress( host, port ));
+            this.channel = SocketChannel.open();
+            this.channel.socket().setKeepAlive( true );
+            this.channel.connect(new InetSocketAddress( host, port ));
         } catch (IOException e) {
             this.onError( e );
             return;
         }
 
-        try {
-            this.in = new InputStreamReader( this.socket.getInputStream() );
-            this.out = new OutputStreamWriter( this.socket.getOutputStream() );
-            this.connection.onOpen();
-        } catch (IOException e) {
-            onError( new ConnectException() );
-            return;
-        }
+        this.frameDecoder.reset();
+        this.startWriter( this.outbound, this.channel );
+        this.connection.onOpen();
 
         this.run();
     }
 
     private void run() {
         final EndpointTCP self = this;
+        final SocketChannel channel = this.channel;
 
-        new Thread(new Runnable() {
+        this.connection.getRuntime().execute(new Runnable() {
             @Override
             public void run() {
-                while( !self.socket.isClosed() ) {
+                ByteBuffer buffer = ByteBuffer.allocate( READ_BUFFER_SIZE );
+                while( channel.isOpen() ) {
                     try {
-                        char[] buffer = new char[ 1024 ];
-                        int bytesRead = in.read( buffer, 0, 1024 );
+                        buffer.clear();
+                        int bytesRead = channel.read( buffer );
 
                         if( bytesRead == -1 ) {
                             self.onError( new ConnectException() );
                             return;
                         }
-                        self.onData( new String( buffer, 0, bytesRead ) );
+                        buffer.flip();
+                        self.frameDecoder.decode( buffer );
                     } catch ( IOException e ) {
                         if( !self.closed ) {
                             self.onError( e );
@@ -87,7 +91,41 @@ class EndpointTCP implements Endpoint {
                     }
                 }
             }
-        }).start();
+        });
+    }
+
+    /**
+     * Encodes everything that has been queued since the last write and writes it with a single gathering write,
+     * so messages that are sent while the socket is busy end up in the same packet. Every open gets its own queue
+     * and writer, the writer ends once its queue is closed.
+     */
+    private void startWriter( final UtilOutboundQueue<String> outbound, final SocketChannel channel ) {
+        final EndpointTCP self = this;
+
+        this.connection.getRuntime().execute(new Runnable() {
+            @Override
+            public void run() {
+                UtilFrameEncoder encoder = new UtilFrameEncoder( UtilBufferPool.getSharedPool() );
+                try {
+                    String message;
+                    while( ( message = outbound.take() ) != null ) {
+                        encoder.encode( message );
+                        while( encoder.size() < MAX_WRITE_SIZE && ( message = outbound.poll() ) != null ) {
+                            encoder.encode( message );
+                        }
+                        encoder.writeTo( channel );
+                    }
+                } catch( InterruptedException e ) {
+                    Thread.currentThread().interrupt();
+                } catch( IOException e ) {
+                    if( !self.closed ) {
+                        self.onError( e );
+                    }
+                } finally {
+                    encoder.release();
+                }
+            }
+        });
     }
 
     private void onError( Exception e ) {
@@ -102,44 +140,16 @@ class EndpointTCP implements Endpoint {
         this.close();
     }
 
-    private void onData( String data ) {
-        String message;
-
-        // Incomplete message, write to buffer
-        char lastChar = data.charAt( data.length() - 1 );
-        if( !Character.toString( lastChar ).equals( MS ) ) {
-            this.messageBuffer += data;
-            return;
-        }
-
-        // Message that completes previously received message
-        if( this.messageBuffer.length() != 0 ) {
-            message = this.messageBuffer + data;
-            this.messageBuffer = "";
-
-        } else {
-            message = data;
-        }
-
-        this.connection.onMessage( message );
-    }
-
     public void send(String message) {
-        try {
-            this.out.write( message, 0, message.length() );
-            this.out.flush();
-        } catch (IOException e) {
-            if( !this.closed ) {
-                this.onError( e );
-            }
-        }
+        this.outbound.offer( message );
     }
 
     public void close() {
         this.closed = true;
+        this.outbound.close();
 
         try {
-            this.socket.close();
+            this.channel.close();
         } catch ( IOException e ) {
             e.printStackTrace();
         }
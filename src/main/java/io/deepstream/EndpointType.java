@@ -13,6 +13,11 @@ public enum EndpointType {
      * requirement for websocket/http protocol
      */
     TCP("tcp"),
+    /**
+     * NIO is a TCP connection that uses non-blocking sockets. All NIO connections share a single
+     * selector thread, which makes it the better choice when running lots of clients in one JVM
+     */
+    NIO("nio"),
     /**
      * EngineIO is to be used for connections that have multiple firewalls ( with access only to http ports )
      * and for fallbacks to http polling mechanisms
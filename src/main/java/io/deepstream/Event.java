@@ -78,7 +78,16 @@ public enum Event {
     /**
      * To indicate the client has attempted to perform an action they are not permissioned too
      */
-    MESSAGE_DENIED;
+    MESSAGE_DENIED,
+    /**
+     * To indicate a message was not sent since the outbound queue was full, see {@link OutboundQueuePolicy#FAIL}
+     */
+    OUTBOUND_QUEUE_FULL,
+    /**
+     * To indicate a rpc was not sent since too many requests for it are in flight, see
+     * {@link RpcHandler#enableConcurrencyLimit(String, int, int)}
+     */
+    RPC_LIMIT_EXCEEDED;
 
     static Event getEvent(String event ) {
 
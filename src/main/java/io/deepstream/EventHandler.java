@@ -51,7 +51,7 @@ public class EventHandler {
         if (this.emitter.hasListeners(eventName)) {
             this.subscriptions.add( eventName );
             this.ackTimeoutRegistry.add( Topic.EVENT, Actions.SUBSCRIBE, eventName, this.subscriptionTimeout );
-            this.connection.send( MessageBuilder.getMsg( Topic.EVENT, Actions.SUBSCRIBE, eventName ) );
+            this.connection.sendMsg( Topic.EVENT, Actions.SUBSCRIBE, new String[] { eventName } );
         }
         this.emitter.on(eventName, eventListener);
     }
@@ -67,7 +67,7 @@ public class EventHandler {
         this.emitter.off(eventName, eventListener);
         if (this.emitter.hasListeners(eventName)) {
             this.ackTimeoutRegistry.add( Topic.EVENT,  Actions.UNSUBSCRIBE, eventName, this.subscriptionTimeout );
-            this.connection.send(MessageBuilder.getMsg(Topic.EVENT, Actions.UNSUBSCRIBE, eventName));
+            this.connection.sendMsg( Topic.EVENT, Actions.UNSUBSCRIBE, new String[] { eventName } );
         }
     }
 
@@ -75,7 +75,7 @@ public class EventHandler {
      * @see EventHandler
      */
     public void emit( String eventName ) {
-        this.connection.send( MessageBuilder.getMsg( Topic.EVENT, Actions.EVENT, eventName));
+        this.connection.sendMsg( Topic.EVENT, Actions.EVENT, new String[] { eventName } );
         this.broadcastEvent(eventName);
     }
 
@@ -86,7 +86,7 @@ public class EventHandler {
      * @param data the data to serialise and send with the event
      */
     public void emit( String eventName, Object data ) {
-        this.connection.send( MessageBuilder.getMsg( Topic.EVENT, Actions.EVENT, eventName, MessageBuilder.typed( data)));
+        this.connection.sendMsg( Topic.EVENT, Actions.EVENT, new String[] { eventName, MessageBuilder.typed( data, this.client.getJsonCodec() ) } );
         this.broadcastEvent(eventName, data);
     }
 
@@ -131,16 +131,17 @@ public class EventHandler {
         String eventName;
 
         if( message.action == Actions.ACK ) {
-            eventName = message.data[ 1 ];
+            eventName = message.data( 1 );
         } else {
-            eventName = message.data[ 0 ];
+            eventName = message.data( 0 );
         }
 
         if( message.action == Actions.EVENT ) {
-            if( message.data.length == 2 ) {
-                this.emit( eventName, MessageParser.convertTyped( message.data[ 1 ], this.client ) );
+            // Only notify the local listeners, emitting would send the event back to the server
+            if( message.dataLength() == 2 ) {
+                this.broadcastEvent( eventName, MessageParser.convertTyped( message, 1, this.client ) );
             } else {
-                this.emit( eventName );
+                this.broadcastEvent( eventName );
             }
         }
         else if( this.listeners.get( eventName ) != null ) {
@@ -150,7 +151,7 @@ public class EventHandler {
             this.ackTimeoutRegistry.clear( message );
         }
         else if( message.action == Actions.ERROR ) {
-            this.client.onError( Topic.EVENT, Event.getEvent( message.data[ 0 ] ), message.data[ 1 ]);
+            this.client.onError( Topic.EVENT, Event.getEvent( message.data( 0 ) ), message.data( 1 ));
         }
         else {
             this.client.onError( Topic.EVENT, Event.UNSOLICITED_MESSAGE, eventName );
@@ -0,0 +1,111 @@
+package io.deepstream;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonIOException;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The default {@link PayloadSerializer}. Gson instances are thread safe but expensive to create, and every
+ * instance does the reflection for a type the first time it sees it, so they are created once and shared
+ * between all records, events and rpcs of a client.
+ *
+ * The {@link TypeAdapter} of every serialized class is cached, so serializing a value of a known class is
+ * a single map lookup followed by the write. Typed values serialize maps with complex keys as arrays of
+ * key/value pairs rather than using the keys string representation.
+ */
+public class GsonPayloadSerializer implements PayloadSerializer {
+
+    private final Gson gson;
+    private final Gson complexKeyGson;
+    private final Map<Class<?>, TypeAdapter<?>> adapters;
+    private final Map<Class<?>, TypeAdapter<?>> complexKeyAdapters;
+
+    public GsonPayloadSerializer() {
+        this.gson = new Gson();
+        this.complexKeyGson = new GsonBuilder().enableComplexMapKeySerialization().create();
+        this.adapters = new ConcurrentHashMap<>();
+        this.complexKeyAdapters = new ConcurrentHashMap<>();
+
+        // Warm up the adapters of the types that are serialized most
+        Class<?>[] commonTypes = { JsonObject.class, JsonArray.class, HashMap.class, ArrayList.class, String.class, Double.class, Integer.class };
+        for( Class<?> type : commonTypes ) {
+            this.adapter( this.adapters, this.gson, type );
+            this.adapter( this.complexKeyAdapters, this.complexKeyGson, type );
+        }
+    }
+
+    @Override
+    public JsonElement parse( String json ) {
+        return this.gson.fromJson( json, JsonElement.class );
+    }
+
+    @Override
+    public JsonElement parse( byte[] json, int offset, int length ) {
+        return this.gson.fromJson( new UtilUtf8Reader( json, offset, length ), JsonElement.class );
+    }
+
+    @Override
+    public String toJson( Object value ) {
+        return this.toJson( this.adapters, this.gson, value );
+    }
+
+    @Override
+    public String toTypedJson( Object value ) {
+        return this.toJson( this.complexKeyAdapters, this.complexKeyGson, value );
+    }
+
+    @Override
+    public JsonElement toJsonTree( Object value ) {
+        return this.gson.toJsonTree( value );
+    }
+
+    @Override
+    public <T> T fromJsonTree( JsonElement element, Type type ) {
+        return this.gson.fromJson( element, type );
+    }
+
+    @SuppressWarnings( "unchecked" )
+    private String toJson( Map<Class<?>, TypeAdapter<?>> cache, Gson gson, Object value ) {
+        if( value == null ) {
+            return gson.toJson( null );
+        }
+
+        TypeAdapter<Object> adapter = (TypeAdapter<Object>) this.adapter( cache, gson, value.getClass() );
+        StringWriter out = new StringWriter();
+        try {
+            JsonWriter writer = gson.newJsonWriter( out );
+            // Matches Gson.toJson, both gson instances escape html characters
+            writer.setLenient( true );
+            writer.setHtmlSafe( true );
+            adapter.write( writer, value );
+        } catch( IOException e ) {
+            throw new JsonIOException( e );
+        } catch( IllegalArgumentException e ) {
+            throw new JsonSyntaxException( e );
+        }
+        return out.toString();
+    }
+
+    private TypeAdapter<?> adapter( Map<Class<?>, TypeAdapter<?>> cache, Gson gson, Class<?> type ) {
+        TypeAdapter<?> adapter = cache.get( type );
+        if( adapter == null ) {
+            adapter = gson.getAdapter( type );
+            cache.put( type, adapter );
+        }
+        return adapter;
+    }
+}
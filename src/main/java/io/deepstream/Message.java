@@ -1,15 +1,30 @@
 package io.deepstream;
 
+import com.google.gson.JsonElement;
+
+import java.nio.charset.Charset;
+
 /**
  * Message is the internal representation of a message that is sent to received from a deepstream
  * server
+ *
+ * Received messages keep the bytes of their frame and the offsets of each field. A field is only decoded into
+ * a String the first time it is read, and large payloads can be parsed straight from the bytes using
+ * {@link Message#parseData(int, int, PayloadSerializer)}.
  */
 class Message {
-    final String raw;
-    final String[] data;
+
+    private static final Charset UTF8 = Charset.forName( "UTF-8" );
+    private static final int FIRST_DATA_FIELD = 2;
+
     final Actions action;
     final Topic topic;
 
+    private final byte[] frame;
+    private final int[] fieldStarts;
+    private final String[] data;
+    private String raw;
+
     /**
      * @param raw The raw data recieved
      * @param topic The message topic
@@ -21,10 +36,92 @@ class Message {
         this.topic = topic;
         this.action = action;
         this.data = data;
+        this.frame = null;
+        this.fieldStarts = null;
+    }
+
+    /**
+     * @param frame The bytes of the message, excluding the message separator. The message takes ownership of the array
+     * @param fieldStarts The index of the first byte of every field, followed by the index one past the
+     *                    separator that ends the last field
+     * @param topic The message topic
+     * @param action The message action
+     */
+    Message( byte[] frame, int[] fieldStarts, Topic topic, Actions action ) {
+        this.frame = frame;
+        this.fieldStarts = fieldStarts;
+        this.topic = topic;
+        this.action = action;
+        this.data = new String[ fieldStarts.length - 1 - FIRST_DATA_FIELD ];
+    }
+
+    /**
+     * @return The amount of data fields, excluding the topic and action
+     */
+    int dataLength() {
+        return this.data.length;
+    }
+
+    /**
+     * @param index The index of the data field, excluding the topic and action
+     * @return The field as a String
+     */
+    String data( int index ) {
+        String field = this.data[ index ];
+        if( field == null && this.frame != null ) {
+            int fieldIndex = index + FIRST_DATA_FIELD;
+            field = new String( this.frame, this.fieldStarts[ fieldIndex ], this.fieldLength( fieldIndex ), UTF8 );
+            this.data[ index ] = field;
+        }
+        return field;
+    }
+
+    /**
+     * @param index The index of the data field, excluding the topic and action
+     * @return The first character of the field, used to read the {@link Types} prefix of typed values without
+     * decoding the rest of the field, or 0 if the field is empty
+     */
+    char dataPrefix( int index ) {
+        if( this.frame == null || this.data[ index ] != null ) {
+            String field = this.data( index );
+            return field.isEmpty() ? 0 : field.charAt( 0 );
+        }
+        int fieldIndex = index + FIRST_DATA_FIELD;
+        return this.fieldLength( fieldIndex ) == 0 ? 0 : (char) ( this.frame[ this.fieldStarts[ fieldIndex ] ] & 0xff );
+    }
+
+    /**
+     * Parses a json field straight from the received bytes, without decoding it into a String first
+     *
+     * @param index The index of the data field, excluding the topic and action
+     * @param skip The amount of leading ascii characters to skip, such as the type prefix of typed values
+     * @param serializer The serializer to parse the json with
+     * @return The parsed json
+     */
+    JsonElement parseData( int index, int skip, PayloadSerializer serializer ) {
+        if( this.frame == null || this.data[ index ] != null ) {
+            return serializer.parse( this.data( index ).substring( skip ) );
+        }
+        int fieldIndex = index + FIRST_DATA_FIELD;
+        return serializer.parse( this.frame, this.fieldStarts[ fieldIndex ] + skip, this.fieldLength( fieldIndex ) - skip );
+    }
+
+    /**
+     * @return The message as it was received, excluding the message separator
+     */
+    String raw() {
+        if( this.raw == null && this.frame != null ) {
+            this.raw = new String( this.frame, UTF8 );
+        }
+        return this.raw;
     }
 
     @Override
     public String toString() {
-        return this.raw;
+        return this.raw();
+    }
+
+    private int fieldLength( int fieldIndex ) {
+        return this.fieldStarts[ fieldIndex + 1 ] - 1 - this.fieldStarts[ fieldIndex ];
     }
 }
@@ -1,40 +1,52 @@
 package io.deepstream;
 
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
-
 /**
  * Creates a deepstream message string, based on the
  * provided parameters
  */
 class MessageBuilder {
 
-    static private final String MPS = Character.toString( '\u001f' );
-    static private final String MS = Character.toString( '\u001e' );
+    static private final char MPS = '\u001f';
+    static private final char MS = '\u001e';
 
     public static String getMsg( Topic topic, Actions action, String name, String data ) {
-        return topic.toString() + MPS + action.toString() + MPS + name + MPS +  data + MS;
+        return start( topic, action, length( name ) + length( data ) + 2 )
+                .append( MPS ).append( name ).append( MPS ).append( data ).append( MS ).toString();
     }
 
     public static String getMsg( Topic topic, Actions action, String data ) {
-        return topic.toString() + MPS + action.toString() + MPS +  data + MS;
+        return start( topic, action, length( data ) + 1 )
+                .append( MPS ).append( data ).append( MS ).toString();
     }
 
     public static String getMsg( Topic topic, Actions action, String[] data ) {
-        return topic.toString() + MPS + action.toString() + MPS + join( data) + MS;
+        int length = 1;
+        for( String field : data ) {
+            length += length( field ) + 1;
+        }
+
+        StringBuilder sb = start( topic, action, length );
+        if( data.length == 0 ) {
+            sb.append( MPS );
+        }
+        for( String field : data ) {
+            sb.append( MPS ).append( field );
+        }
+        return sb.append( MS ).toString();
     }
 
     public static String getMsg( Topic topic, Actions action ) {
-        return topic.toString() + MPS + action.toString() + MS;
+        return start( topic, action, 0 ).append( MS ).toString();
     }
 
     /**
      * Converts a serializable value into its string-representation and adds
      * a flag that provides instructions on how to deserialize it.
      * @param value The value to serialised
+     * @param jsonCodec The codec used to serialize objects
      * @return string representation of the value
      */
-    public static String typed( Object value ) {
+    public static String typed( Object value, UtilJsonCodec jsonCodec ) {
         if( value instanceof String ) {
             return Types.STRING.toString() + value;
         }
@@ -52,28 +64,26 @@ class MessageBuilder {
             return Types.NULL.toString();
         }
         else {
-            Gson gson = new GsonBuilder().enableComplexMapKeySerialization().create();
-            return Types.OBJECT.toString() + gson.toJson( value );
+            return Types.OBJECT.toString() + jsonCodec.toTypedJson( value );
         }
     }
 
     /**
-     * Joins all the elements of the list together with the given sequence
+     * Creates a builder that is large enough for the whole message and appends the topic and action
      *
-     * @param list A list of messages
-     * @return A string representation of messages joined together
+     * @param topic The message topic
+     * @param action The message action
+     * @param length The length of everything that follows the action, excluding the message separator
+     * @return The builder containing TOPIC|ACTION
      */
-    private static String join(String[] list) {
+    private static StringBuilder start( Topic topic, Actions action, int length ) {
+        String topicString = topic.toString();
+        String actionString = action.toString();
+        return new StringBuilder( topicString.length() + actionString.length() + length + 2 )
+                .append( topicString ).append( MPS ).append( actionString );
+    }
 
-        StringBuilder sb = new StringBuilder();
-        for ( int i = 0; i < list.length; i++ ) {
-            if( i == list.length - 1 ) {
-                sb.append( list[ i ] );
-            } else {
-                sb.append( list[ i ] );
-                sb.append(MessageBuilder.MPS);
-            }
-        }
-        return sb.toString();
+    private static int length( String field ) {
+        return field == null ? 4 : field.length();
     }
-}
\ No newline at end of file
+}
@@ -1,8 +1,7 @@
 package io.deepstream;
 
-import com.google.gson.Gson;
-import com.google.gson.JsonElement;
 
+import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -13,8 +12,9 @@ import java.util.List;
  */
 class MessageParser {
 
-    static private final String MPS = Character.toString( '\u001f' );
-    static private final String MS = Character.toString( '\u001e' );
+    static private final byte MPS = 0x1f;
+    static private final byte MS = 0x1e;
+    static private final Charset UTF8 = Charset.forName( "UTF-8" );
 
      /**
      * Main interface method. Receives a raw message
@@ -24,13 +24,20 @@ class MessageParser {
      */
     static List<Message> parse( String message, DeepstreamClientAbstract client ) {
         List<Message> messages = new ArrayList<>();
-        String[] rawMessages = message.split( MS );
+        byte[] bytes = message.getBytes( UTF8 );
+        int messageStart = 0;
         Message parsedMessage;
-        for (String rawMessage : rawMessages) {
-            parsedMessage = parseMessage(rawMessage, client);
-            if (parsedMessage != null) {
-                messages.add(parsedMessage);
+        for( int i = 0; i <= bytes.length; i++ ) {
+            if( i < bytes.length && bytes[ i ] != MS ) {
+                continue;
             }
+            if( i > messageStart ) {
+                parsedMessage = parseMessage( bytes, messageStart, i - messageStart, client );
+                if (parsedMessage != null) {
+                    messages.add(parsedMessage);
+                }
+            }
+            messageStart = i + 1;
         }
         return messages;
     }
@@ -43,28 +50,71 @@ class MessageParser {
      * @return The {@link Message} object that represents the message string
      */
     static Message parseMessage( String message, DeepstreamClientAbstract client ) {
-        String[] parts = message.split( MPS );
+        byte[] bytes = message.getBytes( UTF8 );
+        return parseMessage( bytes, 0, bytes.length, client );
+    }
+
+    /**
+     * Parses an individual message straight from the bytes it was received as. Only the offsets of the
+     * fields are recorded, the fields themselves are decoded once they are read.
+     *
+     * @param buffer The buffer containing the message
+     * @param offset The index of the first byte of the message
+     * @param length The length of the message, excluding the message separator
+     * @param client The deepstream client to notify if errors occur
+     * @return The {@link Message} object that represents the message, or null if it is invalid
+     */
+    static Message parseMessage( byte[] buffer, int offset, int length, DeepstreamClientAbstract client ) {
+        byte[] frame = new byte[ length ];
+        System.arraycopy( buffer, offset, frame, 0, length );
+
+        int fieldCount = 1;
+        for( byte b : frame ) {
+            if( b == MPS ) {
+                fieldCount++;
+            }
+        }
+
+        int[] fieldStarts = new int[ fieldCount + 1 ];
+        int field = 1;
+        for( int i = 0; i < length; i++ ) {
+            if( frame[ i ] == MPS ) {
+                fieldStarts[ field++ ] = i + 1;
+            }
+        }
+        fieldStarts[ fieldCount ] = length + 1;
+
+        // Trailing empty fields are dropped, as String.split used to
+        while( fieldCount > 0 && fieldStarts[ fieldCount ] - fieldStarts[ fieldCount - 1 ] == 1 ) {
+            fieldCount--;
+        }
 
-        if( parts.length < 2 ) {
+        if( fieldCount < 2 ) {
             client.onError( null, Event.MESSAGE_PARSE_ERROR, "Insufficient message parts" );
             return null;
         }
 
-        if( Topic.getTopic( parts[ 0 ] ) == null ) {
-            client.onError( null, Event.MESSAGE_PARSE_ERROR, "Received message for unknown topic " + parts[ 0 ] );
+        int actionLength = fieldStarts[ 2 ] - 1 - fieldStarts[ 1 ];
+        Topic topic = Topic.getTopic( frame, 0, fieldStarts[ 1 ] - 1 );
+        if( topic == null ) {
+            client.onError( null, Event.MESSAGE_PARSE_ERROR, "Received message for unknown topic " + new String( frame, 0, fieldStarts[ 1 ] - 1, UTF8 ) );
             return null;
         }
 
-        if( Actions.getAction( parts[ 1 ] ) == null ) {
-            client.onError( null, Event.MESSAGE_PARSE_ERROR, "Unknown action " + parts[ 1 ] );
+        Actions action = Actions.getAction( frame, fieldStarts[ 1 ], actionLength );
+        if( action == null ) {
+            client.onError( null, Event.MESSAGE_PARSE_ERROR, "Unknown action " + new String( frame, fieldStarts[ 1 ], actionLength, UTF8 ) );
             return null;
         }
 
-        return new Message( message, Topic.getTopic( parts[ 0 ] ), Actions.getAction( parts[ 1 ] ), Arrays.copyOfRange( parts, 2, parts.length ) );
+        if( fieldCount + 1 < fieldStarts.length ) {
+            fieldStarts = Arrays.copyOf( fieldStarts, fieldCount + 1 );
+        }
+        return new Message( frame, fieldStarts, topic, action );
     }
 
     /**
-     * Deserializes values created by {@link MessageBuilder#typed(Object)} to
+     * Deserializes values created by {@link MessageBuilder#typed(Object, UtilJsonCodec)} to
      * their original format
      *
      * @param value The value to deserialise
@@ -91,7 +141,7 @@ class MessageParser {
             return false;
         }
         else if( Types.getType( type ) == Types.OBJECT ) {
-            return parseObject( value.substring( 1 ) );
+            return client.getJsonCodec().parse( value.substring( 1 ) );
         }
         else if( Types.getType( type ) == Types.UNDEFINED ) {
             // Undefined isn't a thing in Java..
@@ -101,7 +151,19 @@ class MessageParser {
         return null;
     }
 
-    static Object parseObject(String value) {
-        return new Gson().fromJson( value, JsonElement.class );
+    /**
+     * Deserializes a typed data field of a message. Objects are parsed straight from the
+     * received bytes, everything else is passed to {@link MessageParser#convertTyped(String, DeepstreamClientAbstract)}
+     *
+     * @param message The message containing the value
+     * @param index The index of the data field
+     * @param client The deepstream client to notify if errors occur
+     * @return The object the value represented
+     */
+    static Object convertTyped( Message message, int index, DeepstreamClientAbstract client ) {
+        if( Types.getType( message.dataPrefix( index ) ) == Types.OBJECT ) {
+            return client.getJsonCodec().parseTyped( message, index );
+        }
+        return convertTyped( message.data( index ), client );
     }
 }
\ No newline at end of file
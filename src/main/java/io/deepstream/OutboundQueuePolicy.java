@@ -0,0 +1,58 @@
+package io.deepstream;
+
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Decides what happens to a message that is sent while the outbound queue of the connection is full, which
+ * happens if messages are sent faster than the socket can write them
+ */
+public enum OutboundQueuePolicy {
+    /**
+     * The sending thread waits until the queue has space again. No messages are lost, but
+     * the thread can stall for as long as the network does
+     */
+    BLOCK("block"),
+    /**
+     * A {@link DeepstreamException} with the event {@link Event#OUTBOUND_QUEUE_FULL} is thrown
+     * to the sending thread and the message is discarded
+     */
+    FAIL("fail"),
+    /**
+     * The message is silently discarded
+     */
+    DROP("drop");
+
+    private static final Map<String, OutboundQueuePolicy> lookup = new HashMap<>();
+
+    static {
+        for (OutboundQueuePolicy s : EnumSet.allOf(OutboundQueuePolicy.class))
+            lookup.put(s.toString(), s);
+    }
+
+    private String policy;
+
+    OutboundQueuePolicy(String policy) {
+        this.policy = policy;
+    }
+
+    /**
+     * @param policy The name of the policy, e.g. "block"
+     * @return The policy
+     * @throws IllegalArgumentException Thrown if there is no policy of that name, so that a typo in the config
+     *                                  doesn't silently fall back to blocking
+     */
+    static OutboundQueuePolicy getOutboundQueuePolicy(String policy) {
+        OutboundQueuePolicy outboundQueuePolicy = lookup.get(policy);
+        if (outboundQueuePolicy == null) {
+            throw new IllegalArgumentException("Unknown outbound queue policy " + policy + ", expected block, fail or drop");
+        }
+        return outboundQueuePolicy;
+    }
+
+    @Override
+    public String toString() {
+        return this.policy;
+    }
+}
@@ -0,0 +1,62 @@
+package io.deepstream;
+
+import com.google.gson.JsonElement;
+
+import java.lang.reflect.Type;
+
+/**
+ * Converts the payloads of records, events and rpcs between json and java objects. The client uses
+ * {@link GsonPayloadSerializer} unless a different implementation is set using {@link ConfigOptions#PAYLOAD_SERIALIZER}.
+ *
+ * An implementation is shared by everything in a client, so it has to be thread safe. It is created using its
+ * public no argument constructor.
+ */
+public interface PayloadSerializer {
+
+    /**
+     * @param json The json to parse
+     * @return The parsed json, or null if the json is empty
+     */
+    JsonElement parse( String json );
+
+    /**
+     * Parses json straight from the bytes of a received message, without decoding them into a String first
+     *
+     * @param json The buffer containing the UTF-8 encoded json
+     * @param offset The index of the first byte of the json
+     * @param length The amount of bytes
+     * @return The parsed json, or null if the json is empty
+     */
+    JsonElement parse( byte[] json, int offset, int length );
+
+    /**
+     * Serializes record data
+     *
+     * @param value The value to serialize
+     * @return The value as json
+     */
+    String toJson( Object value );
+
+    /**
+     * Serializes objects that are sent as {@link Types#OBJECT}, which are the data of events and rpcs and the
+     * values of record patches
+     *
+     * @param value The value to serialize
+     * @return The value as json
+     */
+    String toTypedJson( Object value );
+
+    /**
+     * @param value The value to convert
+     * @return The value as a tree of {@link JsonElement}s
+     */
+    JsonElement toJsonTree( Object value );
+
+    /**
+     * @param element The json to convert
+     * @param type The type to convert it to
+     * @param <T> The type to convert it to
+     * @return The json converted to the type
+     */
+    <T> T fromJsonTree( JsonElement element, Type type );
+}
@@ -1,12 +1,13 @@
 package io.deepstream;
 
 
-import com.google.gson.Gson;
 import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
 import com.google.gson.JsonObject;
 
 import java.util.*;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 
 /**
@@ -20,21 +21,27 @@ public class Record {
     private final UtilAckTimeoutRegistry ackTimeoutRegistry;
     private final IConnection connection;
     private final DeepstreamClientAbstract client;
-    private final Gson gson;
-    private final UtilJSONPath path;
+    private final UtilJsonCodec jsonCodec;
     private final UtilEmitter subscribers;
+    private final UtilEmitter recordSubscribers;
+    private final UtilPathTrie subscribedPaths;
     private final ArrayList<RecordEventsListener> recordEventsListeners;
     private final ArrayList<Record.RecordDestroyPendingListener> recordDestroyPendingListeners;
     private final ArrayList<RecordReadyListener> onceRecordReadyListeners;
+    private final CopyOnWriteArrayList<RecordBinding<?>> bindings;
     private final String name;
     private final DeepstreamConfig deepstreamConfig;
-    private boolean isReady;
+    private volatile boolean isReady;
     private boolean isDestroyed;
     private int version;
     private int usages;
     private RecordMergeStrategy mergeStrategy;
     private RecordRemoteUpdateHandler recordRemoteUpdateHandler;
-    private JsonElement data;
+    /*
+     * Never changed in place, updates replace it with a copy that shares everything but the changed path. This
+     * lets snapshots and the old values kept by beginChange share it, and lets it be read from any thread.
+     */
+    private volatile JsonElement data;
     private boolean hasProvider;
 
     /**
@@ -53,16 +60,19 @@ public class Record {
         this.version = -1;
         this.connection = connection;
         this.client = client;
-        this.gson = new Gson();
+        this.jsonCodec = client.getJsonCodec();
         this.data = new JsonObject();
-        this.path = new UtilJSONPath( this.data );
-        this.subscribers = new UtilEmitter();
+        this.subscribedPaths = new UtilPathTrie();
+        this.subscribers = new UtilEmitter( this.subscribedPaths );
+        // Kept apart from the path subscriptions so that it isn't mistaken for a path in the data
+        this.recordSubscribers = new UtilEmitter();
         this.isReady = false;
         this.isDestroyed = false;
         this.hasProvider = false;
 
         this.recordEventsListeners = new ArrayList<>();
         this.onceRecordReadyListeners = new ArrayList<>();
+        this.bindings = new CopyOnWriteArrayList<>();
         this.recordDestroyPendingListeners = new ArrayList<>();
 
         this.utilResubscribeNotifier = new UtilResubscribeNotifier(client, new UtilResubscribeNotifier.UtilResubscribeListener() {
@@ -188,7 +198,7 @@ public class Record {
      * @return The record data as a JsonElement
      */
     public JsonElement get( String path ) {
-        return deepCopy( this.path.get( path ) );
+        return deepCopy( UtilJSONPath.get( this.data, path ) );
     }
 
     /**
@@ -203,6 +213,28 @@ public class Record {
         return deepCopy( this.data );
     }
 
+    /**
+     * Gets a read-only view of the record data. Unlike {@link Record#get()} nothing is copied, which makes it the
+     * cheaper choice for reading the data in callbacks that run on every update.
+     *
+     * @return The record data as it is now, later updates don't change it
+     */
+    public RecordSnapshot getSnapshot() {
+        return new RecordSnapshot( this.data );
+    }
+
+    /**
+     * Gets a read-only view of the value at a path, see {@link Record#get(String)} for the path syntax and
+     * {@link Record#getSnapshot()}
+     *
+     * @param path The path to read
+     * @return The value as it is now, or null if there is none
+     */
+    public RecordSnapshot getSnapshot( String path ) {
+        JsonElement value = UtilJSONPath.get( this.data, path );
+        return value == null ? null : new RecordSnapshot( value );
+    }
+
     /**
      * Set the value for the entire record<br/>
      * Make sure that the Object passed in can be serialised to a JsonElement, otherwise it will
@@ -282,7 +314,7 @@ public class Record {
     public Record subscribe( RecordChangedCallback recordChangedCallback, boolean triggerNow ) throws DeepstreamRecordDestroyedException {
         throwExceptionIfDestroyed( "subscribe" );
 
-        this.subscribers.on( ALL_EVENT, recordChangedCallback );
+        this.recordSubscribers.on( ALL_EVENT, recordChangedCallback );
 
         if( triggerNow ) {
             recordChangedCallback.onRecordChanged( this.name, this.get() );
@@ -300,7 +332,7 @@ public class Record {
      */
     public Record unsubscribe( RecordChangedCallback recordChangedCallback ) throws DeepstreamRecordDestroyedException {
         throwExceptionIfDestroyed( "unsubscribe" );
-        this.subscribers.off( ALL_EVENT, recordChangedCallback );
+        this.recordSubscribers.off( ALL_EVENT, recordChangedCallback );
         return this;
     }
 
@@ -317,6 +349,45 @@ public class Record {
         return this;
     }
 
+    /**
+     * Binds the record to an object of a class.
+     * @see Record#bind(Class, RecordBindingCallback)
+     */
+    public <T> RecordBinding<T> bind( Class<T> type ) throws DeepstreamRecordDestroyedException {
+        return bind( type, null );
+    }
+
+    /**
+     * Binds the record to an object of a class and keeps the object in sync with the record. Only the fields an
+     * update changes are converted again, which makes this the cheaper choice over {@link Record#get()} for records
+     * that are read as the same type on every update. See {@link RecordBinding} for the details.
+     *
+     * @param type The class to bind the record to
+     * @param callback The callback to notify whenever an update changed the object, or null
+     * @param <T> The class to bind the record to
+     * @return The binding, which stays in sync until {@link Record#unbind(RecordBinding)} is called
+     * @throws DeepstreamRecordDestroyedException Thrown if the record has been destroyed and can't perform more actions
+     */
+    public <T> RecordBinding<T> bind( Class<T> type, RecordBindingCallback<T> callback ) throws DeepstreamRecordDestroyedException {
+        throwExceptionIfDestroyed( "bind" );
+        RecordBinding<T> binding = new RecordBinding<>( this, type, this.jsonCodec, this.data, callback );
+        this.bindings.add( binding );
+        // Catch up with an update that arrived while the object was converted
+        binding.update( this.data );
+        return binding;
+    }
+
+    /**
+     * Stops keeping an object bound via {@link Record#bind(Class, RecordBindingCallback)} in sync with the record
+     *
+     * @param binding The binding to remove
+     * @return The record
+     */
+    public Record unbind( RecordBinding<?> binding ) {
+        this.bindings.remove( binding );
+        return this;
+    }
+
     /**
      * Discard the record. This should be called whenever you are done with the record retrieved by {@link RecordHandler#getRecord(String)}.
      * This does not guarantee that your subscriptions have been unsubscribed, so make sure to do that first!<br/>
@@ -336,7 +407,7 @@ public class Record {
                 @Override
                 public void onRecordReady(String recordName, Record record) {
                     ackTimeoutRegistry.add(Topic.RECORD, Actions.UNSUBSCRIBE, name, deepstreamConfig.getSubscriptionTimeout());
-                    connection.send( MessageBuilder.getMsg( Topic.RECORD, Actions.UNSUBSCRIBE, name ) );
+                    connection.sendMsg( Topic.RECORD, Actions.UNSUBSCRIBE, new String[] { name } );
 
                     for(RecordDestroyPendingListener recordDestroyPendingHandler: recordDestroyPendingListeners) {
                         recordDestroyPendingHandler.onDestroyPending( name );
@@ -363,7 +434,7 @@ public class Record {
             @Override
             public void onRecordReady(String recordName, Record record) {
                 ackTimeoutRegistry.add(Topic.RECORD, Actions.DELETE, name, Event.DELETE_TIMEOUT, deepstreamConfig.getSubscriptionTimeout());
-                connection.send( MessageBuilder.getMsg( Topic.RECORD, Actions.DELETE, name ) );
+                connection.sendMsg( Topic.RECORD, Actions.DELETE, new String[] { name } );
 
                 for(RecordDestroyPendingListener recordDestroyPendingHandler: recordDestroyPendingListeners) {
                     recordDestroyPendingHandler.onDestroyPending( name );
@@ -382,11 +453,13 @@ public class Record {
      * @return The record
      */
     Record whenReady(RecordReadyListener recordReadyListener) {
-        if( this.isReady ) {
-            recordReadyListener.onRecordReady( this.name, this );
-        } else {
-            this.onceRecordReadyListeners.add( recordReadyListener );
+        synchronized( this.onceRecordReadyListeners ) {
+            if( !this.isReady ) {
+                this.onceRecordReadyListeners.add( recordReadyListener );
+                return this;
+            }
         }
+        recordReadyListener.onRecordReady( this.name, this );
         return this;
     }
 
@@ -403,9 +476,9 @@ public class Record {
             applyUpdate( message );
         } else if (message.action == Actions.SUBSCRIPTION_HAS_PROVIDER) {
             updateHasProvider(message);
-        } else if( message.data[ 0 ].equals( Event.VERSION_EXISTS.toString() ) ) {
-            recoverRecord( Integer.parseInt( message.data[ 2 ] ), gson.fromJson( message.data[ 3 ], JsonElement.class ));
-        } else if( message.data[ 0 ].equals( Event.MESSAGE_DENIED.toString() ) ) {
+        } else if( message.data( 0 ).equals( Event.VERSION_EXISTS.toString() ) ) {
+            recoverRecord( Integer.parseInt( message.data( 2 ) ), jsonCodec.parse( message, 3 ));
+        } else if( message.data( 0 ).equals( Event.MESSAGE_DENIED.toString() ) ) {
            clearTimeouts();
         }
     }
@@ -419,7 +492,7 @@ public class Record {
     }
 
     private void updateHasProvider(Message message) {
-        this.hasProvider = (boolean) MessageParser.convertTyped(message.data[1], this.client);
+        this.hasProvider = (boolean) MessageParser.convertTyped(message.data( 1 ), this.client);
         for (RecordEventsListener recordEventsListener : this.recordEventsListeners) {
             recordEventsListener.onRecordHasProviderChanged(this.name, this.hasProvider);
         }
@@ -429,13 +502,13 @@ public class Record {
      * Apply the message received on the server on the record
      */
     private void applyUpdate(Message message) {
-        int newVersion = Integer.parseInt(message.data[1]);
+        int newVersion = Integer.parseInt(message.data( 1 ));
 
         JsonElement data;
         if( message.action == Actions.PATCH ) {
-            data = gson.toJsonTree( MessageParser.convertTyped( message.data[ 3 ], client ) );
+            data = jsonCodec.toJsonTree( MessageParser.convertTyped( message, 3, client ) );
         } else {
-            data = gson.fromJson( message.data[ 2 ], JsonElement.class );
+            data = jsonCodec.parse( message, 2 );
         }
 
 
@@ -445,7 +518,7 @@ public class Record {
                   Request a snapshot so that a merge can be done with the read reply which contains
                   the full state of the record
                  */
-                this.connection.send( MessageBuilder.getMsg( Topic.RECORD, Actions.SNAPSHOT, this.name ) );
+                this.connection.sendMsg( Topic.RECORD, Actions.SNAPSHOT, new String[] { this.name } );
             } else {
                 recoverRecord(newVersion, data);
             }
@@ -456,17 +529,18 @@ public class Record {
             this.recordRemoteUpdateHandler.beforeRecordUpdate();
         }
 
-        Map<String, JsonElement> oldValues = beginChange();
-
         this.version = newVersion;
         if( Actions.PATCH == message.action ) {
-            path.set( message.data[ 2 ], data );
+            JsonElement oldData = this.data;
+            Map<String, JsonElement> oldValues = beginChange( message.data( 2 ) );
+            this.data = UtilJSONPath.copyWith( this.data, message.data( 2 ), data );
+            completeChange( oldData, oldValues );
         } else {
+            JsonElement oldData = this.data;
             this.data = data;
-            this.path.setCoreElement( data );
+            completeChange( oldData );
         }
-
-        completeChange( oldValues );
+        updateBindings();
 
         if( this.recordRemoteUpdateHandler != null ) {
             this.recordRemoteUpdateHandler.afterRecordUpdate();
@@ -507,12 +581,16 @@ public class Record {
     }
 
     /**
-     * First of two steps that are called for incoming and outgoing updates.
-     * Saves the current value of all paths the app is subscribed to.
+     * First of two steps that are called for incoming and outgoing updates that only change a single path.
+     * Saves the current value of the paths the app is subscribed to that the change can affect, which are the
+     * path itself and the paths above and below it.
+     * Updates that replace the whole record skip this step and pass the old data to
+     * {@link Record#completeChange(JsonElement)} instead.
+     * @param changedPath The path that changes
      * @return The record
      */
-    private Map<String,JsonElement> beginChange() {
-        Set<String> paths = this.subscribers.getEvents();
+    private Map<String,JsonElement> beginChange( String changedPath ) {
+        Set<String> paths = this.subscribers.getEvents( changedPath );
 
         if( paths.isEmpty() ) {
             return null;
@@ -520,14 +598,10 @@ public class Record {
 
         Map<String,JsonElement> oldValues = new HashMap<>();
 
-        if( paths.contains( ALL_EVENT ) ) {
-            oldValues.put( ALL_EVENT, this.get() );
-        }
-
+        // The data is never changed in place, so the old values can be kept without copying them
+        JsonElement data = this.data;
         for( String path : paths ) {
-            if( !path.equals( ALL_EVENT ) ) {
-                oldValues.put( path, this.get( path ) );
-            }
+            oldValues.put( path, UtilJSONPath.get( data, path ) );
         }
 
         return oldValues;
@@ -538,35 +612,72 @@ public class Record {
      * Compares the new values for every path with the previously stored ones and
      * updates the subscribers if the value has changed
      *
+     * @param oldData The data before the update, for the whole record subscribers
      * @param oldValues The previous paths and values
      */
-    private void completeChange(Map<String,JsonElement> oldValues) {
-        List<Object> listeners;
-
+    private void completeChange( JsonElement oldData, Map<String,JsonElement> oldValues ) {
         JsonElement oldValue, newValue;
 
-        if( oldValues == null || oldValues.isEmpty() ) {
+        if( !this.recordSubscribers.getEvents().isEmpty() && !oldData.equals( this.data ) ) {
+            notifyRecordChanged();
+        }
+
+        if( oldValues == null ) {
             return;
         }
 
-        oldValue = oldValues.remove( ALL_EVENT );
-        if( oldValue != null && !oldValue.equals( this.data ) ) {
-            listeners = this.subscribers.listeners( ALL_EVENT );
-            for( Object listener : listeners ) {
-                ((RecordChangedCallback) listener).onRecordChanged( this.name, this.get() );
+        for( String key : oldValues.keySet() ) {
+            oldValue = orNull( oldValues.get( key ) );
+            newValue = orNull( UtilJSONPath.get( this.data, key ) );
+            // Paths the update didn't touch still point to the same json, which equals compares first
+            if( !oldValue.equals( newValue ) ) {
+                notifyPathChanged( key, newValue );
             }
         }
+    }
 
-        for( String key : oldValues.keySet() ) {
-            oldValue = oldValues.get( key );
-            newValue = this.get( key );
-            if( oldValue == null || !oldValue.equals( newValue ) ) {
-                listeners = this.subscribers.listeners( key );
-                for( Object listener : listeners ) {
-                    if( listener instanceof RecordPathChangedCallback ) {
-                        ((RecordPathChangedCallback) listener).onRecordPathChanged( this.name, key, newValue );
-                    }
-                }
+    /**
+     * Second step for updates that replace the whole record. Rather than looking up and comparing every path
+     * the app is subscribed to, the old and the new data are walked together once to find the paths that changed,
+     * see {@link UtilPathTrie#getChanged(JsonElement, JsonElement, Set)}.
+     *
+     * @param oldData The data before the update
+     */
+    private void completeChange( JsonElement oldData ) {
+        if( this.subscribers.getEvents().isEmpty() && this.recordSubscribers.getEvents().isEmpty() ) {
+            return;
+        }
+
+        Set<String> changedPaths = new HashSet<>();
+        if( this.subscribedPaths.getChanged( oldData, this.data, changedPaths ) && !this.recordSubscribers.getEvents().isEmpty() ) {
+            notifyRecordChanged();
+        }
+
+        for( String path : changedPaths ) {
+            notifyPathChanged( path, orNull( UtilJSONPath.get( this.data, path ) ) );
+        }
+    }
+
+    private void notifyRecordChanged() {
+        for( Object listener : this.recordSubscribers.listeners( ALL_EVENT ) ) {
+            ((RecordChangedCallback) listener).onRecordChanged( this.name, this.get() );
+        }
+    }
+
+    /**
+     * Brings the objects bound to the record up to date with its data
+     */
+    private void updateBindings() {
+        for( RecordBinding<?> binding : this.bindings ) {
+            binding.update( this.data );
+        }
+    }
+
+    private void notifyPathChanged( String path, JsonElement value ) {
+        value = deepCopy( value );
+        for( Object listener : this.subscribers.listeners( path ) ) {
+            if( listener instanceof RecordPathChangedCallback ) {
+                ((RecordPathChangedCallback) listener).onRecordPathChanged( this.name, path, value );
             }
         }
     }
@@ -586,7 +697,7 @@ public class Record {
      * @param message The ack {@link Message}
      */
     private void processAckMessage(Message message) {
-        Actions action = Actions.getAction( message.data[ 0 ] );
+        Actions action = Actions.getAction( message.data( 0 ) );
         this.ackTimeoutRegistry.clear( message );
 
         if( action.equals( Actions.DELETE ) ) {
@@ -610,11 +721,11 @@ public class Record {
     private void onRead( Message message ) {
         ackTimeoutRegistry.clear( message );
 
-        Map<String,JsonElement> oldValues = beginChange();
-        this.version = Integer.parseInt( message.data[ 1 ] );
-        this.data = gson.fromJson( message.data[ 2 ], JsonElement.class );
-        this.path.setCoreElement(this.data);
-        completeChange( oldValues );
+        JsonElement oldData = this.data;
+        this.version = Integer.parseInt( message.data( 1 ) );
+        this.data = jsonCodec.parse( message, 2 );
+        completeChange( oldData );
+        updateBindings();
         setReady();
     }
 
@@ -623,12 +734,17 @@ public class Record {
      * and emits the ready event
      */
     private void setReady() {
-        this.isReady = true;
+        ArrayList<RecordReadyListener> readyListeners;
+        // Listeners can be added from any thread while the record becomes ready
+        synchronized( this.onceRecordReadyListeners ) {
+            this.isReady = true;
+            readyListeners = new ArrayList<>( this.onceRecordReadyListeners );
+            this.onceRecordReadyListeners.clear();
+        }
 
-        for(RecordReadyListener recordReadyListener: this.onceRecordReadyListeners) {
+        for(RecordReadyListener recordReadyListener: readyListeners) {
             recordReadyListener.onRecordReady( this.name, this );
         }
-        this.onceRecordReadyListeners.clear();
     }
 
     /**
@@ -637,7 +753,7 @@ public class Record {
      */
     private void sendRead() {
         if( this.client.getConnectionState() == ConnectionState.OPEN ) {
-            this.connection.send( MessageBuilder.getMsg( Topic.RECORD, Actions.CREATEORREAD, this.name ) );
+            this.connection.sendMsg( Topic.RECORD, Actions.CREATEORREAD, new String[] { this.name } );
         }
     }
 
@@ -651,7 +767,7 @@ public class Record {
             this.connection.sendMsg( Topic.RECORD, Actions.UPDATE, new String[] {
                     this.name,
                     String.valueOf( this.version ),
-                    gson.toJson( value )
+                    jsonCodec.toJson( value )
             });
         }
         else {
@@ -659,7 +775,7 @@ public class Record {
                     this.name,
                     String.valueOf( this.version ),
                     key,
-                    MessageBuilder.typed( value )
+                    MessageBuilder.typed( value, jsonCodec )
             });
         }
     }
@@ -675,12 +791,16 @@ public class Record {
         this.isDestroyed = true;
     }
 
+    private static JsonElement orNull( JsonElement element ) {
+        return element == null ? JsonNull.INSTANCE : element;
+    }
+
     /**
      * Generate a deep copy of the object to prevent user to modify record data directly
      */
     private JsonElement deepCopy(JsonElement element) {
         try {
-            return gson.fromJson(gson.toJson(element, JsonElement.class), JsonElement.class);
+            return jsonCodec.deepCopy(element);
         } catch (Exception e) {
             e.printStackTrace();
             return null;
@@ -691,7 +811,7 @@ public class Record {
      * Generate a deep copy of the object and cast it to a class of any type, used by {@link io.deepstream.List}
      */
     private <T> T deepCopy(JsonElement element, Class<T> type) {
-        return gson.fromJson(gson.toJson(element, JsonElement.class), type);
+        return jsonCodec.fromJsonTree(element, type);
     }
 
     /**
@@ -701,8 +821,8 @@ public class Record {
     private Record set(String path, Object value, boolean force ) throws DeepstreamRecordDestroyedException {
         throwExceptionIfDestroyed( "set" );
 
-        JsonElement element = gson.toJsonTree( value );
-        JsonElement object = this.path.get( path );
+        JsonElement element = jsonCodec.toJsonTree( value );
+        JsonElement object = UtilJSONPath.get( this.data, path );
 
         if( !force ) {
             if( object != null && object.equals( value ) ) {
@@ -712,12 +832,17 @@ public class Record {
             }
         }
 
-        Map<String,JsonElement> oldValues = beginChange();
+        JsonElement oldData = this.data;
+        Map<String,JsonElement> oldValues = path == null ? null : beginChange( path );
         this.version++;
-        this.path.set( path, element );
-        this.data = this.path.getCoreElement();
+        this.data = UtilJSONPath.copyWith( this.data, path, element );
         sendUpdate( path, value );
-        completeChange( oldValues );
+        if( path == null ) {
+            completeChange( oldData );
+        } else {
+            completeChange( oldData, oldValues );
+        }
+        updateBindings();
 
         return this;
     }
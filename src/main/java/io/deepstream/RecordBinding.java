@@ -0,0 +1,92 @@
+package io.deepstream;
+
+import com.google.gson.JsonElement;
+
+/**
+ * A typed object that is kept in sync with the data of a record, returned by {@link Record#bind(Class)} and
+ * {@link Record#bind(Class, RecordBindingCallback)}.<br/>
+ *
+ * The object is converted from the record once. After that each update only converts the fields whose key it
+ * changed, so a patch to "address.city" only converts the address, and the same instance is updated for as long as
+ * the binding lasts. Unlike {@link Record#get()} this doesn't copy or convert the whole record on every update.<br/>
+ *
+ * The object is changed in place, by the thread that delivers the record's updates. Callbacks can read it
+ * freely, anywhere else reads should synchronize on the binding.
+ *
+ * @param <T> The type the record is bound to
+ */
+public final class RecordBinding<T> {
+
+    private final Record record;
+    private final Class<T> type;
+    private final UtilBindingAdapter adapter;
+    private final UtilJsonCodec jsonCodec;
+    private final RecordBindingCallback<T> callback;
+    private JsonElement data;
+    private T value;
+
+    /**
+     * @param record The record to bind
+     * @param type The class to bind it to
+     * @param jsonCodec The codec to convert the data with
+     * @param data The current data of the record
+     * @param callback The callback to notify of changes, or null
+     */
+    RecordBinding( Record record, Class<T> type, UtilJsonCodec jsonCodec, JsonElement data, RecordBindingCallback<T> callback ) {
+        this.record = record;
+        this.type = type;
+        this.adapter = UtilBindingAdapter.forType( type );
+        this.jsonCodec = jsonCodec;
+        this.callback = callback;
+        this.data = data;
+        this.value = jsonCodec.fromJsonTree( data, type );
+    }
+
+    /**
+     * @return The bound object, the same instance for as long as the data of the record is an object
+     */
+    public synchronized T get() {
+        return this.value;
+    }
+
+    /**
+     * Stops updating the object, the same as {@link Record#unbind(RecordBinding)}
+     */
+    public void unbind() {
+        this.record.unbind( this );
+    }
+
+    /**
+     * Applies the changes between the data the object was last updated with and the new data
+     *
+     * @param data The new data of the record
+     */
+    void update( JsonElement data ) {
+        T value;
+        synchronized( this ) {
+            if( data == this.data ) {
+                return;
+            }
+
+            boolean changed;
+            if( data != null && data.isJsonObject() && this.value != null ) {
+                changed = this.adapter.update( this.value, this.data, data.getAsJsonObject(), this.jsonCodec );
+            } else {
+                // Nothing to update field by field, e.g. the data of a list
+                changed = this.data == null || !this.data.equals( data );
+                if( changed ) {
+                    this.value = this.jsonCodec.fromJsonTree( data, this.type );
+                }
+            }
+            this.data = data;
+            if( !changed ) {
+                return;
+            }
+            value = this.value;
+        }
+
+        if( this.callback != null ) {
+            this.callback.onRecordBindingChanged( this.record.name(), value );
+        }
+    }
+}
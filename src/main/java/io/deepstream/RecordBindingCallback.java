@@ -0,0 +1,16 @@
+package io.deepstream;
+
+/**
+ * Typed record data changed listener, used to be notified whenever the object bound via
+ * {@link Record#bind(Class, RecordBindingCallback)} has been updated.
+ *
+ * @param <T> The type the record is bound to
+ */
+public interface RecordBindingCallback<T> {
+    /**
+     * Called after an update to the record changed one or more fields of the bound object
+     * @param recordName The name of the record that changed
+     * @param value The bound object, the same instance on every call
+     */
+    void onRecordBindingChanged( String recordName, T value );
+}
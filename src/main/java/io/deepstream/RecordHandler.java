@@ -5,7 +5,8 @@ import com.google.gson.JsonElement;
 
 import java.util.HashMap;
 import java.util.Map;
-import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
 
 /**
  * The getters for data-sync, such as {@link RecordHandler#getRecord(String)},
@@ -38,9 +39,10 @@ public class RecordHandler {
         this.client = client;
         recordHandlerListeners = new RecordHandlerListeners();
 
-        records = new HashMap<>();
-        lists = new HashMap<>();
-        listeners = new HashMap<>();
+        // Messages for different records are handled in parallel
+        records = new ConcurrentHashMap<>();
+        lists = new ConcurrentHashMap<>();
+        listeners = new ConcurrentHashMap<>();
 
         hasRegistry = new UtilSingleNotifier(client, connection, Topic.RECORD, Actions.HAS, deepstreamConfig.getRecordReadTimeout());
         snapshotRegistry = new UtilSingleNotifier(client, connection, Topic.RECORD, Actions.SNAPSHOT, deepstreamConfig.getRecordReadTimeout());
@@ -53,34 +55,61 @@ public class RecordHandler {
      * @return Record The record
      */
     public Record getRecord( String name ) {
+        Record record = this.acquireRecord( name );
+        try {
+            this.whenReady( record ).await();
+        } catch( ExecutionException e ) {
+            // Records never fail to become ready
+        }
+        return record;
+    }
+
+    /**
+     * The non-blocking version of {@link RecordHandler#getRecord(String)}. The future completes once the
+     * record is loaded from the server.
+     * @param name The name of the record to get
+     * @return A future that completes with the ready record
+     */
+    public DeepstreamFuture<Record> getRecordAsync( String name ) {
+        return this.whenReady( this.acquireRecord( name ) );
+    }
+
+    /**
+     * Returns an existing record or creates a new one, and increments its usage count
+     * @param name The name of the record to get
+     * @return The record, which might not be ready yet
+     */
+    Record acquireRecord( String name ) {
         Record record = records.get( name );
         if( record == null ) {
             synchronized (this) {
-                record = new Record(name, new HashMap(), connection, deepstreamConfig, client);
-                records.put(name, record);
-                record.addRecordEventsListener(recordHandlerListeners);
-                record.addRecordDestroyPendingListener(recordHandlerListeners);
-                record.start();
+                record = records.get( name );
+                if( record == null ) {
+                    record = new Record(name, new HashMap(), connection, deepstreamConfig, client);
+                    records.put(name, record);
+                    record.addRecordEventsListener(recordHandlerListeners);
+                    record.addRecordDestroyPendingListener(recordHandlerListeners);
+                    record.start();
+                }
             }
         }
         record.incrementUsage();
+        return record;
+    }
 
-        if (!record.isReady()) {
-            final CountDownLatch readyLatch = new CountDownLatch(1);
-            record.whenReady(new Record.RecordReadyListener() {
-                @Override
-                public void onRecordReady(String recordName, Record record) {
-                    readyLatch.countDown();
-                }
-            });
-            try {
-                readyLatch.await();
-            } catch (InterruptedException e) {
-                e.printStackTrace();
+    /**
+     * @param record The record to wait for
+     * @return A future that completes once the record is ready
+     */
+    DeepstreamFuture<Record> whenReady( Record record ) {
+        final DeepstreamFuture<Record> future = new DeepstreamFuture<>();
+        record.whenReady(new Record.RecordReadyListener() {
+            @Override
+            public void onRecordReady(String recordName, Record record) {
+                future.complete( record );
             }
-        }
-
-        return record;
+        });
+        return future;
     }
 
     /**
@@ -161,42 +190,41 @@ public class RecordHandler {
      * @param name The name of the record which state to retrieve
      */
     public JsonElement snapshot(String name) throws DeepstreamError {
-        final JsonElement[] data = new JsonElement[1];
-        final DeepstreamError[] deepstreamException = new DeepstreamError[1];
+        try {
+            return snapshotAsync( name ).await();
+        } catch( ExecutionException e ) {
+            throw (DeepstreamError) e.getCause();
+        }
+    }
 
+    /**
+     * The non-blocking version of {@link RecordHandler#snapshot(String)}. If the record does not exist the
+     * future fails with a {@link DeepstreamError}
+     *
+     * @param name The name of the record which state to retrieve
+     * @return A future that completes with the record data
+     */
+    public DeepstreamFuture<JsonElement> snapshotAsync(String name) {
+        final DeepstreamFuture<JsonElement> future = new DeepstreamFuture<>();
         final Record record = records.get(name);
 
         if( record != null && record.isReady() ) {
-            data[0] = record.get();
+            future.complete( record.get() );
         } else {
-            final CountDownLatch snapshotLatch = new CountDownLatch(1);
-
             snapshotRegistry.request(name, new UtilSingleNotifier.UtilSingleNotifierCallback() {
                 @Override
                 public void onSingleNotifierError(String name, DeepstreamError error) {
-                    deepstreamException[0] = error;
-                    snapshotLatch.countDown();
+                    future.fail( error );
                 }
 
                 @Override
                 public void onSingleNotifierResponse(String name, Object recordData) {
-                    data[0] = (JsonElement) recordData;
-                    snapshotLatch.countDown();
+                    future.complete( (JsonElement) recordData );
                 }
             });
-
-            try {
-                snapshotLatch.await();
-            } catch (InterruptedException e) {
-                e.printStackTrace();
-            }
-        }
-
-        if (deepstreamException[0] != null) {
-            throw deepstreamException[0];
         }
 
-        return data[0];
+        return future;
     }
 
     /**
@@ -208,41 +236,42 @@ public class RecordHandler {
      * @param name The name of the record to check
      */
     public boolean has(String name) throws DeepstreamError {
-        final DeepstreamError[] deepstreamException = new DeepstreamError[1];
-        final boolean[] hasRecord = new boolean[1];
+        try {
+            Boolean hasRecord = hasAsync( name ).await();
+            return hasRecord != null && hasRecord;
+        } catch( ExecutionException e ) {
+            throw (DeepstreamError) e.getCause();
+        }
+    }
+
+    /**
+     * The non-blocking version of {@link RecordHandler#has(String)}. If the request fails the
+     * future fails with a {@link DeepstreamError}
+     *
+     * @param name The name of the record to check
+     * @return A future that completes with whether the record exists
+     */
+    public DeepstreamFuture<Boolean> hasAsync(String name) {
+        final DeepstreamFuture<Boolean> future = new DeepstreamFuture<>();
 
         Record record = records.get( name );
         if( record != null && record.isReady() ) {
-            hasRecord[0] = true;
+            future.complete( true );
         } else {
-            final CountDownLatch hasLatch = new CountDownLatch(1);
-
             hasRegistry.request(name, new UtilSingleNotifier.UtilSingleNotifierCallback() {
                 @Override
                 public void onSingleNotifierError(String name, DeepstreamError error) {
-                    deepstreamException[0] = error;
-                    hasLatch.countDown();
+                    future.fail( error );
                 }
 
                 @Override
                 public void onSingleNotifierResponse(String name, Object data) {
-                    hasRecord[0] = (boolean) data;
-                    hasLatch.countDown();
+                    future.complete( (Boolean) data );
                 }
             });
-
-            try {
-                hasLatch.await();
-            } catch (InterruptedException e) {
-                e.printStackTrace();
-            }
         }
 
-        if (deepstreamException[0] != null) {
-            throw deepstreamException[0];
-        }
-
-        return hasRecord[0];
+        return future;
     }
 
 
@@ -255,35 +284,33 @@ public class RecordHandler {
         String recordName;
 
         if( isUnhandledError( message ) ) {
-            client.onError( Topic.RECORD, Event.getEvent( message.data[ 0 ] ), message.data[ 1 ] );
+            client.onError( Topic.RECORD, Event.getEvent( message.data( 0 ) ), message.data( 1 ) );
             return;
         }
 
-        if( message.action == Actions.ACK || message.action == Actions.ERROR) {
-            recordName = message.data[ 1 ];
+        recordName = getRecordName( message );
 
+        if( message.action == Actions.ACK || message.action == Actions.ERROR) {
             if( isDiscardAck( message ) ) {
                 //TODO: destroyEventEmitter.emit( "destroy_ack_" + recordName, message );
 
                 record = records.get( recordName );
-                if( Actions.getAction( message.data[ 0 ] ) == Actions.DELETE && record != null ) {
+                if( Actions.getAction( message.data( 0 ) ) == Actions.DELETE && record != null ) {
                     record.onMessage( message );
                 }
 
                 return;
             }
 
-            if( message.data[ 0 ].equals( Actions.SNAPSHOT.toString() ) ) {
-                snapshotRegistry.recieve(recordName, new DeepstreamError(message.data[2]), null);
+            if( message.data( 0 ).equals( Actions.SNAPSHOT.toString() ) ) {
+                snapshotRegistry.recieve(recordName, new DeepstreamError(message.data( 2 )), null);
                 return;
             }
 
-            if( message.data[ 0 ].equals(Actions.HAS.toString() ))  {
-                hasRegistry.recieve(recordName, new DeepstreamError(message.data[2]), null);
+            if( message.data( 0 ).equals(Actions.HAS.toString() ))  {
+                hasRegistry.recieve(recordName, new DeepstreamError(message.data( 2 )), null);
                 return;
             }
-        } else {
-            recordName = message.data[ 0 ];
         }
 
         record = records.get( recordName );
@@ -294,12 +321,12 @@ public class RecordHandler {
 
         if( message.action == Actions.READ && snapshotRegistry.hasRequest( recordName )) {
             processed = true;
-            snapshotRegistry.recieve( recordName, null, MessageParser.parseObject( message.data[ 2 ] ) );
+            snapshotRegistry.recieve( recordName, null, client.getJsonCodec().parse( message, 2 ) );
         }
 
         if( message.action == Actions.HAS && hasRegistry.hasRequest( recordName )) {
             processed = true;
-            hasRegistry.recieve( recordName, null, MessageParser.convertTyped( message.data[ 1 ], client ) );
+            hasRegistry.recieve( recordName, null, MessageParser.convertTyped( message.data( 1 ), client ) );
         }
 
         UtilListener listener = listeners.get( recordName );
@@ -313,6 +340,15 @@ public class RecordHandler {
         }
     }
 
+    /**
+     * @param message A message on the RECORD topic
+     * @return The name of the record, or the listen pattern, the message is for
+     */
+    static String getRecordName( Message message ) {
+        int index = message.action == Actions.ACK || message.action == Actions.ERROR ? 1 : 0;
+        return message.dataLength() > index ? message.data( index ) : null;
+    }
+
     /**
      * The following methods checks to prevent errors that occur when a record is discarded or deleted and
      * recreated before the discard / delete ack message is received.
@@ -321,12 +357,12 @@ public class RecordHandler {
      * between another clients creation and read message for the same record
      */
     private boolean isDiscardAck( Message message ) {
-        Event event = Event.getEvent( message.data[ 0 ] );
-        if( event == Event.MESSAGE_DENIED && Actions.getAction(message.data[ 2 ] ) == Actions.DELETE ) {
+        Event event = Event.getEvent( message.data( 0 ) );
+        if( event == Event.MESSAGE_DENIED && Actions.getAction(message.data( 2 ) ) == Actions.DELETE ) {
             return true;
         }
 
-        Actions action = Actions.getAction( message.data[ 0 ] );
+        Actions action = Actions.getAction( message.data( 0 ) );
 
         return action == Actions.DELETE || action == Actions.UNSUBSCRIBE;
     }
@@ -336,7 +372,7 @@ public class RecordHandler {
             return false;
         }
 
-        String errorType =  message.data[ 0 ];
+        String errorType =  message.data( 0 );
         return !(errorType.equals(Event.VERSION_EXISTS.toString())
                 || errorType.equals(Event.MESSAGE_DENIED.toString())
                 || errorType.equals(Actions.SNAPSHOT.toString())
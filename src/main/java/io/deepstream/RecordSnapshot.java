@@ -0,0 +1,174 @@
+package io.deepstream;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A read-only view of the data of a record, returned by {@link Record#getSnapshot()} and
+ * {@link Record#getSnapshot(String)}.<br/>
+ *
+ * The data of a record is never changed in place, every update replaces the objects on the way to the
+ * changed path and shares the rest. A snapshot can therefore be taken without copying anything and stays the
+ * same however the record changes afterwards. Use {@link RecordSnapshot#toJsonElement()} for a copy that can be
+ * modified.
+ */
+public final class RecordSnapshot {
+
+    private final JsonElement element;
+
+    /**
+     * @param element The json to view, which mustn't be changed anymore
+     */
+    RecordSnapshot( JsonElement element ) {
+        this.element = element == null ? JsonNull.INSTANCE : element;
+    }
+
+    /**
+     * Gets the value at a path, using the same syntax as {@link Record#get(String)}
+     *
+     * @param path The path, e.g. "pets[0].age"
+     * @return The value, or null if there is none
+     */
+    public RecordSnapshot get( String path ) {
+        if( !this.element.isJsonObject() && !this.element.isJsonArray() ) {
+            return null;
+        }
+        JsonElement value = UtilJSONPath.get( this.element, path );
+        return value == null ? null : new RecordSnapshot( value );
+    }
+
+    /**
+     * @param index The index of an entry, if the snapshot is an array
+     * @return The entry, or null if there is none
+     */
+    public RecordSnapshot get( int index ) {
+        if( !this.element.isJsonArray() || index < 0 || index >= this.element.getAsJsonArray().size() ) {
+            return null;
+        }
+        return new RecordSnapshot( this.element.getAsJsonArray().get( index ) );
+    }
+
+    /**
+     * @return The keys of an object, empty if the snapshot isn't one
+     */
+    public Set<String> keys() {
+        if( !this.element.isJsonObject() ) {
+            return Collections.emptySet();
+        }
+        Set<String> keys = new LinkedHashSet<>();
+        for( Map.Entry<String, JsonElement> entry : this.element.getAsJsonObject().entrySet() ) {
+            keys.add( entry.getKey() );
+        }
+        return Collections.unmodifiableSet( keys );
+    }
+
+    /**
+     * @return The amount of entries of an object or array, 0 otherwise
+     */
+    public int size() {
+        if( this.element.isJsonObject() ) {
+            return this.element.getAsJsonObject().entrySet().size();
+        }
+        if( this.element.isJsonArray() ) {
+            return this.element.getAsJsonArray().size();
+        }
+        return 0;
+    }
+
+    /**
+     * @return true if the snapshot is an object
+     */
+    public boolean isObject() {
+        return this.element.isJsonObject();
+    }
+
+    /**
+     * @return true if the snapshot is an array
+     */
+    public boolean isArray() {
+        return this.element.isJsonArray();
+    }
+
+    /**
+     * @return true if the snapshot is a string, number or boolean
+     */
+    public boolean isPrimitive() {
+        return this.element.isJsonPrimitive();
+    }
+
+    /**
+     * @return true if the snapshot is null
+     */
+    public boolean isNull() {
+        return this.element.isJsonNull();
+    }
+
+    /**
+     * @see JsonElement#getAsString()
+     */
+    public String getAsString() {
+        return this.element.getAsString();
+    }
+
+    /**
+     * @see JsonElement#getAsNumber()
+     */
+    public Number getAsNumber() {
+        return this.element.getAsNumber();
+    }
+
+    /**
+     * @see JsonElement#getAsInt()
+     */
+    public int getAsInt() {
+        return this.element.getAsInt();
+    }
+
+    /**
+     * @see JsonElement#getAsLong()
+     */
+    public long getAsLong() {
+        return this.element.getAsLong();
+    }
+
+    /**
+     * @see JsonElement#getAsDouble()
+     */
+    public double getAsDouble() {
+        return this.element.getAsDouble();
+    }
+
+    /**
+     * @see JsonElement#getAsBoolean()
+     */
+    public boolean getAsBoolean() {
+        return this.element.getAsBoolean();
+    }
+
+    /**
+     * @return A copy of the snapshot that can be modified freely
+     */
+    public JsonElement toJsonElement() {
+        return UtilJsonCodec.copyTree( this.element );
+    }
+
+    @Override
+    public boolean equals( Object other ) {
+        return other instanceof RecordSnapshot && this.element.equals( ( (RecordSnapshot) other ).element );
+    }
+
+    @Override
+    public int hashCode() {
+        return this.element.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return this.element.toString();
+    }
+}
@@ -63,6 +63,14 @@ class Rpc implements UtilTimeoutListener {
         this.clearTimeouts();
     }
 
+    /**
+     * Stops the timeouts of a request whose result is no longer needed, a response that arrives
+     * afterwards is still passed to the callback
+     */
+    void abandon() {
+        this.clearTimeouts();
+    }
+
     @Override
     public void onTimeout(Topic topic, Actions action, Event event, String name) {
         this.error( this.rpcName, event.toString() );
@@ -1,8 +1,10 @@
 package io.deepstream;
 
-import java.util.HashMap;
 import java.util.Map;
-import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * The entry point for rpcs, both requesting them via {@link RpcHandler#make(String, Object)} and
@@ -13,8 +15,14 @@ public class RpcHandler {
     private final IConnection connection;
     private final DeepstreamClientAbstract client;
     private final Map<String, RpcRequestedListener> providers;
+    private final Map<String, UtilProviderPool> providerPools;
+    private final Map<String, UtilRpcCache> caches;
+    private final Map<String, UtilRpcLimiter> limiters;
+    private final Map<String, UtilRpcHedger> hedgers;
     private final UtilAckTimeoutRegistry ackTimeoutRegistry;
     private final Map<String, Rpc> rpcs;
+    private final String correlationIdPrefix;
+    private final AtomicLong correlationIdCounter;
 
     /**
      * The main class for remote procedure calls
@@ -30,8 +38,14 @@ public class RpcHandler {
         this.deepstreamConfig = deepstreamConfig;
         this.connection = connection;
         this.client = client;
-        this.providers = new HashMap<>();
-        this.rpcs = new HashMap<>();
+        this.providers = new ConcurrentHashMap<>();
+        this.providerPools = new ConcurrentHashMap<>();
+        this.caches = new ConcurrentHashMap<>();
+        this.limiters = new ConcurrentHashMap<>();
+        this.hedgers = new ConcurrentHashMap<>();
+        this.rpcs = new ConcurrentHashMap<>();
+        this.correlationIdPrefix = client.getUid() + "-";
+        this.correlationIdCounter = new AtomicLong();
         this.ackTimeoutRegistry = client.getAckTimeoutRegistry();
         new UtilResubscribeNotifier(this.client, new UtilResubscribeNotifier.UtilResubscribeListener() {
             @Override
@@ -67,6 +81,31 @@ public class RpcHandler {
         }
     }
 
+    /**
+     * Registers a {@link RpcRequestedListener} as a RPC provider that processes requests on its own threads,
+     * see {@link RpcHandler#provide(String, RpcRequestedListener)}. The listener is called by up to concurrency
+     * threads at once, so it has to be thread safe.
+     * <br/>
+     * Up to queueSize requests wait for a free thread. Once the queue is full further requests are rejected straight
+     * away, which makes deepstream route them to another provider rather than letting them time out.
+     *
+     * @param rpcName The rpcName of the RPC to provide
+     * @param rpcRequestedListener The listener to invoke when requests are received
+     * @param concurrency The maximum amount of requests processed in parallel, at least 1
+     * @param queueSize The maximum amount of requests waiting to be processed
+     */
+    public void provide( String rpcName, RpcRequestedListener rpcRequestedListener, int concurrency, int queueSize ) {
+        if( this.providers.containsKey( rpcName ) ) {
+            throw new DeepstreamException( "RPC " + rpcName + " already registered" );
+        }
+
+        synchronized (this) {
+            this.providerPools.put(rpcName, new UtilProviderPool(rpcName, concurrency, queueSize));
+            this.providers.put(rpcName, rpcRequestedListener);
+            this.sendRPCSubscribe(rpcName);
+        }
+    }
+
     /**
      * Unregister a {@link RpcRequestedListener} registered via Rpc{@link #provide(String, RpcRequestedListener)}
      * @param rpcName The rpcName of the RPC to stop providing
@@ -74,6 +113,10 @@ public class RpcHandler {
     public void unprovide( String rpcName ) {
         if( this.providers.containsKey( rpcName ) ) {
             this.providers.remove( rpcName );
+            UtilProviderPool pool = this.providerPools.remove( rpcName );
+            if( pool != null ) {
+                pool.shutdown();
+            }
 
             this.ackTimeoutRegistry.add(Topic.RPC, Actions.UNSUBSCRIBE, rpcName, deepstreamConfig.getSubscriptionTimeout());
             this.connection.sendMsg(Topic.RPC, Actions.UNSUBSCRIBE, new String[]{rpcName});
@@ -88,37 +131,178 @@ public class RpcHandler {
      * @return Find out if the rpc succeeded via {@link RpcResult#success()} and associated data via {@link RpcResult#getData()}
      */
     public RpcResult make(String rpcName, Object data) {
-        final RpcResult[] rpcResponse = new RpcResult[1];
-        final CountDownLatch responseLatch = new CountDownLatch(1);
+        try {
+            return this.makeAsync(rpcName, data).await();
+        } catch (ExecutionException e) {
+            // makeAsync never fails, rpc errors are reported in the result
+            return new RpcResult(false, e.getCause());
+        }
+    }
 
+    /**
+     * The non-blocking version of {@link RpcHandler#make(String, Object)}. Errors are not reported by failing the
+     * future but, the same as with make, as an unsuccessful {@link RpcResult}
+     * @param rpcName The name of the rpc
+     * @param data Serializable data that will be passed to the provider
+     * @return A future that completes with the result of the rpc
+     */
+    public DeepstreamFuture<RpcResult> makeAsync(String rpcName, Object data) {
+        String typedData = MessageBuilder.typed(data, this.client.getJsonCodec());
+        UtilRpcCache cache = this.caches.get(rpcName);
+        if (cache == null) {
+            return this.send(rpcName, typedData, new DeepstreamFuture<RpcResult>());
+        }
 
-        synchronized (this) {
-            String uid = this.client.getUid();
-            this.rpcs.put(uid, new Rpc(this.deepstreamConfig, this.client, rpcName, uid, new RpcResponseCallback() {
-                @Override
-                public void onRpcSuccess(String rpcName, Object data) {
-                    rpcResponse[0] = new RpcResult(true, data);
-                    responseLatch.countDown();
-                }
+        DeepstreamFuture<RpcResult> request = new DeepstreamFuture<>();
+        DeepstreamFuture<RpcResult> existing = cache.getOrAdd(typedData, request);
+        if (existing != null) {
+            return existing.copy();
+        }
+        return this.send(rpcName, typedData, request).copy();
+    }
+
+    /**
+     * Caches the successful results of a rpc on this client. Calls with the same arguments are answered from the
+     * cache until the result is older than the ttl, and identical calls made while a request is in flight wait for
+     * that request rather than sending their own.
+     * <br/>
+     * Only enable this for rpcs whose result depends on nothing but their arguments. Cached results are shared
+     * between callers, so their data mustn't be modified.
+     *
+     * @param rpcName The name of the rpc
+     * @param ttl The time in milliseconds a result is cached for
+     * @param maxSize The maximum amount of cached results, the least recently used are removed first
+     */
+    public void enableCache(String rpcName, int ttl, int maxSize) {
+        this.caches.put(rpcName, new UtilRpcCache(ttl, maxSize));
+    }
+
+    /**
+     * Stops caching the results of a rpc and removes the cached results
+     * @param rpcName The name of the rpc
+     */
+    public void disableCache(String rpcName) {
+        UtilRpcCache cache = this.caches.remove(rpcName);
+        if (cache != null) {
+            cache.clear();
+        }
+    }
+
+    /**
+     * Limits the amount of requests for a rpc this client has in flight at once. The limit starts at initialLimit
+     * and adapts to the provider: it grows while responses arrive quickly and shrinks when they slow down or time
+     * out. Once the limit is reached further calls fail straight away with {@link Event#RPC_LIMIT_EXCEEDED} as the
+     * data of their {@link RpcResult}, rather than waiting for a provider that is already overloaded.
+     *
+     * @param rpcName The name of the rpc
+     * @param initialLimit The amount of requests allowed in flight to begin with, at least 1
+     * @param maxLimit The maximum amount of requests allowed in flight
+     */
+    public void enableConcurrencyLimit(String rpcName, int initialLimit, int maxLimit) {
+        this.limiters.put(rpcName, new UtilRpcLimiter(initialLimit, maxLimit));
+    }
+
+    /**
+     * Stops limiting the amount of requests for a rpc in flight
+     * @param rpcName The name of the rpc
+     */
+    public void disableConcurrencyLimit(String rpcName) {
+        this.limiters.remove(rpcName);
+    }
+
+    /**
+     * Hedges requests for a rpc: if no response arrived after the given percentile of the recent response times,
+     * a duplicate request is sent. Whichever answers first completes the rpc and the other answer is ignored, so a
+     * single slow provider doesn't hold up the rpc. Requests aren't hedged until a few responses have been seen.
+     * <br/>
+     * Only enable this for rpcs that are safe to run twice, the provider may well receive both requests.
+     *
+     * @param rpcName The name of the rpc
+     * @param percentile The percentile of recent response times to wait for before hedging, e.g. 95
+     */
+    public void enableHedging(String rpcName, double percentile) {
+        this.hedgers.put(rpcName, new UtilRpcHedger(percentile));
+    }
 
+    /**
+     * Stops hedging requests for a rpc
+     * @param rpcName The name of the rpc
+     */
+    public void disableHedging(String rpcName) {
+        this.hedgers.remove(rpcName);
+    }
+
+    /**
+     * @param rpcName The name of the rpc
+     * @return How often requests for the rpc were hedged, or null if hedging isn't enabled for it
+     */
+    public RpcHedgeMetrics getHedgeMetrics(String rpcName) {
+        UtilRpcHedger hedger = this.hedgers.get(rpcName);
+        return hedger == null ? null : hedger.getMetrics();
+    }
+
+    /**
+     * Sends a rpc request, and schedules its hedge if hedging is enabled
+     * @param rpcName The name of the rpc
+     * @param typedData The arguments of the rpc in their typed form
+     * @param future The future to complete once the rpc completes
+     * @return The future
+     */
+    private DeepstreamFuture<RpcResult> send(final String rpcName, final String typedData, final DeepstreamFuture<RpcResult> future) {
+        final UtilRpcLimiter limiter = this.limiters.get(rpcName);
+        if (limiter != null && !limiter.tryAcquire()) {
+            future.complete(new RpcResult(false, Event.RPC_LIMIT_EXCEEDED.toString()));
+            return future;
+        }
+        final UtilRpcHedger hedger = this.hedgers.get(rpcName);
+        final Request request = new Request(rpcName, future, limiter, hedger, false);
+        request.send(typedData);
+
+        long hedgeDelay = hedger == null ? -1 : hedger.onRequest();
+        if (hedgeDelay >= 0) {
+            this.ackTimeoutRegistry.schedule(new Runnable() {
                 @Override
-                public void onRpcError(String rpcName, Object error) {
-                    rpcResponse[0] = new RpcResult(false, error);
-                    responseLatch.countDown();
+                public void run() {
+                    // Sending can block, which the shared timer thread mustn't
+                    client.execute(new Runnable() {
+                        @Override
+                        public void run() {
+                            hedge(rpcName, typedData, request);
+                        }
+                    });
                 }
-            }));
+            }, hedgeDelay);
+        }
 
-            String typedData = MessageBuilder.typed(data);
-            this.connection.sendMsg(Topic.RPC, Actions.REQUEST, new String[]{rpcName, uid, typedData});
+        return future;
+    }
+
+    /**
+     * Sends a duplicate of a request that is still waiting for its response
+     */
+    private void hedge(String rpcName, String typedData, Request original) {
+        if (original.future.isDone() || (original.limiter != null && !original.limiter.tryAcquire())) {
+            return;
         }
+        Request hedge = new Request(rpcName, original.future, original.limiter, original.hedger, true);
+        hedge.other = original;
+        original.other = hedge;
+        original.hedger.onHedge();
+        hedge.send(typedData);
 
-        try {
-            responseLatch.await();
-        } catch (InterruptedException e) {
-            e.printStackTrace();
+        // The original may have completed while the hedge was being sent
+        if (original.future.isDone()) {
+            hedge.abandon();
         }
+    }
 
-        return rpcResponse[0];
+    /**
+     * Correlation ids only have to be unique for the rpcs this client has in flight, so rather than generating
+     * a random id for every rpc they are made up of the client uid followed by a counter
+     * @return A new correlation id
+     */
+    private String nextCorrelationId() {
+        return this.correlationIdPrefix + Long.toString(this.correlationIdCounter.incrementAndGet(), 36);
     }
 
     /**
@@ -138,7 +322,7 @@ public class RpcHandler {
         }
         // RPC subscription Acks
         if( message.action == Actions.ACK &&
-                ( message.data[ 0 ].equals( Actions.SUBSCRIBE.toString() ) || message.data[ 0 ].equals( Actions.UNSUBSCRIBE.toString() ) ) ) {
+                ( message.data( 0 ).equals( Actions.SUBSCRIBE.toString() ) || message.data( 0 ).equals( Actions.UNSUBSCRIBE.toString() ) ) ) {
             this.ackTimeoutRegistry.clear( message );
             return;
         }
@@ -148,17 +332,17 @@ public class RpcHandler {
          * order is different to ack and response messages
          */
         if( message.action == Actions.ERROR ) {
-            rpcName = message.data[ 1 ];
-            correlationId = message.data[ 2 ];
+            rpcName = message.data( 1 );
+            correlationId = message.data( 2 );
         } else {
-            rpcName = message.data[ 0 ];
-            correlationId = message.data[ 1 ];
+            rpcName = message.data( 0 );
+            correlationId = message.data( 1 );
         }
 
         /*
         * Retrieve the rpc object
         */
-        rpc = this.getRpc( correlationId, message.raw );
+        rpc = this.getRpc( correlationId, message.raw() );
         if( rpc == null ) {
             return;
         }
@@ -168,12 +352,10 @@ public class RpcHandler {
             rpc.ack();
         }
         else if( message.action == Actions.RESPONSE ) {
-            rpc.respond( rpcName, message.data[ 2 ] );
-            this.rpcs.remove( correlationId );
+            rpc.respond( rpcName, message.data( 2 ) );
         }
         else if( message.action == Actions.ERROR ) {
-            rpc.error( rpcName, message.data[ 0 ] );
-            this.rpcs.remove( correlationId );
+            rpc.error( rpcName, message.data( 0 ) );
         }
     }
 
@@ -195,24 +377,41 @@ public class RpcHandler {
      * Handles incoming rpc REQUEST messages. Instantiates a new response object
      * and invokes the provider callback or rejects the request if no rpc provider
      * is present (which shouldn't really happen, but might be the result of a race condition
-     * if this client sends a unprovide message whilst an incoming request is already in flight)
+     * if this client sends a unprovide message whilst an incoming request is already in flight). Providers with
+     * a pool reject requests when the pool is full
      */
     private void respondToRpc( Message message ) {
-        String rpcName = message.data[ 0 ];
-        String correlationId = message.data[ 1 ];
-        RpcResponse response;
+        final String rpcName = message.data( 0 );
+        String correlationId = message.data( 1 );
+        final RpcResponse response;
         Object data = null;
 
-        if( message.data[ 2 ] != null ) {
-            data = MessageParser.convertTyped( message.data[ 2 ], this.client );
+        final RpcRequestedListener callback = this.providers.get( rpcName );
+        UtilProviderPool pool = this.providerPools.get( rpcName );
+        if( callback == null || ( pool != null && !pool.tryReserve() ) ) {
+            this.connection.sendMsg( Topic.RPC, Actions.REJECTION, new String[] { rpcName, correlationId } );
+            return;
         }
 
-        RpcRequestedListener callback = this.providers.get( rpcName );
-        if( callback != null ) {
-            response = new RpcResponse(this.connection, rpcName, correlationId);
+        if( message.data( 2 ) != null ) {
+            data = MessageParser.convertTyped( message.data( 2 ), this.client );
+        }
+
+        response = new RpcResponse(this.connection, this.client.getJsonCodec(), rpcName, correlationId);
+        if( pool == null ) {
             callback.onRPCRequested(rpcName, data, response);
         } else {
-            this.connection.sendMsg( Topic.RPC, Actions.REJECTION, new String[] { rpcName, correlationId } );
+            final Object requestData = data;
+            boolean accepted = pool.execute(new Runnable() {
+                @Override
+                public void run() {
+                    callback.onRPCRequested(rpcName, requestData, response);
+                }
+            });
+            // The provider was removed after the room was reserved
+            if( !accepted ) {
+                response.reject();
+            }
         }
     }
 
@@ -226,6 +425,100 @@ public class RpcHandler {
         }
     }
 
+    /**
+     * A single request sent for a rpc. A hedged rpc has two requests that complete the same future, whichever
+     * finishes first wins and the other is abandoned
+     */
+    private class Request implements RpcResponseCallback {
+        private final String rpcName;
+        private final DeepstreamFuture<RpcResult> future;
+        private final UtilRpcLimiter limiter;
+        private final UtilRpcHedger hedger;
+        private final boolean isHedge;
+        private final AtomicBoolean finished;
+        private volatile Request other;
+        private String correlationId;
+        private Rpc rpc;
+        private long sentAt;
+
+        Request(String rpcName, DeepstreamFuture<RpcResult> future, UtilRpcLimiter limiter, UtilRpcHedger hedger, boolean isHedge) {
+            this.rpcName = rpcName;
+            this.future = future;
+            this.limiter = limiter;
+            this.hedger = hedger;
+            this.isHedge = isHedge;
+            this.finished = new AtomicBoolean();
+        }
+
+        void send(String typedData) {
+            this.correlationId = nextCorrelationId();
+            this.sentAt = System.nanoTime();
+            this.rpc = new Rpc(deepstreamConfig, client, this.rpcName, this.correlationId, this);
+            rpcs.put(this.correlationId, this.rpc);
+            connection.sendMsg(Topic.RPC, Actions.REQUEST, new String[]{this.rpcName, this.correlationId, typedData});
+        }
+
+        @Override
+        public void onRpcSuccess(String rpcName, Object data) {
+            rpcs.remove(this.correlationId);
+            if (!this.finished.compareAndSet(false, true)) {
+                return;
+            }
+            long latency = System.nanoTime() - this.sentAt;
+            if (this.limiter != null) {
+                this.limiter.onResponse(latency);
+            }
+            boolean won = this.future.complete(new RpcResult(true, data));
+            if (this.hedger != null) {
+                this.hedger.onResponse(latency, won && this.isHedge);
+            }
+            if (won && this.other != null) {
+                this.other.abandon();
+            }
+        }
+
+        @Override
+        public void onRpcError(String rpcName, Object error) {
+            // Also reached when the rpc times out
+            rpcs.remove(this.correlationId);
+            if (!this.finished.compareAndSet(false, true)) {
+                return;
+            }
+            if (this.limiter != null) {
+                if (Event.RESPONSE_TIMEOUT.toString().equals(error)) {
+                    this.limiter.onTimeout();
+                } else {
+                    this.limiter.release();
+                }
+            }
+            // A hedged rpc only fails once neither request can still succeed
+            Request other = this.other;
+            if (other == null || other.finished.get()) {
+                this.future.complete(new RpcResult(false, error));
+            }
+        }
+
+        /**
+         * Stops waiting for the response. The request stays known for as long as it could time out, so a late
+         * response is dropped quietly rather than reported as unsolicited
+         */
+        void abandon() {
+            if (!this.finished.compareAndSet(false, true)) {
+                return;
+            }
+            if (this.limiter != null) {
+                this.limiter.release();
+            }
+            this.rpc.abandon();
+            ackTimeoutRegistry.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    rpcs.remove(correlationId);
+                }
+            }, deepstreamConfig.getRpcResponseTimeout());
+        }
+    }
+
     /**
      * The callback for an rpc that has been requested by the client
      */
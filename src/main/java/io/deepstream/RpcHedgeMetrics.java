@@ -0,0 +1,51 @@
+package io.deepstream;
+
+/**
+ * A snapshot of how often requests for a rpc were hedged, see
+ * {@link RpcHandler#enableHedging(String, double)} and {@link RpcHandler#getHedgeMetrics(String)}
+ */
+public class RpcHedgeMetrics {
+
+    final private long requests;
+    final private long hedges;
+    final private long hedgeWins;
+
+    /**
+     * @param requests The amount of rpcs made
+     * @param hedges The amount of duplicate requests sent
+     * @param hedgeWins The amount of rpcs that were completed by the duplicate request
+     */
+    RpcHedgeMetrics(long requests, long hedges, long hedgeWins) {
+        this.requests = requests;
+        this.hedges = hedges;
+        this.hedgeWins = hedgeWins;
+    }
+
+    /**
+     * @return The amount of rpcs made since hedging was enabled, not counting the duplicate requests
+     */
+    public long getRequests() {
+        return this.requests;
+    }
+
+    /**
+     * @return The amount of duplicate requests sent because the response took too long
+     */
+    public long getHedges() {
+        return this.hedges;
+    }
+
+    /**
+     * @return The amount of rpcs whose result came from the duplicate request rather than the original one
+     */
+    public long getHedgeWins() {
+        return this.hedgeWins;
+    }
+
+    /**
+     * @return The share of rpcs that were hedged, between 0 and 1
+     */
+    public double getHedgeRate() {
+        return this.requests == 0 ? 0 : (double) this.hedges / this.requests;
+    }
+}
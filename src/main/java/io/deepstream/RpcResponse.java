@@ -7,6 +7,7 @@ package io.deepstream;
 public class RpcResponse {
 
     private final IConnection connection;
+    private final UtilJsonCodec jsonCodec;
     private final String name;
     private final String correlationId;
 
@@ -18,11 +19,13 @@ public class RpcResponse {
      * to respond to a request
      *
      * @param connection    the clients connection object
+     * @param jsonCodec     the clients json codec, used to serialize the response data
      * @param name          the name of the rpc
      * @param correlationId the correlationId for the RPC
      */
-    RpcResponse(IConnection connection, String name, String correlationId) {
+    RpcResponse(IConnection connection, UtilJsonCodec jsonCodec, String name, String correlationId) {
         this.connection = connection;
+        this.jsonCodec = jsonCodec;
         this.name = name;
         this.correlationId = correlationId;
         this.isAcknowledged = false;
@@ -69,7 +72,7 @@ public class RpcResponse {
         if (this.isComplete) {
             throw new DeepstreamException("Rpc " + this.name + " already completed");
         }
-        String typedData = MessageBuilder.typed(data);
+        String typedData = MessageBuilder.typed(data, this.jsonCodec);
         this.connection.sendMsg(Topic.RPC, Actions.RESPONSE, new String[]{
                 this.name, this.correlationId, typedData
         });
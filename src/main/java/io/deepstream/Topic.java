@@ -1,8 +1,6 @@
 package io.deepstream;
 
 import java.util.EnumSet;
-import java.util.HashMap;
-import java.util.Map;
 
 /**
  * Provides the different topics that deepstream connections use. A user of this sdk will only need to access these
@@ -35,11 +33,11 @@ public enum Topic {
      */
     RPC("P");
 
-    private static final Map<String,Topic> lookup  = new HashMap<String,Topic>();
+    private static final Topic[] lookup = new Topic[ 128 ];
 
     static {
         for( Topic s : EnumSet.allOf( Topic.class ) )
-            lookup.put( s.toString(), s);
+            lookup[ s.topic.charAt( 0 ) ] = s;
     }
 
     private String topic;
@@ -49,7 +47,29 @@ public enum Topic {
     }
 
     static Topic getTopic( String topic ) {
-        return lookup.get( topic );
+        if( topic.length() != 1 ) {
+            return null;
+        }
+        return getTopic( topic.charAt( 0 ) );
+    }
+
+    /**
+     * Decodes the topic straight from the bytes of a received message
+     *
+     * @param buffer The buffer containing the topic
+     * @param offset The index of the first byte of the topic
+     * @param length The length of the topic
+     * @return The topic, or null if it is unknown
+     */
+    static Topic getTopic( byte[] buffer, int offset, int length ) {
+        if( length != 1 ) {
+            return null;
+        }
+        return getTopic( (char) ( buffer[ offset ] & 0xff ) );
+    }
+
+    private static Topic getTopic( char topic ) {
+        return topic < lookup.length ? lookup[ topic ] : null;
     }
 
     @Override
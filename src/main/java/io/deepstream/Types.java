@@ -1,8 +1,6 @@
 package io.deepstream;
 
 import java.util.EnumSet;
-import java.util.HashMap;
-import java.util.Map;
 
 
 enum Types {
@@ -42,11 +40,11 @@ enum Types {
      */
     UNDEFINED( "U" );
 
-    private static final Map<String,Types> lookup  = new HashMap<>();
+    private static final Types[] lookup = new Types[ 128 ];
 
     static {
         for( Types s : EnumSet.allOf( Types.class ) )
-            lookup.put( s.toString(), s);
+            lookup[ s.type.charAt( 0 ) ] = s;
     }
 
     private String type;
@@ -56,7 +54,7 @@ enum Types {
     }
 
     static Types getType( char type ) {
-        return lookup.get( type + "" );
+        return type < lookup.length ? lookup[ type ] : null;
     }
 
     @Override
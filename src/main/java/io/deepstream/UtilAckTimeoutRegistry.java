@@ -1,27 +1,38 @@
 package io.deepstream;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
 
-class UtilAckTimeoutRegistry implements ConnectionStateListener, UtilTimeoutListener {
+class UtilAckTimeoutRegistry implements ConnectionStateListener {
 
-    private final Map<String, ScheduledFuture> register;
-    private final ScheduledExecutorService executor;
+    private final ConcurrentMap<Key, AckTimeout> register;
+    private final UtilTimingWheel wheel;
     private final DeepstreamClientAbstract client;
-    private final LinkedBlockingQueue<AckTimeout> ackTimers;
+    private final ArrayList<AckTimeout> ackTimers;
+    private final Map<Integer, Batch> openBatches;
+    private final ConcurrentLinkedQueue<AckTimeout> expired;
+    private final AtomicBoolean reporting;
 
     private ConnectionState state;
+    private long batchWindowNanos;
 
     /**
-     * The registry for all ack timeouts.
+     * The registry for all ack timeouts. The timeouts are kept on the {@link UtilTimingWheel} shared by
+     * all clients rather than on threads of their own.
      *
      * @param client The client it sends errors to
      */
     UtilAckTimeoutRegistry(DeepstreamClientAbstract client) {
         this.client = client;
         this.register = new ConcurrentHashMap<>();
-        this.ackTimers = new LinkedBlockingQueue<>();
-        this.executor = new ScheduledThreadPoolExecutor(5);
+        this.ackTimers = new ArrayList<>();
+        this.openBatches = new HashMap<>();
+        this.expired = new ConcurrentLinkedQueue<>();
+        this.reporting = new AtomicBoolean( false );
+        this.wheel = UtilTimingWheel.getShared();
 
         this.state = client.getConnectionState();
         this.client.addConnectionChangeListener( this );
@@ -36,16 +47,15 @@ class UtilAckTimeoutRegistry implements ConnectionStateListener, UtilTimeoutList
         Actions action;
         String name;
         if( message.action == Actions.ACK ) {
-            action = Actions.getAction( message.data[ 0 ] );
-            name = message.data[ 1 ];
+            action = Actions.getAction( message.data( 0 ) );
+            name = message.data( 1 );
         } else {
             action = message.action;
-            name = message.data[ 0 ];
+            name = message.data( 0 );
         }
 
-        String uniqueName = this.getUniqueName( message.topic, action, name );
-        if(!this.clear(uniqueName)) {
-            this.client.onError( message.topic, Event.UNSOLICITED_MESSAGE, message.raw );
+        if(!this.clear( new Key( message.topic, action, name ) )) {
+            this.client.onError( message.topic, Event.UNSOLICITED_MESSAGE, message.raw() );
         }
     }
 
@@ -54,8 +64,7 @@ class UtilAckTimeoutRegistry implements ConnectionStateListener, UtilTimeoutList
 
      */
     void clear(  Topic topic, Actions action, String name ) {
-        String uniqueName = this.getUniqueName( topic, action, name );
-        this.clear( uniqueName );
+        this.clear( new Key( topic, action, name ) );
     }
 
     /**
@@ -66,7 +75,7 @@ class UtilAckTimeoutRegistry implements ConnectionStateListener, UtilTimeoutList
      * @param action The action to be added to the register
      */
     void add( Topic topic, Actions action, String name, Event event, int timeout ) {
-        this.add( topic, action, name, event, this, timeout );
+        this.add( topic, action, name, event, null, timeout );
     }
 
     /**
@@ -77,7 +86,7 @@ class UtilAckTimeoutRegistry implements ConnectionStateListener, UtilTimeoutList
      * @param action The action to be added to the register
      */
     void add( Topic topic, Actions action, String name, int timeout ) {
-        this.add( topic, action, name, Event.ACK_TIMEOUT, this, timeout );
+        this.add( topic, action, name, Event.ACK_TIMEOUT, null, timeout );
     }
 
     /**
@@ -88,30 +97,59 @@ class UtilAckTimeoutRegistry implements ConnectionStateListener, UtilTimeoutList
      * @param action The action to be added to the register
      */
     void add(Topic topic, Actions action, String name, Event event, UtilTimeoutListener timeoutListener, int timeout ) {
-        String uniqueName = this.getUniqueName( topic, action, name );
-        this.clear( uniqueName );
+        Key key = new Key( topic, action, name );
+        AckTimeout task = new AckTimeout( key, event, timeoutListener, timeout );
 
-        addToRegister( topic, action, name, event, timeoutListener, timeout );
+        AckTimeout previous = this.register.put( key, task );
+        if( previous != null ) {
+            previous.cancel();
+        }
+        this.addToRegister( task );
+    }
+
+    /**
+     * Lets timeouts with the same duration that are added within the window share a single timer, which fires
+     * once the window has passed and reports only the timeouts that haven't been cleared by then. Subscribing to
+     * thousands of records then costs a timer per window rather than two per record, in exchange for timeouts
+     * firing up to the window late.
+     *
+     * @param batchWindow The window in milliseconds, 0 to give every timeout its own timer
+     */
+    synchronized void setBatchWindow( int batchWindow ) {
+        this.batchWindowNanos = TimeUnit.MILLISECONDS.toNanos( Math.max( 0, batchWindow ) );
+        this.openBatches.clear();
+    }
+
+    /**
+     * Runs a task after a delay on the shared timer. Unlike the ack timeouts it doesn't
+     * report an error to the client and isn't held back while the connection is down.
+     *
+     * @param task The task to run, it has to return quickly
+     * @param delay The delay in milliseconds
+     */
+    void schedule( Runnable task, long delay ) {
+        this.wheel.add( task, delay );
     }
 
     @Override
     public void connectionStateChanged(ConnectionState connectionState) {
+        synchronized( this ) {
+            this.state = connectionState;
+        }
         if( connectionState == ConnectionState.OPEN ) {
             scheduleAcks();
         }
-        this.state = connectionState;
     }
 
     /**
      * Clears the ack timeout for a message.
      *
-     * @param uniqueName The name of the message ( and possible action ) to remove the timeout for
+     * @param key The name of the message ( and possible action ) to remove the timeout for
      */
-    private boolean clear( String uniqueName ) {
-        ScheduledFuture scheduledFuture = register.get( uniqueName );
-        if( scheduledFuture != null ) {
-            scheduledFuture.cancel( false );
-            register.remove( uniqueName );
+    private boolean clear( Key key ) {
+        AckTimeout task = this.register.remove( key );
+        if( task != null ) {
+            task.cancel();
             return true;
         } else {
             return false;
@@ -119,76 +157,203 @@ class UtilAckTimeoutRegistry implements ConnectionStateListener, UtilTimeoutList
     }
 
     /**
-     * Adds the uniqueName to the register. Only schedules the timer if
-     * the connection state is OPEN, otherwise it adds to the queue of waiting acks.
+     * Only schedules the timer if the connection state is OPEN, otherwise it adds
+     * it to the queue of waiting acks.
      */
-    private void addToRegister(Topic topic, Actions action, String name, Event event, UtilTimeoutListener timeoutListener, int timeoutDuration ) {
-        AckTimeout task = new AckTimeout( topic, action, name, event, timeoutListener, timeoutDuration );
+    private void addToRegister( AckTimeout task ) {
+        synchronized( this ) {
+            if( this.state != ConnectionState.OPEN ) {
+                this.ackTimers.add( task );
+                return;
+            }
+        }
+        task.schedule();
+    }
 
-        if( this.state == ConnectionState.OPEN ) {
-            ScheduledFuture scheduledFuture = executor.schedule( task, timeoutDuration, TimeUnit.MILLISECONDS );
+    /**
+     * Adds a timeout to the batch that is currently open for its duration, or opens a new one
+     *
+     * @return true if it was added, false if batching is disabled
+     */
+    private synchronized boolean addToBatch( AckTimeout task ) {
+        if( this.batchWindowNanos == 0 ) {
+            return false;
+        }
 
-            String uniqueName = this.getUniqueName( topic, action, name );
-            register.put( uniqueName, scheduledFuture );
-        } else {
-            this.ackTimers.add( task );
+        long now = System.nanoTime();
+        Batch batch = this.openBatches.get( task.timeout );
+        if( batch == null || now - batch.openedAt >= this.batchWindowNanos ) {
+            batch = new Batch( now );
+            this.openBatches.put( task.timeout, batch );
+            this.wheel.add( batch, task.timeout + TimeUnit.NANOSECONDS.toMillis( this.batchWindowNanos ) );
+        }
+        synchronized( batch ) {
+            batch.timeouts.add( task );
         }
+        return true;
     }
 
-    @Override
-    public void onTimeout(Topic topic, Actions action, Event event, String name ) {
-        String uniqueName = this.getUniqueName( topic, action, name );
-        this.register.remove( uniqueName );
+    private void scheduleAcks() {
+        ArrayList<AckTimeout> tasks;
+        synchronized( this ) {
+            tasks = new ArrayList<>( this.ackTimers );
+            this.ackTimers.clear();
+        }
+        for( AckTimeout task : tasks ) {
+            task.schedule();
+        }
     }
 
-    private void scheduleAcks() {
-        AckTimeout task = null;
-        while( this.ackTimers.peek() != null ) {
-            try {
-                task = this.ackTimers.take();
-            } catch (InterruptedException e) {
-                e.printStackTrace();
+    /**
+     * Identifies a timeout by its topic, action and name without joining them into a string
+     */
+    private static final class Key {
+        private final Topic topic;
+        private final Actions action;
+        private final String name;
+        private final int hash;
+
+        Key( Topic topic, Actions action, String name ) {
+            this.topic = topic;
+            this.action = action;
+            this.name = name;
+            this.hash = 31 * ( 31 * ( topic == null ? 0 : topic.ordinal() + 1 ) + ( action == null ? 0 : action.ordinal() + 1 ) )
+                    + ( name == null ? 0 : name.hashCode() );
+        }
+
+        @Override
+        public boolean equals( Object other ) {
+            if( this == other ) {
+                return true;
             }
+            if( !( other instanceof Key ) ) {
+                return false;
+            }
+            Key key = (Key) other;
+            return this.topic == key.topic && this.action == key.action
+                    && ( this.name == null ? key.name == null : this.name.equals( key.name ) );
+        }
+
+        @Override
+        public int hashCode() {
+            return this.hash;
+        }
+    }
 
-            if( task != null ) {
-                this.executor.schedule( task, task.timeout, TimeUnit.MICROSECONDS );
+    /**
+     * The timeouts of the same duration added within a batch window, see
+     * {@link UtilAckTimeoutRegistry#setBatchWindow(int)}
+     */
+    private static class Batch implements Runnable {
+        private final long openedAt;
+        private final ArrayList<AckTimeout> timeouts;
+
+        Batch( long openedAt ) {
+            this.openedAt = openedAt;
+            this.timeouts = new ArrayList<>();
+        }
+
+        @Override
+        public void run() {
+            ArrayList<AckTimeout> timeouts;
+            synchronized( this ) {
+                timeouts = new ArrayList<>( this.timeouts );
             }
-            task = null;
+            // Timeouts that were cleared in the meantime are no longer in the register and skip themselves
+            for( AckTimeout timeout : timeouts ) {
+                timeout.run();
+            }
+        }
+    }
+
+    /**
+     * Queues an expired timeout to be reported. The listener and the error handler are application code, so
+     * they are kept off the shared timer thread, and everything that expires while a report is pending is handed
+     * to the client as a single task rather than one per timeout.
+     */
+    private void onExpired( AckTimeout timeout ) {
+        this.expired.add( timeout );
+        if( this.reporting.compareAndSet( false, true ) ) {
+            this.client.execute( new Runnable() {
+                @Override
+                public void run() {
+                    reportExpired();
+                }
+            } );
         }
     }
 
-    private String getUniqueName( Topic topic, Actions action, String name ) {
-        return topic.toString() + action.toString() + name;
+    private void reportExpired() {
+        RuntimeException failure = null;
+        do {
+            AckTimeout timeout;
+            while( ( timeout = this.expired.poll() ) != null ) {
+                try {
+                    timeout.report();
+                } catch( RuntimeException e ) {
+                    // e.g. no error handler is set, the other timeouts are still reported
+                    if( failure == null ) {
+                        failure = e;
+                    }
+                }
+            }
+            this.reporting.set( false );
+            // A timeout could have expired after the queue was drained but before the flag was reset
+        } while( !this.expired.isEmpty() && this.reporting.compareAndSet( false, true ) );
+
+        if( failure != null ) {
+            throw failure;
+        }
     }
 
     private class AckTimeout implements Runnable {
+        private final Key key;
         private final UtilTimeoutListener timeoutListener;
-        private final Topic topic;
-        private final Actions action;
-        private final String name;
         private final Event event;
         private final int timeout;
+        private UtilTimingWheel.Timeout scheduled;
+        private boolean cancelled;
 
-        AckTimeout(Topic topic, Actions action, String name, Event event, UtilTimeoutListener timeoutListener, int timeout ) {
-            this.topic = topic;
-            this.action = action;
-            this.name = name;
+        AckTimeout( Key key, Event event, UtilTimeoutListener timeoutListener, int timeout ) {
+            this.key = key;
             this.event = event;
             this.timeoutListener = timeoutListener;
             this.timeout = timeout;
         }
 
+        synchronized void schedule() {
+            if( !this.cancelled && !addToBatch( this ) ) {
+                this.scheduled = wheel.add( this, this.timeout );
+            }
+        }
+
+        synchronized void cancel() {
+            this.cancelled = true;
+            if( this.scheduled != null ) {
+                this.scheduled.cancel();
+            }
+        }
+
         @Override
         public void run() {
+            if( !register.remove( this.key, this ) ) {
+                return;
+            }
+            onExpired( this );
+        }
+
+        private void report() {
             String msg;
 
-            timeoutListener.onTimeout( topic, action, event, name );
+            if( timeoutListener != null ) {
+                timeoutListener.onTimeout( key.topic, key.action, event, key.name );
+            }
             if( event == Event.ACK_TIMEOUT ) {
-               msg = "No ACK message received in time for " + action.name() + " " + name;
+               msg = "No ACK message received in time for " + key.action.name() + " " + key.name;
             } else {
-                msg = "No message received in time for " + action.name() + " " + name;
+                msg = "No message received in time for " + key.action.name() + " " + key.name;
             }
-            client.onError( topic, event, msg );
+            client.onError( key.topic, event, msg );
         }
     }
-}
\ No newline at end of file
+}
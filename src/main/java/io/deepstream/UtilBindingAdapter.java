@@ -0,0 +1,112 @@
+package io.deepstream;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+import com.google.gson.annotations.SerializedName;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Updates the fields of an object bound to a record, see {@link RecordBinding}. The fields of a class are looked
+ * up once and shared by every binding to it, and are matched to the keys of the record the way
+ * {@link GsonPayloadSerializer} does: by their name or their {@link SerializedName}, leaving out static and
+ * transient ones. The values themselves are converted by the client's {@link PayloadSerializer}.
+ */
+class UtilBindingAdapter {
+
+    private static final ConcurrentMap<Class<?>, UtilBindingAdapter> ADAPTERS = new ConcurrentHashMap<>();
+
+    private final BoundField[] fields;
+
+    private UtilBindingAdapter( Class<?> type ) {
+        ArrayList<BoundField> fields = new ArrayList<>();
+        for( Class<?> declaring = type; declaring != null && declaring != Object.class; declaring = declaring.getSuperclass() ) {
+            for( Field field : declaring.getDeclaredFields() ) {
+                int modifiers = field.getModifiers();
+                if( Modifier.isStatic( modifiers ) || Modifier.isTransient( modifiers ) || field.isSynthetic() ) {
+                    continue;
+                }
+                field.setAccessible( true );
+                fields.add( new BoundField( field ) );
+            }
+        }
+        this.fields = fields.toArray( new BoundField[ fields.size() ] );
+    }
+
+    /**
+     * @param type The class to bind
+     * @return The adapter for the class, shared by all bindings to it
+     */
+    static UtilBindingAdapter forType( Class<?> type ) {
+        UtilBindingAdapter adapter = ADAPTERS.get( type );
+        if( adapter == null ) {
+            adapter = new UtilBindingAdapter( type );
+            UtilBindingAdapter existing = ADAPTERS.putIfAbsent( type, adapter );
+            if( existing != null ) {
+                adapter = existing;
+            }
+        }
+        return adapter;
+    }
+
+    /**
+     * Converts the values of the fields whose key differs between two versions of a record and sets them. The
+     * data of a record is never changed in place, so the keys a patch didn't touch are still the same json and
+     * are skipped without comparing them.
+     *
+     * @param target The object to update
+     * @param oldData The data the object was last updated with
+     * @param newData The new data, which has to be an object
+     * @param codec The codec to convert the values with
+     * @return true if any field was set
+     */
+    boolean update( Object target, JsonElement oldData, JsonObject newData, UtilJsonCodec codec ) {
+        JsonObject oldObject = oldData != null && oldData.isJsonObject() ? oldData.getAsJsonObject() : null;
+        boolean changed = false;
+        for( BoundField field : this.fields ) {
+            JsonElement oldValue = oldObject == null ? null : oldObject.get( field.name );
+            JsonElement newValue = newData.get( field.name );
+            if( oldObject != null && ( oldValue == newValue || orNull( oldValue ).equals( orNull( newValue ) ) ) ) {
+                continue;
+            }
+            field.set( target, codec.fromJsonTree( orNull( newValue ), field.type ) );
+            changed = true;
+        }
+        return changed;
+    }
+
+    private static JsonElement orNull( JsonElement element ) {
+        return element == null ? JsonNull.INSTANCE : element;
+    }
+
+    private static class BoundField {
+        private final Field field;
+        private final String name;
+        private final Type type;
+        private final Object defaultValue;
+
+        BoundField( Field field ) {
+            SerializedName serializedName = field.getAnnotation( SerializedName.class );
+            this.field = field;
+            this.name = serializedName == null ? field.getName() : serializedName.value();
+            this.type = field.getGenericType();
+            // What a missing key leaves a primitive at, since it can't be null
+            this.defaultValue = field.getType().isPrimitive() ? Array.get( Array.newInstance( field.getType(), 1 ), 0 ) : null;
+        }
+
+        void set( Object target, Object value ) {
+            try {
+                this.field.set( target, value == null ? this.defaultValue : value );
+            } catch( IllegalAccessException e ) {
+                throw new IllegalStateException( "Can't set " + this.field + " of a record binding", e );
+            }
+        }
+    }
+}
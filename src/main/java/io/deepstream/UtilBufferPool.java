@@ -0,0 +1,62 @@
+package io.deepstream;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A pool of direct buffers shared by all connections. Direct buffers are expensive to allocate and
+ * are only freed once the garbage collector gets around to it, so they are handed back and forth between
+ * the writers instead.
+ */
+class UtilBufferPool {
+
+    static final int BUFFER_SIZE = 16 * 1024;
+    private static final int MAX_POOLED_BUFFERS = 256;
+    private static final UtilBufferPool sharedPool = new UtilBufferPool( MAX_POOLED_BUFFERS );
+
+    private final ConcurrentLinkedQueue<ByteBuffer> buffers;
+    private final AtomicInteger pooled;
+    private final int maxPooledBuffers;
+
+    /**
+     * @param maxPooledBuffers The amount of released buffers to hold on to, any more are left to the garbage collector
+     */
+    UtilBufferPool( int maxPooledBuffers ) {
+        this.buffers = new ConcurrentLinkedQueue<>();
+        this.pooled = new AtomicInteger( 0 );
+        this.maxPooledBuffers = maxPooledBuffers;
+    }
+
+    /**
+     * @return The pool shared by every connection in the JVM
+     */
+    static UtilBufferPool getSharedPool() {
+        return sharedPool;
+    }
+
+    /**
+     * @return A cleared direct buffer of {@link UtilBufferPool#BUFFER_SIZE} bytes
+     */
+    ByteBuffer acquire() {
+        ByteBuffer buffer = this.buffers.poll();
+        if( buffer == null ) {
+            return ByteBuffer.allocateDirect( BUFFER_SIZE );
+        }
+        this.pooled.decrementAndGet();
+        return buffer;
+    }
+
+    /**
+     * Returns a buffer to the pool. The buffer must not be used after releasing it.
+     * @param buffer The buffer that was acquired from this pool
+     */
+    void release( ByteBuffer buffer ) {
+        if( this.pooled.incrementAndGet() > this.maxPooledBuffers ) {
+            this.pooled.decrementAndGet();
+            return;
+        }
+        buffer.clear();
+        this.buffers.offer( buffer );
+    }
+}
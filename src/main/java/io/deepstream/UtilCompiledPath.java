@@ -0,0 +1,114 @@
+package io.deepstream;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A record path in the syntax of {@link UtilJSONPath}, split into its tokens once so that looking it up again
+ * doesn't parse it again. Records tend to be read, written and subscribed to at the same few paths, so compiled
+ * paths are kept in a cache. Lookups take no lock, as every record lane goes through it. Once the cache grows past
+ * its size it evicts the paths that haven't been looked up recently, in the way of a clock: every lookup marks the
+ * path as used, and the eviction skips marked paths once, clearing the mark, and evicts the first unmarked one.<br/>
+ *
+ * The tokens of a compiled path never change and can be shared between threads.
+ */
+class UtilCompiledPath {
+
+    static final int CACHE_SIZE = 1024;
+    private static final ConcurrentMap<String, UtilCompiledPath> CACHE = new ConcurrentHashMap<>();
+    private static final Object EVICTION_LOCK = new Object();
+    private static Iterator<UtilCompiledPath> clockHand;
+
+    final Token[] tokens;
+    private volatile boolean used;
+
+    private UtilCompiledPath( String path ) {
+        String[] names = path.split( "\\." );
+        this.tokens = new Token[ names.length ];
+        for( int i = 0; i < names.length; i++ ) {
+            this.tokens[ i ] = new Token( names[ i ] );
+        }
+    }
+
+    /**
+     * @param path The path to compile, neither null nor empty
+     * @return The compiled path, from the cache if it has been compiled before
+     */
+    static UtilCompiledPath compile( String path ) {
+        UtilCompiledPath compiled = CACHE.get( path );
+        if( compiled != null ) {
+            // Only write when the mark changes, hot paths are read by every lane
+            if( !compiled.used ) {
+                compiled.used = true;
+            }
+            return compiled;
+        }
+
+        compiled = new UtilCompiledPath( path );
+        UtilCompiledPath existing = CACHE.putIfAbsent( path, compiled );
+        if( existing != null ) {
+            return existing;
+        }
+        if( CACHE.size() > CACHE_SIZE ) {
+            evict();
+        }
+        return compiled;
+    }
+
+    /**
+     * Evicts paths until the cache is back at its size. The hand carries on where the previous eviction stopped,
+     * so every path gets the same chance to be looked up again before the hand comes back to it.
+     */
+    private static void evict() {
+        synchronized( EVICTION_LOCK ) {
+            while( CACHE.size() > CACHE_SIZE ) {
+                if( clockHand == null || !clockHand.hasNext() ) {
+                    clockHand = CACHE.values().iterator();
+                    if( !clockHand.hasNext() ) {
+                        return;
+                    }
+                }
+                UtilCompiledPath candidate = clockHand.next();
+                if( candidate.used ) {
+                    candidate.used = false;
+                } else {
+                    clockHand.remove();
+                }
+            }
+        }
+    }
+
+    /**
+     * One part of a path between two dots, either a key or a key followed by an array index, e.g. "pets[0]"
+     */
+    static class Token {
+        final String name;
+        final boolean isArray;
+        final String prefix;
+        final String indexText;
+        final int index;
+
+        private Token( String name ) {
+            this.name = name;
+
+            int open = name.indexOf( '[' );
+            int close = name.indexOf( ']' );
+            int index = -1;
+            boolean isArray = false;
+            if( open >= 0 && open < close ) {
+                try {
+                    index = Integer.parseInt( name.substring( open + 1, close ).trim() );
+                    isArray = true;
+                } catch( NumberFormatException e ) {
+                    // A key that happens to contain brackets
+                }
+            }
+
+            this.isArray = isArray;
+            this.prefix = isArray ? name.substring( 0, open ) : name;
+            this.indexText = isArray ? name.substring( open + 1, close ).trim() : null;
+            this.index = index;
+        }
+    }
+}
@@ -18,6 +18,21 @@ import java.util.concurrent.ConcurrentMap;
 class UtilEmitter {
 
     private final ConcurrentMap<String, ConcurrentLinkedQueue<Object>> callbacks = new ConcurrentHashMap<>();
+    private final UtilPathTrie paths;
+    // Events are added to and removed from the map and the path index together, or a path could go missing
+    private final Object eventsLock = new Object();
+
+    public UtilEmitter() {
+        this( null );
+    }
+
+    /**
+     * @param paths The index to add the event names to if they are record paths, see
+     *              {@link UtilEmitter#getEvents(String)}, or null
+     */
+    UtilEmitter( UtilPathTrie paths ) {
+        this.paths = paths;
+    }
 
     private static boolean sameAs(Object fn, Object internal) {
         return fn.equals(internal) || internal instanceof OnceListener && fn.equals(((OnceListener) internal).fn);
@@ -42,10 +57,15 @@ class UtilEmitter {
     public UtilEmitter on(String event, Object fn) {
         ConcurrentLinkedQueue<Object> callbacks = this.callbacks.get(event);
         if (callbacks == null) {
-            callbacks = new ConcurrentLinkedQueue<>();
-            ConcurrentLinkedQueue<Object> _callbacks = this.callbacks.putIfAbsent(event, callbacks);
-            if (_callbacks != null) {
-                callbacks = _callbacks;
+            synchronized (this.eventsLock) {
+                callbacks = this.callbacks.get(event);
+                if (callbacks == null) {
+                    callbacks = new ConcurrentLinkedQueue<>();
+                    this.callbacks.put(event, callbacks);
+                    if (this.paths != null) {
+                        this.paths.add(event);
+                    }
+                }
             }
         }
         callbacks.add(fn);
@@ -70,7 +90,9 @@ class UtilEmitter {
      * @return a reference to this object.
      */
     public UtilEmitter off() {
-        this.callbacks.clear();
+        for (String event : this.callbacks.keySet()) {
+            this.off(event);
+        }
         return this;
     }
 
@@ -81,7 +103,11 @@ class UtilEmitter {
      * @return a reference to this object.
      */
     public UtilEmitter off(String event) {
-        this.callbacks.remove(event);
+        synchronized (this.eventsLock) {
+            if (this.callbacks.remove(event) != null && this.paths != null) {
+                this.paths.remove(event);
+            }
+        }
         return this;
     }
 
@@ -138,6 +164,20 @@ class UtilEmitter {
         return this.callbacks.keySet();
     }
 
+    /**
+     * Returns the events that are affected by a change at a path: the path itself, the paths above it and the
+     * paths below it. Only an emitter that indexes its paths can tell, any other returns all events.
+     *
+     * @param path The path that changed
+     * @return The affected events
+     */
+    public Set<String> getEvents(String path) {
+        if (this.paths == null) {
+            return this.getEvents();
+        }
+        return this.paths.getAffected(path);
+    }
+
     /**
      * Check if this emitter has any listeners
      *
@@ -0,0 +1,115 @@
+package io.deepstream;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Splits the incoming byte stream into messages by scanning for the message separator byte. Every
+ * complete message is passed on as soon as its separator arrives, regardless of how TCP split the stream.
+ *
+ * Messages that arrive in one read are passed on straight from the read buffer, only the incomplete tail
+ * is copied into a pending buffer that is reused for the lifetime of the decoder.
+ */
+class UtilFrameDecoder {
+
+    private static final byte MS = 0x1e;
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int MAX_RETAINED_CAPACITY = 1024 * 1024;
+
+    private final FrameListener listener;
+    private byte[] pending;
+    private int pendingLength;
+    private byte[] scratch;
+
+    /**
+     * @param listener The listener to notify whenever a message is complete
+     */
+    UtilFrameDecoder( FrameListener listener ) {
+        this.listener = listener;
+        this.pending = new byte[ INITIAL_CAPACITY ];
+        this.pendingLength = 0;
+    }
+
+    /**
+     * Decodes the remaining bytes of the buffer, leaving its position at its limit
+     * @param data The bytes read from the socket
+     */
+    void decode( ByteBuffer data ) {
+        int length = data.remaining();
+
+        if( data.hasArray() ) {
+            this.decode( data.array(), data.arrayOffset() + data.position(), length );
+        } else {
+            if( this.scratch == null || this.scratch.length < length ) {
+                this.scratch = new byte[ length ];
+            }
+            data.get( this.scratch, 0, length );
+            this.decode( this.scratch, 0, length );
+            return;
+        }
+
+        data.position( data.limit() );
+    }
+
+    /**
+     * Decodes a chunk of bytes read from the socket
+     * @param data The buffer containing the bytes
+     * @param offset The index of the first byte
+     * @param length The amount of bytes to decode
+     */
+    void decode( byte[] data, int offset, int length ) {
+        int end = offset + length;
+        int frameStart = offset;
+
+        for( int i = offset; i < end; i++ ) {
+            if( data[ i ] != MS ) {
+                continue;
+            }
+
+            if( this.pendingLength == 0 ) {
+                this.listener.onFrame( data, frameStart, i - frameStart );
+            } else {
+                this.append( data, frameStart, i - frameStart );
+                this.listener.onFrame( this.pending, 0, this.pendingLength );
+                this.pendingLength = 0;
+
+                if( this.pending.length > MAX_RETAINED_CAPACITY ) {
+                    this.pending = new byte[ INITIAL_CAPACITY ];
+                }
+            }
+            frameStart = i + 1;
+        }
+
+        if( frameStart < end ) {
+            this.append( data, frameStart, end - frameStart );
+        }
+    }
+
+    /**
+     * Drops any incomplete message, used when the underlying connection is reopened
+     */
+    void reset() {
+        this.pendingLength = 0;
+    }
+
+    private void append( byte[] data, int offset, int length ) {
+        int required = this.pendingLength + length;
+        if( required > this.pending.length ) {
+            byte[] grown = new byte[ Math.max( required, this.pending.length * 2 ) ];
+            System.arraycopy( this.pending, 0, grown, 0, this.pendingLength );
+            this.pending = grown;
+        }
+        System.arraycopy( data, offset, this.pending, this.pendingLength, length );
+        this.pendingLength = required;
+    }
+
+    interface FrameListener {
+        /**
+         * Called for every complete message. The bytes are only valid for the duration of the call.
+         *
+         * @param buffer The buffer containing the message
+         * @param offset The index of the first byte of the message
+         * @param length The length of the message, excluding the separator
+         */
+        void onFrame( byte[] buffer, int offset, int length );
+    }
+}
@@ -0,0 +1,163 @@
+package io.deepstream;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+
+/**
+ * Encodes outgoing messages as UTF-8 straight into pooled direct buffers, which are then written to the
+ * socket with a single gathering write. Mostly ASCII messages, which most deepstream messages are, are copied
+ * char by char without going through a {@link java.nio.charset.CharsetEncoder}.
+ *
+ * An encoder is either being filled using {@link UtilFrameEncoder#encode(String)} or being written using
+ * {@link UtilFrameEncoder#writeTo(GatheringByteChannel)}; it is only filled again once everything has been written.
+ * It is not thread safe, each encoder belongs to the single thread that writes to its socket.
+ */
+class UtilFrameEncoder {
+
+    private static final byte REPLACEMENT = '?';
+
+    private final UtilBufferPool pool;
+    private ByteBuffer[] buffers;
+    private int first;
+    private int count;
+    private boolean flushing;
+
+    /**
+     * @param pool The pool to take buffers from and return them to once written
+     */
+    UtilFrameEncoder( UtilBufferPool pool ) {
+        this.pool = pool;
+        this.buffers = new ByteBuffer[ 4 ];
+        this.first = 0;
+        this.count = 0;
+        this.flushing = false;
+    }
+
+    /**
+     * Appends the message to the data waiting to be written
+     * @param message The message to encode
+     */
+    void encode( String message ) {
+        if( this.flushing ) {
+            throw new IllegalStateException( "Can't encode while a write is in progress" );
+        }
+
+        ByteBuffer buffer = this.count == 0 ? this.nextBuffer() : this.buffers[ this.count - 1 ];
+        int length = message.length();
+        int i = 0;
+
+        while( i < length ) {
+            if( !buffer.hasRemaining() ) {
+                buffer = this.nextBuffer();
+            }
+
+            int end = Math.min( length, i + buffer.remaining() );
+            char c = 0;
+            while( i < end && ( c = message.charAt( i ) ) < 0x80 ) {
+                buffer.put( (byte) c );
+                i++;
+            }
+            if( i == end ) {
+                continue;
+            }
+
+            if( buffer.remaining() < 4 ) {
+                buffer = this.nextBuffer();
+            }
+            if( c < 0x800 ) {
+                buffer.put( (byte) ( 0xc0 | ( c >> 6 ) ) );
+                buffer.put( (byte) ( 0x80 | ( c & 0x3f ) ) );
+            } else if( !Character.isSurrogate( c ) ) {
+                buffer.put( (byte) ( 0xe0 | ( c >> 12 ) ) );
+                buffer.put( (byte) ( 0x80 | ( ( c >> 6 ) & 0x3f ) ) );
+                buffer.put( (byte) ( 0x80 | ( c & 0x3f ) ) );
+            } else if( Character.isHighSurrogate( c ) && i + 1 < length && Character.isLowSurrogate( message.charAt( i + 1 ) ) ) {
+                int codePoint = Character.toCodePoint( c, message.charAt( ++i ) );
+                buffer.put( (byte) ( 0xf0 | ( codePoint >> 18 ) ) );
+                buffer.put( (byte) ( 0x80 | ( ( codePoint >> 12 ) & 0x3f ) ) );
+                buffer.put( (byte) ( 0x80 | ( ( codePoint >> 6 ) & 0x3f ) ) );
+                buffer.put( (byte) ( 0x80 | ( codePoint & 0x3f ) ) );
+            } else {
+                buffer.put( REPLACEMENT );
+            }
+            i++;
+        }
+    }
+
+    /**
+     * @return The amount of bytes encoded and not yet written
+     */
+    int size() {
+        int size = 0;
+        for( int i = this.first; i < this.count; i++ ) {
+            size += this.flushing ? this.buffers[ i ].remaining() : this.buffers[ i ].position();
+        }
+        return size;
+    }
+
+    /**
+     * @return true if nothing is waiting to be written
+     */
+    boolean isEmpty() {
+        return this.count == 0;
+    }
+
+    /**
+     * Writes as much of the encoded data as the channel accepts. On a blocking channel this only returns once
+     * everything has been written.
+     *
+     * @param channel The channel to write to
+     * @return true if everything has been written, false if the channel didn't accept any more data
+     * @throws IOException Thrown if writing to the channel failed
+     */
+    boolean writeTo( GatheringByteChannel channel ) throws IOException {
+        if( !this.flushing ) {
+            for( int i = 0; i < this.count; i++ ) {
+                this.buffers[ i ].flip();
+            }
+            this.flushing = true;
+        }
+
+        while( this.first < this.count ) {
+            long written = channel.write( this.buffers, this.first, this.count - this.first );
+            while( this.first < this.count && !this.buffers[ this.first ].hasRemaining() ) {
+                this.pool.release( this.buffers[ this.first ] );
+                this.buffers[ this.first ] = null;
+                this.first++;
+            }
+            if( written == 0 && this.first < this.count ) {
+                return false;
+            }
+        }
+
+        this.first = 0;
+        this.count = 0;
+        this.flushing = false;
+        return true;
+    }
+
+    /**
+     * Discards anything that hasn't been written and returns all buffers to the pool
+     */
+    void release() {
+        for( int i = this.first; i < this.count; i++ ) {
+            this.pool.release( this.buffers[ i ] );
+            this.buffers[ i ] = null;
+        }
+        this.first = 0;
+        this.count = 0;
+        this.flushing = false;
+    }
+
+    private ByteBuffer nextBuffer() {
+        if( this.count == this.buffers.length ) {
+            ByteBuffer[] grown = new ByteBuffer[ this.buffers.length * 2 ];
+            System.arraycopy( this.buffers, 0, grown, 0, this.count );
+            this.buffers = grown;
+        }
+        ByteBuffer buffer = this.pool.acquire();
+        this.buffers[ this.count++ ] = buffer;
+        return buffer;
+    }
+}
@@ -6,6 +6,7 @@ import com.google.gson.JsonNull;
 import com.google.gson.JsonObject;
 
 import java.util.Iterator;
+import java.util.Map;
 import java.util.Objects;
 
 class UtilJSONPath {
@@ -16,20 +17,19 @@ class UtilJSONPath {
     }
 
     private static JsonElement iterateThrough (JsonElement element, String path, JsonElement value) {
-        String[] st = path.split( "\\." );
         JsonElement parent = null;
         JsonElement traverser = element;
         String token = null;
 
-        for( int i=0; i<st.length; i++ ) {
-            token = st[ i ];
+        for( UtilCompiledPath.Token compiled : UtilCompiledPath.compile( path ).tokens ) {
+            token = compiled.name;
 
             parent = traverser;
 
             try {
-                if (isArray(token)) {
-                    traverser = getArrayElement(traverser, token);
-                    token = getIndex( token );
+                if (compiled.isArray) {
+                    traverser = getArrayElement(traverser, compiled);
+                    token = compiled.indexText;
                 } else if( traverser.isJsonObject() ){
                     traverser = traverser.getAsJsonObject().get(token);
                 } else if( traverser.isJsonArray() ){
@@ -37,20 +37,18 @@ class UtilJSONPath {
                 }
             } catch( NullPointerException e ) {
                 if( value != null ) {
-                    if (isArray(token)) {
-                        int index = Integer.parseInt(getIndex(token));
-                        String prefix = getTokenPrefix(token);
+                    if (compiled.isArray) {
                         JsonArray array = new JsonArray();
 
-                        for (int j = 0; j < index; j++) {
+                        for (int j = 0; j < compiled.index; j++) {
                             array.add(JsonNull.INSTANCE);
                         }
 
                         JsonElement temp = new JsonObject();
                         array.add(temp);
 
-                        traverser.getAsJsonObject().add(prefix, array);
-                        traverser = array.get(index);
+                        traverser.getAsJsonObject().add(compiled.prefix, array);
+                        traverser = array.get(compiled.index);
                     }
                 }
             }
@@ -80,13 +78,11 @@ class UtilJSONPath {
     }
 
     private static JsonElement getArrayElement(JsonElement traverser,
-                                               String token) {
-
-        int index =  Integer.valueOf( getIndex(token) );
+                                               UtilCompiledPath.Token token) {
         try {
             return traverser.getAsJsonObject()
-                    .get(getTokenPrefix(token)).getAsJsonArray()
-                    .get(index);
+                    .get(token.prefix).getAsJsonArray()
+                    .get(token.index);
         } catch( ArrayIndexOutOfBoundsException e ) {
             return null;
         } catch( IndexOutOfBoundsException e ) {
@@ -94,30 +90,93 @@ class UtilJSONPath {
         }
     }
 
-    private static String getTokenPrefix(String token) {
-        return token.substring( 0, token.indexOf( "[" ) );
+    public JsonElement get(String path) {
+        return get(this.coreElement, path);
     }
 
-    private static String getIndex(String token) {
-        return token.substring(token.indexOf("[") + 1, token.indexOf("]")).trim();
+    /**
+     * Gets the value at a path of the json passed in
+     *
+     * @param root The json to read
+     * @param path The path, the root itself if empty or null
+     * @return The value, or null if there is none
+     */
+    static JsonElement get(JsonElement root, String path) {
+        if (Objects.equals(path, "") || path == null) {
+            return root;
+        } else {
+            return iterateThrough(root, path, null);
+        }
     }
 
-    private static boolean isArray(String token) {
-        boolean isArray = ( token.contains("[") && token.contains("]") && (token.indexOf("[") < token.indexOf("]")));
-        try {
-            Integer.parseInt( token.substring(token.indexOf("[")+1, token.indexOf("]") ).trim() );
-            return isArray;
-        } catch (Exception e) {
-            return false;
+    /**
+     * Sets the value at a path without changing the json passed in. Only the objects and arrays on the way
+     * to the path are copied, everything else is shared between the original and the copy, so the original
+     * can still be read while the copy is built.
+     *
+     * @param root The json to update, it is left as it is
+     * @param path The path to set, the whole json if null
+     * @param value The value to set
+     * @return The updated json
+     */
+    static JsonElement copyWith(JsonElement root, String path, JsonElement value) {
+        if (Objects.equals(path, "")) {
+            throw new RuntimeException("Setting an entire object must be done via setValue( JsonElement value );");
+        } else if (path == null) {
+            return value;
+        }
+
+        JsonElement copy = shallowCopy(root);
+        JsonElement traverser = copy;
+        for (UtilCompiledPath.Token token : UtilCompiledPath.compile(path).tokens) {
+            JsonElement child;
+            if (token.isArray && traverser.isJsonObject()) {
+                JsonObject object = traverser.getAsJsonObject();
+                JsonElement array = object.get(token.prefix);
+                if (array == null || !array.isJsonArray()) {
+                    break;
+                }
+                JsonArray arrayCopy = (JsonArray) shallowCopy(array);
+                object.add(token.prefix, arrayCopy);
+                int index = token.index;
+                if (index < 0 || index >= arrayCopy.size()) {
+                    break;
+                }
+                child = shallowCopy(arrayCopy.get(index));
+                arrayCopy.set(index, child);
+            } else if (traverser.isJsonObject()) {
+                JsonObject object = traverser.getAsJsonObject();
+                JsonElement existing = object.get(token.name);
+                if (existing == null) {
+                    break;
+                }
+                child = shallowCopy(existing);
+                object.add(token.name, child);
+            } else {
+                break;
+            }
+            traverser = child;
         }
+
+        // Everything the update touches has been copied, so it can be applied in place
+        iterateThrough(copy, path, value);
+        return copy;
     }
 
-    public JsonElement get(String path) {
-        if (Objects.equals(path, "") || path == null) {
-            return this.coreElement;
-        } else {
-            return iterateThrough(this.coreElement, path, null);
+    private static JsonElement shallowCopy(JsonElement element) {
+        if (element.isJsonObject()) {
+            JsonObject copy = new JsonObject();
+            for (Map.Entry<String, JsonElement> entry : element.getAsJsonObject().entrySet()) {
+                copy.add(entry.getKey(), entry.getValue());
+            }
+            return copy;
+        }
+        if (element.isJsonArray()) {
+            JsonArray copy = new JsonArray();
+            copy.addAll(element.getAsJsonArray());
+            return copy;
         }
+        return element;
     }
 
     public void set(String path, JsonElement value) {
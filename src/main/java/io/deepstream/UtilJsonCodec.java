@@ -0,0 +1,127 @@
+package io.deepstream;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+
+import java.lang.reflect.Type;
+import java.util.Map;
+
+/**
+ * Converts between json and java objects for a client. It is created once per client and shared by all
+ * records, events and rpcs, and hands the work to the {@link PayloadSerializer} the client was configured with.
+ */
+class UtilJsonCodec {
+
+    private final PayloadSerializer serializer;
+
+    UtilJsonCodec() {
+        this( new GsonPayloadSerializer() );
+    }
+
+    /**
+     * @param serializer The serializer used to convert payloads
+     */
+    UtilJsonCodec( PayloadSerializer serializer ) {
+        this.serializer = serializer;
+    }
+
+    /**
+     * @param json The json string to parse
+     * @return The parsed json, or null if the string is empty
+     */
+    JsonElement parse( String json ) {
+        return this.serializer.parse( json );
+    }
+
+    /**
+     * Parses a data field of a message, straight from the received bytes if possible
+     *
+     * @param message The message containing the json
+     * @param index The index of the data field
+     * @return The parsed json, or null if the field is empty
+     */
+    JsonElement parse( Message message, int index ) {
+        return message.parseData( index, 0, this.serializer );
+    }
+
+    /**
+     * Parses a data field of a message that contains a {@link Types#OBJECT}, skipping the type prefix
+     *
+     * @param message The message containing the typed json
+     * @param index The index of the data field
+     * @return The parsed json
+     */
+    JsonElement parseTyped( Message message, int index ) {
+        return message.parseData( index, 1, this.serializer );
+    }
+
+    /**
+     * @param value The value to serialize
+     * @return The value as a json string
+     */
+    String toJson( Object value ) {
+        return this.serializer.toJson( value );
+    }
+
+    /**
+     * @param value The value to serialize as a {@link Types#OBJECT}
+     * @return The value as a json string
+     */
+    String toTypedJson( Object value ) {
+        return this.serializer.toTypedJson( value );
+    }
+
+    /**
+     * @param value The value to serialize
+     * @return The value as a tree of {@link JsonElement}s
+     */
+    JsonElement toJsonTree( Object value ) {
+        return this.serializer.toJsonTree( value );
+    }
+
+    /**
+     * @param element The json to convert
+     * @param type The type to convert it to
+     * @param <T> The type to convert it to
+     * @return The json converted to the type
+     */
+    <T> T fromJsonTree( JsonElement element, Type type ) {
+        return this.serializer.fromJsonTree( element, type );
+    }
+
+    /**
+     * @param element The json to copy
+     * @return A copy of the json that shares no mutable state with the original. Null is copied as
+     * {@link JsonNull}, the same as when writing the json out and parsing it again
+     */
+    JsonElement deepCopy( JsonElement element ) {
+        return copyTree( element );
+    }
+
+    /**
+     * @see UtilJsonCodec#deepCopy(JsonElement)
+     */
+    static JsonElement copyTree( JsonElement element ) {
+        if( element == null ) {
+            return JsonNull.INSTANCE;
+        }
+        if( element.isJsonObject() ) {
+            JsonObject copy = new JsonObject();
+            for( Map.Entry<String, JsonElement> entry : element.getAsJsonObject().entrySet() ) {
+                copy.add( entry.getKey(), copyTree( entry.getValue() ) );
+            }
+            return copy;
+        }
+        if( element.isJsonArray() ) {
+            JsonArray copy = new JsonArray();
+            for( JsonElement entry : element.getAsJsonArray() ) {
+                copy.add( copyTree( entry ) );
+            }
+            return copy;
+        }
+        // Primitives and null are immutable
+        return element;
+    }
+}
@@ -1,8 +1,5 @@
 package io.deepstream;
 
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-
 class UtilListener implements UtilResubscribeNotifier.UtilResubscribeListener {
 
     private final Topic topic;
@@ -15,8 +12,6 @@ class UtilListener implements UtilResubscribeNotifier.UtilResubscribeListener {
     private DeepstreamClientAbstract client;
     private IConnection connection;
 
-    private ExecutorService executorService;
-
     public UtilListener(Topic topic, String pattern, ListenListener listenerCallback, DeepstreamConfig deepstreamConfig, DeepstreamClientAbstract client, IConnection connection) {
         this.topic = topic;
         this.pattern = pattern;
@@ -26,7 +21,6 @@ class UtilListener implements UtilResubscribeNotifier.UtilResubscribeListener {
         this.connection = connection;
         this.resubscribeNotifier = new UtilResubscribeNotifier( this.client, this );
         this.ackTimoutRegistry = client.getAckTimeoutRegistry();
-        this.executorService = Executors.newCachedThreadPool();
     }
 
     /**
@@ -52,14 +46,14 @@ class UtilListener implements UtilResubscribeNotifier.UtilResubscribeListener {
             this.ackTimoutRegistry.clear( message );
         } else {
             if (message.action.equals(Actions.SUBSCRIPTION_FOR_PATTERN_FOUND)) {
-                boolean accepted = listenerCallback.onSubscriptionForPatternAdded(message.data[1]);
+                boolean accepted = listenerCallback.onSubscriptionForPatternAdded(message.data( 1 ));
                 if (accepted) {
-                    sendAccept(message.data[1]);
+                    sendAccept(message.data( 1 ));
                 } else {
-                    sendReject(message.data[1]);
+                    sendReject(message.data( 1 ));
                 }
             } else if (message.action.equals(Actions.SUBSCRIPTION_FOR_PATTERN_REMOVED)) {
-                listenerCallback.onSubscriptionForPatternRemoved(message.data[1]);
+                listenerCallback.onSubscriptionForPatternRemoved(message.data( 1 ));
             }
         }
     }
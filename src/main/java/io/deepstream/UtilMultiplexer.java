@@ -0,0 +1,574 @@
+package io.deepstream;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Lets several sessions, see {@link DeepstreamClient#createSession()}, share one {@link Connection}.<br/>
+ *
+ * Subscriptions to records, events, rpcs and listen patterns are reference counted per connection: only the first
+ * session subscribing sends the subscribe and only the last one unsubscribing sends the unsubscribe. Sessions
+ * joining in between get the ack, and for records the initial read, synthesized from what the connection already
+ * received, so the server sees a single subscriber and sends a single stream of updates. Incoming messages are
+ * routed to the sessions they concern, while the updates and events a session sends are looped back to the other
+ * sessions of the connection, since the server doesn't echo them to the connection they came from.<br/>
+ *
+ * Sending can block while the outbound queue of the connection is full, so messages are only queued under the
+ * lock that guards the subscriptions and are sent once it has been released. Routing never waits for a send.
+ */
+class UtilMultiplexer {
+
+    private static final char MPS = '\u001f';
+
+    private final Connection connection;
+    private final DeepstreamClient root;
+    private final ArrayList<DeepstreamClient> sessions;
+    private final Map<String, DeepstreamClient> sessionsByUid;
+    private final Map<Key, Subscription> subscriptions;
+    private final Map<Key, LinkedHashSet<DeepstreamClient>> requests;
+    private final ConcurrentLinkedQueue<Object> outgoing;
+    private final ReentrantLock sendLock;
+
+    /**
+     * @param connection The connection that is shared
+     * @param root The client that created the connection, it gets the messages no session is waiting for
+     */
+    UtilMultiplexer( Connection connection, DeepstreamClient root ) {
+        this.connection = connection;
+        this.root = root;
+        this.sessions = new ArrayList<>();
+        this.sessionsByUid = new HashMap<>();
+        this.subscriptions = new HashMap<>();
+        this.requests = new HashMap<>();
+        this.outgoing = new ConcurrentLinkedQueue<>();
+        this.sendLock = new ReentrantLock();
+    }
+
+    /**
+     * Adds a session to the connection
+     *
+     * @param session The session
+     * @return The connection the handlers of the session send their messages through
+     */
+    synchronized UtilSessionConnection addSession( DeepstreamClient session ) {
+        this.sessions.add( session );
+        this.sessionsByUid.put( session.getUid(), session );
+        return new UtilSessionConnection( this, session );
+    }
+
+    /**
+     * Removes a session and unsubscribes from everything only it was subscribed to
+     *
+     * @param session The session
+     */
+    void removeSession( DeepstreamClient session ) {
+        synchronized( this ) {
+            this.removeSubscriptions( session );
+        }
+        this.sendOutgoing();
+    }
+
+    private void removeSubscriptions( DeepstreamClient session ) {
+        this.sessions.remove( session );
+        this.sessionsByUid.remove( session.getUid() );
+
+        Iterator<Map.Entry<Key, Subscription>> iterator = this.subscriptions.entrySet().iterator();
+        while( iterator.hasNext() ) {
+            Map.Entry<Key, Subscription> entry = iterator.next();
+            Subscription subscription = entry.getValue();
+            if( subscription.remove( session ) && subscription.sessions.isEmpty() ) {
+                iterator.remove();
+                if( subscription.sent ) {
+                    Key key = entry.getKey();
+                    Actions action = key.action == Actions.LISTEN ? Actions.UNLISTEN : Actions.UNSUBSCRIBE;
+                    this.queue( key.topic, action, new String[] { key.name } );
+                }
+            }
+        }
+
+        Iterator<LinkedHashSet<DeepstreamClient>> requesters = this.requests.values().iterator();
+        while( requesters.hasNext() ) {
+            LinkedHashSet<DeepstreamClient> sessions = requesters.next();
+            if( sessions.remove( session ) && sessions.isEmpty() ) {
+                requesters.remove();
+            }
+        }
+    }
+
+    /**
+     * @return The amount of sessions sharing the connection
+     */
+    synchronized int getSessionCount() {
+        return this.sessions.size();
+    }
+
+    /**
+     * Forgets what was sent and received once the connection is lost. The sessions resubscribe when it is
+     * reestablished, and the first of them for every subscription sends the subscribe again. Requests whose
+     * message hadn't been sent yet go out once it is reestablished, so their sessions keep waiting for the reply.
+     *
+     * @param unsent The messages that were still waiting to be sent, concatenated
+     */
+    synchronized void reset( String unsent ) {
+        for( Subscription subscription : this.subscriptions.values() ) {
+            subscription.sent = false;
+            subscription.acked = false;
+            subscription.readPending = false;
+            subscription.awaitingAck.clear();
+            subscription.awaitingRead.clear();
+        }
+        // Messages queued by the multiplexer itself haven't reached the connection yet either
+        StringBuilder messages = new StringBuilder( unsent );
+        for( Object message : this.outgoing ) {
+            if( message instanceof Outgoing ) {
+                Outgoing outgoing = (Outgoing) message;
+                messages.append( MessageBuilder.getMsg( outgoing.topic, outgoing.action, outgoing.data ) );
+            } else {
+                messages.append( (String) message );
+            }
+        }
+
+        String pending = messages.toString();
+        Iterator<Key> requested = this.requests.keySet().iterator();
+        while( requested.hasNext() ) {
+            if( !contains( pending, requested.next() ) ) {
+                requested.remove();
+            }
+        }
+    }
+
+    /**
+     * Sends a message on behalf of a session. Subscribes and unsubscribes that don't change what the connection is
+     * subscribed to are answered locally rather than sent.
+     *
+     * @param session The session sending the message
+     * @param topic The topic of the message
+     * @param action The action of the message
+     * @param data The data of the message, the name of the record, event or rpc first
+     */
+    void send( DeepstreamClient session, Topic topic, Actions action, String[] data ) {
+        synchronized( this ) {
+            this.queueSend( session, topic, action, data );
+        }
+        this.sendOutgoing();
+    }
+
+    private void queueSend( DeepstreamClient session, Topic topic, Actions action, String[] data ) {
+        String name = data.length > 0 ? data[ 0 ] : null;
+
+        Actions kind = getSubscribeKind( topic, action );
+        if( kind != null ) {
+            this.subscribe( session, new Key( topic, kind, name ), action, data );
+            return;
+        }
+
+        kind = getUnsubscribeKind( topic, action );
+        if( kind != null ) {
+            this.unsubscribe( session, new Key( topic, kind, name ), action, data );
+            return;
+        }
+
+        if( isRequest( topic, action ) ) {
+            this.addRequest( new Key( topic, action, name ), session );
+        }
+
+        this.queue( topic, action, data );
+
+        if( isBroadcast( topic, action ) ) {
+            Subscription subscription = this.subscriptions.get( new Key( topic, Actions.SUBSCRIBE, name ) );
+            if( subscription != null ) {
+                ArrayList<DeepstreamClient> others = new ArrayList<>( subscription.sessions );
+                others.remove( session );
+                if( !others.isEmpty() ) {
+                    this.connection.dispatch( new Message( MessageBuilder.getMsg( topic, action, data ), topic, action, data ), others );
+                }
+            }
+        }
+    }
+
+    /**
+     * Sends a message that is already serialized and can't be routed
+     *
+     * @param message The message
+     */
+    void sendRaw( String message ) {
+        this.outgoing.add( message );
+        this.sendOutgoing();
+    }
+
+    /**
+     * Finds the sessions an incoming message is meant for
+     *
+     * @param message The message received
+     * @return The sessions to pass it on to, in the order they should get it
+     */
+    synchronized List<DeepstreamClient> route( Message message ) {
+        if( message.topic == Topic.RECORD ) {
+            return this.routeRecord( message );
+        } else if( message.topic == Topic.EVENT ) {
+            return this.routeEvent( message );
+        } else if( message.topic == Topic.RPC ) {
+            return this.routeRpc( message );
+        }
+        return this.toRoot();
+    }
+
+    private List<DeepstreamClient> routeRecord( Message message ) {
+        Actions action = message.action;
+
+        if( action == Actions.READ ) {
+            String name = message.data( 0 );
+            LinkedHashSet<DeepstreamClient> recipients = this.takeRequests( new Key( Topic.RECORD, Actions.SNAPSHOT, name ) );
+            Subscription subscription = this.subscriptions.get( new Key( Topic.RECORD, Actions.SUBSCRIBE, name ) );
+            if( subscription != null ) {
+                subscription.readPending = false;
+                recipients.addAll( subscription.awaitingRead );
+                subscription.awaitingRead.clear();
+            }
+            return new ArrayList<>( recipients );
+        }
+        if( action == Actions.UPDATE || action == Actions.PATCH || action == Actions.SUBSCRIPTION_HAS_PROVIDER ) {
+            return this.getSubscribers( new Key( Topic.RECORD, Actions.SUBSCRIBE, message.data( 0 ) ) );
+        }
+        if( action == Actions.HAS ) {
+            return new ArrayList<>( this.takeRequests( new Key( Topic.RECORD, Actions.HAS, message.data( 0 ) ) ) );
+        }
+        if( action == Actions.SUBSCRIPTION_FOR_PATTERN_FOUND || action == Actions.SUBSCRIPTION_FOR_PATTERN_REMOVED ) {
+            return this.getListener( new Key( Topic.RECORD, Actions.LISTEN, message.data( 0 ) ) );
+        }
+        if( action == Actions.ACK ) {
+            return this.routeAck( Topic.RECORD, Actions.getAction( message.data( 0 ) ), message.data( 1 ) );
+        }
+        if( action == Actions.ERROR && message.dataLength() > 1 ) {
+            String error = message.data( 0 );
+            String name = message.data( 1 );
+            if( error.equals( Actions.SNAPSHOT.toString() ) || error.equals( Actions.HAS.toString() ) ) {
+                return new ArrayList<>( this.takeRequests( new Key( Topic.RECORD, Actions.getAction( error ), name ) ) );
+            }
+            List<DeepstreamClient> subscribers = this.getSubscribers( new Key( Topic.RECORD, Actions.SUBSCRIBE, name ) );
+            return subscribers.isEmpty() ? this.toRoot() : subscribers;
+        }
+        return this.toRoot();
+    }
+
+    private List<DeepstreamClient> routeEvent( Message message ) {
+        Actions action = message.action;
+
+        if( action == Actions.EVENT ) {
+            return this.getSubscribers( new Key( Topic.EVENT, Actions.SUBSCRIBE, message.data( 0 ) ) );
+        }
+        if( action == Actions.SUBSCRIPTION_FOR_PATTERN_FOUND || action == Actions.SUBSCRIPTION_FOR_PATTERN_REMOVED ) {
+            return this.getListener( new Key( Topic.EVENT, Actions.LISTEN, message.data( 0 ) ) );
+        }
+        if( action == Actions.ACK ) {
+            return this.routeAck( Topic.EVENT, Actions.getAction( message.data( 0 ) ), message.data( 1 ) );
+        }
+        return this.toRoot();
+    }
+
+    private List<DeepstreamClient> routeRpc( Message message ) {
+        Actions action = message.action;
+
+        if( action == Actions.REQUEST ) {
+            return this.getListener( new Key( Topic.RPC, Actions.SUBSCRIBE, message.data( 0 ) ) );
+        }
+        if( action == Actions.ACK ) {
+            Actions acked = Actions.getAction( message.data( 0 ) );
+            if( acked == Actions.SUBSCRIBE || acked == Actions.UNSUBSCRIBE ) {
+                return this.routeAck( Topic.RPC, acked, message.data( 1 ) );
+            }
+        }
+        // Responses, request acks and errors carry the correlation id, which starts with the uid of the session
+        int index = action == Actions.ERROR ? 2 : 1;
+        if( message.dataLength() > index ) {
+            String correlationId = message.data( index );
+            int separator = correlationId.lastIndexOf( '-' );
+            DeepstreamClient session = separator > 0 ? this.sessionsByUid.get( correlationId.substring( 0, separator ) ) : null;
+            if( session != null ) {
+                List<DeepstreamClient> recipients = new ArrayList<>( 1 );
+                recipients.add( session );
+                return recipients;
+            }
+        }
+        return this.toRoot();
+    }
+
+    /**
+     * Acks for subscribes go to every session waiting for one, acks for unsubscribes and deletes to the session
+     * that sent it. A delete also ends the subscription, the server tells every subscriber about it.
+     */
+    private List<DeepstreamClient> routeAck( Topic topic, Actions action, String name ) {
+        if( action == Actions.SUBSCRIBE || action == Actions.LISTEN ) {
+            Subscription subscription = this.subscriptions.get( new Key( topic, action == Actions.LISTEN ? Actions.LISTEN : Actions.SUBSCRIBE, name ) );
+            if( subscription == null ) {
+                return new ArrayList<>();
+            }
+            subscription.acked = true;
+            ArrayList<DeepstreamClient> recipients = new ArrayList<>( subscription.awaitingAck );
+            subscription.awaitingAck.clear();
+            return recipients;
+        }
+        if( action == Actions.DELETE ) {
+            LinkedHashSet<DeepstreamClient> recipients = this.takeRequests( new Key( topic, action, name ) );
+            Subscription subscription = this.subscriptions.remove( new Key( topic, Actions.SUBSCRIBE, name ) );
+            if( subscription != null ) {
+                recipients.addAll( subscription.sessions );
+            }
+            return new ArrayList<>( recipients );
+        }
+        if( action == Actions.UNSUBSCRIBE || action == Actions.UNLISTEN ) {
+            return new ArrayList<>( this.takeRequests( new Key( topic, action, name ) ) );
+        }
+        return this.toRoot();
+    }
+
+    private void subscribe( DeepstreamClient session, Key key, Actions action, String[] data ) {
+        Subscription subscription = this.subscriptions.get( key );
+        if( subscription == null ) {
+            subscription = new Subscription();
+            this.subscriptions.put( key, subscription );
+        }
+        subscription.sessions.add( session );
+        boolean isRead = action == Actions.CREATEORREAD;
+
+        if( !subscription.sent ) {
+            subscription.sent = true;
+            subscription.acked = false;
+            subscription.awaitingAck.add( session );
+            if( isRead ) {
+                subscription.readPending = true;
+                subscription.awaitingRead.add( session );
+            }
+            this.queue( key.topic, action, data );
+            return;
+        }
+
+        if( subscription.acked ) {
+            this.synthesizeAck( session, key.topic, key.action, key.name );
+        } else {
+            subscription.awaitingAck.add( session );
+        }
+
+        if( isRead ) {
+            subscription.awaitingRead.add( session );
+            // Rather than keeping the last state around, a joining record asks for the current one
+            if( !subscription.readPending ) {
+                subscription.readPending = true;
+                this.queue( Topic.RECORD, Actions.SNAPSHOT, new String[] { key.name } );
+            }
+        }
+    }
+
+    private void unsubscribe( DeepstreamClient session, Key key, Actions action, String[] data ) {
+        Subscription subscription = this.subscriptions.get( key );
+        if( subscription == null || !subscription.remove( session ) ) {
+            this.queue( key.topic, action, data );
+            return;
+        }
+
+        if( subscription.sessions.isEmpty() ) {
+            this.subscriptions.remove( key );
+            if( subscription.sent ) {
+                this.addRequest( new Key( key.topic, action, key.name ), session );
+                this.queue( key.topic, action, data );
+                return;
+            }
+        }
+        this.synthesizeAck( session, key.topic, action, key.name );
+    }
+
+    /**
+     * Queues a message to be sent once the lock has been released, in the order it was queued in
+     */
+    private void queue( Topic topic, Actions action, String[] data ) {
+        this.outgoing.add( new Outgoing( topic, action, data ) );
+    }
+
+    private void sendOutgoing() {
+        if( this.outgoing.isEmpty() ) {
+            return;
+        }
+        this.sendLock.lock();
+        try {
+            Object message;
+            while( ( message = this.outgoing.poll() ) != null ) {
+                if( message instanceof Outgoing ) {
+                    Outgoing outgoing = (Outgoing) message;
+                    this.connection.sendMsg( outgoing.topic, outgoing.action, outgoing.data );
+                } else {
+                    this.connection.send( (String) message );
+                }
+            }
+        } finally {
+            this.sendLock.unlock();
+        }
+    }
+
+    private void synthesizeAck( DeepstreamClient session, Topic topic, Actions action, String name ) {
+        List<DeepstreamClient> recipients = new ArrayList<>( 1 );
+        recipients.add( session );
+        String[] data = new String[] { action.toString(), name };
+        this.connection.dispatch( new Message( MessageBuilder.getMsg( topic, Actions.ACK, data ), topic, Actions.ACK, data ), recipients );
+    }
+
+    private void addRequest( Key key, DeepstreamClient session ) {
+        LinkedHashSet<DeepstreamClient> requesters = this.requests.get( key );
+        if( requesters == null ) {
+            requesters = new LinkedHashSet<>();
+            this.requests.put( key, requesters );
+        }
+        requesters.add( session );
+    }
+
+    private LinkedHashSet<DeepstreamClient> takeRequests( Key key ) {
+        LinkedHashSet<DeepstreamClient> requesters = this.requests.remove( key );
+        return requesters != null ? requesters : new LinkedHashSet<DeepstreamClient>();
+    }
+
+    private List<DeepstreamClient> getSubscribers( Key key ) {
+        Subscription subscription = this.subscriptions.get( key );
+        return subscription != null ? new ArrayList<>( subscription.sessions ) : new ArrayList<DeepstreamClient>();
+    }
+
+    /**
+     * Listen patterns and rpcs are provided by the session that subscribed first, the others take over once it
+     * unsubscribes
+     */
+    private List<DeepstreamClient> getListener( Key key ) {
+        List<DeepstreamClient> recipients = new ArrayList<>( 1 );
+        Subscription subscription = this.subscriptions.get( key );
+        if( subscription != null && !subscription.sessions.isEmpty() ) {
+            recipients.add( subscription.sessions.iterator().next() );
+        }
+        return recipients;
+    }
+
+    private List<DeepstreamClient> toRoot() {
+        List<DeepstreamClient> recipients = new ArrayList<>( 1 );
+        recipients.add( this.root );
+        return recipients;
+    }
+
+    private static Actions getSubscribeKind( Topic topic, Actions action ) {
+        if( action == Actions.LISTEN && topic != Topic.RPC ) {
+            return Actions.LISTEN;
+        }
+        if( ( topic == Topic.RECORD && action == Actions.CREATEORREAD )
+                || ( topic != Topic.RECORD && action == Actions.SUBSCRIBE ) ) {
+            return Actions.SUBSCRIBE;
+        }
+        return null;
+    }
+
+    private static Actions getUnsubscribeKind( Topic topic, Actions action ) {
+        if( action == Actions.UNLISTEN && topic != Topic.RPC ) {
+            return Actions.LISTEN;
+        }
+        if( action == Actions.UNSUBSCRIBE ) {
+            return Actions.SUBSCRIBE;
+        }
+        return null;
+    }
+
+    private static boolean isRequest( Topic topic, Actions action ) {
+        return topic == Topic.RECORD && ( action == Actions.SNAPSHOT || action == Actions.HAS || action == Actions.DELETE );
+    }
+
+    /**
+     * @return true if the messages contain the request of a key, whatever data follows its name
+     */
+    private static boolean contains( String messages, Key key ) {
+        String message = MessageBuilder.getMsg( key.topic, key.action, new String[] { key.name } );
+        // Without its separator, so that the message may continue with more data
+        String start = message.substring( 0, message.length() - 1 );
+        char separator = message.charAt( message.length() - 1 );
+
+        for( int index = messages.indexOf( start ); index >= 0; index = messages.indexOf( start, index + 1 ) ) {
+            int end = index + start.length();
+            boolean startsMessage = index == 0 || messages.charAt( index - 1 ) == separator;
+            boolean endsField = end < messages.length() && ( messages.charAt( end ) == separator || messages.charAt( end ) == MPS );
+            if( startsMessage && endsField ) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isBroadcast( Topic topic, Actions action ) {
+        return ( topic == Topic.EVENT && action == Actions.EVENT )
+                || ( topic == Topic.RECORD && ( action == Actions.UPDATE || action == Actions.PATCH ) );
+    }
+
+    /**
+     * A record, event or rpc subscription, or a listen pattern, identified by its topic, its kind, either
+     * {@link Actions#SUBSCRIBE} or {@link Actions#LISTEN}, and its name
+     */
+    private static final class Key {
+        private final Topic topic;
+        private final Actions action;
+        private final String name;
+
+        Key( Topic topic, Actions action, String name ) {
+            this.topic = topic;
+            this.action = action;
+            this.name = name;
+        }
+
+        @Override
+        public boolean equals( Object other ) {
+            if( this == other ) {
+                return true;
+            }
+            if( !( other instanceof Key ) ) {
+                return false;
+            }
+            Key key = (Key) other;
+            return this.topic == key.topic && this.action == key.action
+                    && ( this.name == null ? key.name == null : this.name.equals( key.name ) );
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * ( 31 * this.topic.ordinal() + this.action.ordinal() ) + ( this.name == null ? 0 : this.name.hashCode() );
+        }
+    }
+
+    /**
+     * A message queued while holding the lock
+     */
+    private static final class Outgoing {
+        private final Topic topic;
+        private final Actions action;
+        private final String[] data;
+
+        Outgoing( Topic topic, Actions action, String[] data ) {
+            this.topic = topic;
+            this.action = action;
+            this.data = data;
+        }
+    }
+
+    /**
+     * The sessions subscribed to a key and what the connection has sent and received for it
+     */
+    private static class Subscription {
+        private final LinkedHashSet<DeepstreamClient> sessions = new LinkedHashSet<>();
+        private final LinkedHashSet<DeepstreamClient> awaitingAck = new LinkedHashSet<>();
+        private final LinkedHashSet<DeepstreamClient> awaitingRead = new LinkedHashSet<>();
+        private boolean sent;
+        private boolean acked;
+        private boolean readPending;
+
+        boolean remove( DeepstreamClient session ) {
+            this.awaitingAck.remove( session );
+            this.awaitingRead.remove( session );
+            return this.sessions.remove( session );
+        }
+    }
+}
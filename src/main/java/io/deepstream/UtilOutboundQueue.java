@@ -0,0 +1,212 @@
+package io.deepstream;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A bounded queue between the threads that send messages and the single thread that writes them to the socket.
+ *
+ * Adding and removing items is lock-free. The lock is only taken when the writer has nothing to do and waits for
+ * an item, or when a producer has to wait for space because the queue is full and the policy is
+ * {@link OutboundQueuePolicy#BLOCK}.
+ *
+ * @param <T> The type of the queued items
+ */
+class UtilOutboundQueue<T> {
+
+    private final ConcurrentLinkedQueue<T> queue;
+    private final AtomicInteger size;
+    private final AtomicInteger waitingProducers;
+    private final int capacity;
+    private final OutboundQueuePolicy policy;
+    private final ReentrantLock lock;
+    private final Condition notFull;
+    private final Condition notEmpty;
+    private volatile boolean consumerWaiting;
+    private volatile boolean closed;
+
+    /**
+     * @param deepstreamConfig The config containing the queue size and policy
+     */
+    UtilOutboundQueue( DeepstreamConfig deepstreamConfig ) {
+        this( deepstreamConfig.getOutboundQueueSize(), deepstreamConfig.getOutboundQueuePolicy() );
+    }
+
+    /**
+     * @param capacity The maximum amount of queued items
+     * @param policy What to do when an item is offered to a full queue
+     */
+    UtilOutboundQueue( int capacity, OutboundQueuePolicy policy ) {
+        this.queue = new ConcurrentLinkedQueue<>();
+        this.size = new AtomicInteger( 0 );
+        this.waitingProducers = new AtomicInteger( 0 );
+        this.capacity = capacity;
+        this.policy = policy;
+        this.lock = new ReentrantLock();
+        this.notFull = this.lock.newCondition();
+        this.notEmpty = this.lock.newCondition();
+        this.consumerWaiting = false;
+        this.closed = false;
+    }
+
+    /**
+     * Adds an item to the queue, applying the policy if the queue is full
+     *
+     * @param item The item to add
+     * @return false if the item was dropped, or the queue was closed
+     * @throws DeepstreamException Thrown if the queue is full and the policy is {@link OutboundQueuePolicy#FAIL}
+     */
+    boolean offer( T item ) throws DeepstreamException {
+        if( this.closed ) {
+            return false;
+        }
+
+        if( !this.tryReserve() ) {
+            if( this.policy == OutboundQueuePolicy.DROP ) {
+                return false;
+            }
+            if( this.policy == OutboundQueuePolicy.FAIL ) {
+                throw new DeepstreamException( Topic.CONNECTION, Event.OUTBOUND_QUEUE_FULL,
+                        String.format( "Outbound queue is full, can't queue more than %d messages", this.capacity ) );
+            }
+            if( !this.awaitCapacity() ) {
+                return false;
+            }
+        }
+
+        this.enqueue( item );
+        return true;
+    }
+
+    /**
+     * Adds an item to the queue if there is room for it, without applying the policy. Used by threads that must
+     * never wait for the consumer.
+     *
+     * @param item The item to add
+     * @return false if the queue is full, or was closed
+     */
+    boolean tryOffer( T item ) {
+        if( this.closed || !this.tryReserve() ) {
+            return false;
+        }
+        this.enqueue( item );
+        return true;
+    }
+
+    private void enqueue( T item ) {
+        this.queue.add( item );
+
+        if( this.consumerWaiting ) {
+            this.lock.lock();
+            try {
+                this.notEmpty.signal();
+            } finally {
+                this.lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * @return The next item without removing it, or null if the queue is empty
+     */
+    T peek() {
+        return this.queue.peek();
+    }
+
+    /**
+     * @return The next item, or null if the queue is empty
+     */
+    T poll() {
+        T item = this.queue.poll();
+        if( item != null ) {
+            this.size.decrementAndGet();
+            if( this.waitingProducers.get() > 0 ) {
+                this.lock.lock();
+                try {
+                    this.notFull.signal();
+                } finally {
+                    this.lock.unlock();
+                }
+            }
+        }
+        return item;
+    }
+
+    /**
+     * Waits for the next item. Only one thread may consume the queue at a time.
+     *
+     * @return The next item, or null once the queue is closed
+     * @throws InterruptedException Thrown if the thread is interrupted while waiting
+     */
+    T take() throws InterruptedException {
+        T item = this.poll();
+        if( item != null ) {
+            return item;
+        }
+
+        this.lock.lock();
+        try {
+            this.consumerWaiting = true;
+            while( this.queue.isEmpty() && !this.closed ) {
+                this.notEmpty.await();
+            }
+        } finally {
+            this.consumerWaiting = false;
+            this.lock.unlock();
+        }
+        return this.poll();
+    }
+
+    boolean isEmpty() {
+        return this.queue.isEmpty();
+    }
+
+    /**
+     * Discards all queued items and wakes up every waiting thread. Items offered after this are rejected.
+     */
+    void close() {
+        this.closed = true;
+        this.queue.clear();
+
+        this.lock.lock();
+        try {
+            this.notFull.signalAll();
+            this.notEmpty.signalAll();
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    private boolean tryReserve() {
+        int current;
+        do {
+            current = this.size.get();
+            if( current >= this.capacity ) {
+                return false;
+            }
+        } while( !this.size.compareAndSet( current, current + 1 ) );
+        return true;
+    }
+
+    private boolean awaitCapacity() {
+        this.lock.lock();
+        this.waitingProducers.incrementAndGet();
+        try {
+            while( !this.tryReserve() ) {
+                if( this.closed ) {
+                    return false;
+                }
+                this.notFull.await();
+            }
+            return true;
+        } catch( InterruptedException e ) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            this.waitingProducers.decrementAndGet();
+            this.lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package io.deepstream;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Coalesces outgoing messages into packets, so that applications that send lots of messages in quick succession
+ * don't pay for a write per message.
+ *
+ * A message sent while the queue is idle goes out straight away and opens a window of
+ * {@link DeepstreamConfig#getTimeBetweenSendingQueuedPackages()} milliseconds. Messages sent within that window
+ * are queued and sent as one packet once the window closes, or as soon as the packet contains
+ * {@link DeepstreamConfig#getMaxMessagesPerPacket()} messages.
+ */
+class UtilPacketQueue {
+
+    private final PacketSender packetSender;
+    private final DeepstreamRuntime runtime;
+    private final String laneKey;
+    private final int maxMessagesPerPacket;
+    private final int timeBetweenSendingQueuedPackages;
+    private final StringBuilder packet;
+    private final ConcurrentLinkedQueue<String> ready;
+    private final ReentrantLock sendLock;
+    private int messageCount;
+    private boolean flushScheduled;
+
+    /**
+     * @param deepstreamConfig The config containing the packet settings
+     * @param packetSender Where to send the packets to
+     * @param runtime The runtime whose scheduler closes the windows
+     * @param laneKey The key of the event lane the packets are sent from once a window closes
+     */
+    UtilPacketQueue( DeepstreamConfig deepstreamConfig, PacketSender packetSender, DeepstreamRuntime runtime, String laneKey ) {
+        this.packetSender = packetSender;
+        this.runtime = runtime;
+        this.laneKey = laneKey;
+        this.maxMessagesPerPacket = deepstreamConfig.getMaxMessagesPerPacket();
+        this.timeBetweenSendingQueuedPackages = deepstreamConfig.getTimeBetweenSendingQueuedPackages();
+        this.packet = new StringBuilder();
+        this.ready = new ConcurrentLinkedQueue<>();
+        this.sendLock = new ReentrantLock();
+        this.messageCount = 0;
+        this.flushScheduled = false;
+    }
+
+    /**
+     * Adds a message to the current packet, or sends it immediately if nothing has been sent recently
+     * @param message The message to send
+     */
+    void add( String message ) {
+        synchronized( this ) {
+            if( this.maxMessagesPerPacket <= 1 || this.timeBetweenSendingQueuedPackages <= 0 ) {
+                this.ready.add( message );
+            } else if( !this.flushScheduled ) {
+                this.ready.add( message );
+                this.scheduleFlush();
+            } else {
+                this.packet.append( message );
+                this.messageCount++;
+                if( this.messageCount >= this.maxMessagesPerPacket ) {
+                    this.takePacket();
+                }
+            }
+        }
+        this.sendReady();
+    }
+
+    /**
+     * Sends the current packet, if it contains any messages
+     */
+    void flush() {
+        synchronized( this ) {
+            this.takePacket();
+        }
+        this.sendReady();
+    }
+
+    /**
+     * @return The messages that are waiting for their window to close or to be handed to the sender, concatenated
+     */
+    synchronized String getQueued() {
+        StringBuilder queued = new StringBuilder();
+        for( String packet : this.ready ) {
+            queued.append( packet );
+        }
+        return queued.append( this.packet ).toString();
+    }
+
+    /**
+     * Moves the current packet to the packets that are ready to be sent
+     */
+    private void takePacket() {
+        if( this.messageCount == 0 ) {
+            return;
+        }
+        this.ready.add( this.packet.toString() );
+        this.packet.setLength( 0 );
+        this.messageCount = 0;
+    }
+
+    /**
+     * Hands the packets that are ready to the sender. Sending can block while the connection's outbound queue is
+     * full, so it happens outside the monitor, and the send lock keeps the packets in the order they were taken.
+     */
+    private void sendReady() {
+        if( this.ready.isEmpty() ) {
+            return;
+        }
+        this.sendLock.lock();
+        try {
+            String packet;
+            while( ( packet = this.ready.poll() ) != null ) {
+                this.packetSender.sendPacket( packet );
+            }
+        } finally {
+            this.sendLock.unlock();
+        }
+    }
+
+    /**
+     * Called at the end of every window. The window stays open for as long as messages keep arriving.
+     */
+    private void onTick() {
+        synchronized( this ) {
+            if( this.messageCount == 0 ) {
+                this.flushScheduled = false;
+                return;
+            }
+            this.takePacket();
+            this.scheduleFlush();
+        }
+        this.sendReady();
+    }
+
+    private void scheduleFlush() {
+        this.flushScheduled = true;
+        this.runtime.schedule(new Runnable() {
+            @Override
+            public void run() {
+                // The scheduler is shared by every client, so the packet is sent from the lane of the connection
+                runtime.getEventLanes().execute(laneKey, new Runnable() {
+                    @Override
+                    public void run() {
+                        onTick();
+                    }
+                });
+            }
+        }, this.timeBetweenSendingQueuedPackages );
+    }
+
+    interface PacketSender {
+        /**
+         * Called with one or more messages joined together
+         * @param packet The packet to send
+         */
+        void sendPacket( String packet );
+    }
+}
@@ -0,0 +1,273 @@
+package io.deepstream;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A prefix tree of record paths, in the syntax of {@link UtilJSONPath}, that finds the paths a change can affect
+ * without looking at the others. A path is split into its keys and array indices, so "pets[0].age" and
+ * "pets[ 0 ].age" end up in the same place.<br/>
+ *
+ * This class is thread-safe.
+ */
+class UtilPathTrie {
+
+    private final Node root = new Node();
+
+    /**
+     * @param path The path to add
+     */
+    synchronized void add( String path ) {
+        Node node = this.root;
+        for( String segment : segments( path ) ) {
+            Node child = node.children.get( segment );
+            if( child == null ) {
+                child = new Node();
+                node.children.put( segment, child );
+            }
+            node = child;
+        }
+        node.paths.add( path );
+    }
+
+    /**
+     * @param path The path to remove
+     */
+    synchronized void remove( String path ) {
+        ArrayList<Node> nodes = new ArrayList<>();
+        ArrayList<String> segments = segments( path );
+        Node node = this.root;
+        for( String segment : segments ) {
+            nodes.add( node );
+            node = node.children.get( segment );
+            if( node == null ) {
+                return;
+            }
+        }
+        node.paths.remove( path );
+
+        // Prune the nodes that no path goes through anymore
+        for( int i = segments.size() - 1; i >= 0 && node.isEmpty(); i-- ) {
+            Node parent = nodes.get( i );
+            parent.children.remove( segments.get( i ) );
+            node = parent;
+        }
+    }
+
+    /**
+     * Finds the paths whose value can change when the value at a path changes: the path itself, the paths
+     * above it and the paths below it
+     *
+     * @param path The path that changes, null or empty for the whole record
+     * @return The affected paths
+     */
+    synchronized Set<String> getAffected( String path ) {
+        Set<String> affected = new HashSet<>();
+        Node node = this.root;
+        for( String segment : segments( path ) ) {
+            affected.addAll( node.paths );
+            node = node.children.get( segment );
+            if( node == null ) {
+                return affected;
+            }
+        }
+        collect( node, affected );
+        return affected;
+    }
+
+    /**
+     * Finds the paths whose value differs between two versions of a record in a single walk over both, rather
+     * than looking up and comparing every path on its own. Parts of the json both versions share are skipped
+     * straight away, so comparing a version with a patched copy of it only walks the patched path.<br/>
+     *
+     * A path that is missing in one version and null in the other counts as unchanged, the same as when looking
+     * both up with {@link UtilJSONPath#get(JsonElement, String)}.
+     *
+     * @param oldRoot The previous version
+     * @param newRoot The new version
+     * @param changed The set the changed paths are added to
+     * @return true if the versions differ at all
+     */
+    synchronized boolean getChanged( JsonElement oldRoot, JsonElement newRoot, Set<String> changed ) {
+        return new Diff( oldRoot, newRoot, changed ).diff( this.root, oldRoot, newRoot );
+    }
+
+    private static void collect( Node node, Set<String> paths ) {
+        paths.addAll( node.paths );
+        for( Node child : node.children.values() ) {
+            collect( child, paths );
+        }
+    }
+
+    /**
+     * Splits a path into its keys and array indices, e.g. "a.b[3].c" into "a", "b", "[3]" and "c"
+     */
+    static ArrayList<String> segments( String path ) {
+        ArrayList<String> segments = new ArrayList<>();
+        if( path == null || path.isEmpty() ) {
+            return segments;
+        }
+        for( UtilCompiledPath.Token token : UtilCompiledPath.compile( path ).tokens ) {
+            segments.add( token.prefix );
+            if( token.isArray ) {
+                segments.add( "[" + token.index + "]" );
+            }
+        }
+        return segments;
+    }
+
+    /**
+     * A walk over two versions of a record, see {@link UtilPathTrie#getChanged(JsonElement, JsonElement, Set)}
+     */
+    private static class Diff {
+        private final JsonElement oldRoot;
+        private final JsonElement newRoot;
+        private final Set<String> changed;
+
+        Diff( JsonElement oldRoot, JsonElement newRoot, Set<String> changed ) {
+            this.oldRoot = oldRoot;
+            this.newRoot = newRoot;
+            this.changed = changed;
+        }
+
+        /**
+         * @return true if the values differ, in which case the paths of the node have been added
+         */
+        boolean diff( Node node, JsonElement oldValue, JsonElement newValue ) {
+            if( oldValue == newValue ) {
+                return false;
+            }
+
+            boolean differs;
+            if( node.children.isEmpty() ) {
+                differs = !orNull( oldValue ).equals( orNull( newValue ) );
+            } else if( isContainer( oldValue ) && isContainer( newValue ) ) {
+                differs = this.diffChildren( node, oldValue, newValue );
+            } else {
+                // Paths below a string or number resolve to the value itself, leave those to UtilJSONPath
+                differs = !orNull( oldValue ).equals( orNull( newValue ) );
+                for( Node child : node.children.values() ) {
+                    this.lookUp( child );
+                }
+            }
+
+            if( differs ) {
+                this.changed.addAll( node.paths );
+            }
+            return differs;
+        }
+
+        private boolean diffChildren( Node node, JsonElement oldValue, JsonElement newValue ) {
+            boolean differs = oldValue == null || newValue == null
+                    || oldValue.isJsonObject() != newValue.isJsonObject();
+            Set<String> visited = new HashSet<>();
+
+            if( oldValue != null && newValue != null && oldValue.isJsonObject() && newValue.isJsonObject() ) {
+                JsonObject oldObject = oldValue.getAsJsonObject();
+                JsonObject newObject = newValue.getAsJsonObject();
+                differs = oldObject.entrySet().size() != newObject.entrySet().size();
+                for( Map.Entry<String, JsonElement> entry : oldObject.entrySet() ) {
+                    JsonElement newEntry = newObject.get( entry.getKey() );
+                    Node child = node.children.get( entry.getKey() );
+                    if( child != null ) {
+                        visited.add( entry.getKey() );
+                        differs |= this.diff( child, entry.getValue(), newEntry ) || newEntry == null;
+                    } else if( !differs ) {
+                        differs = newEntry == null || !entry.getValue().equals( newEntry );
+                    }
+                }
+            } else if( oldValue != null && newValue != null && oldValue.isJsonArray() && newValue.isJsonArray() ) {
+                JsonArray oldArray = oldValue.getAsJsonArray();
+                JsonArray newArray = newValue.getAsJsonArray();
+                differs = oldArray.size() != newArray.size();
+                for( int i = 0; i < oldArray.size() && i < newArray.size(); i++ ) {
+                    Node child = node.children.get( "[" + i + "]" );
+                    if( child != null ) {
+                        visited.add( "[" + i + "]" );
+                        differs |= this.diff( child, oldArray.get( i ), newArray.get( i ) );
+                    } else if( !differs ) {
+                        differs = !oldArray.get( i ).equals( newArray.get( i ) );
+                    }
+                }
+            }
+
+            // Whatever the data didn't lead to, e.g. keys only one version has
+            for( Map.Entry<String, Node> entry : node.children.entrySet() ) {
+                String segment = entry.getKey();
+                if( visited.contains( segment ) ) {
+                    continue;
+                }
+                if( canStep( oldValue, segment ) && canStep( newValue, segment ) ) {
+                    this.diff( entry.getValue(), child( oldValue, segment ), child( newValue, segment ) );
+                } else {
+                    // e.g. a key on an array, which UtilJSONPath resolves in its own way
+                    this.lookUp( entry.getValue() );
+                }
+            }
+            return differs;
+        }
+
+        /**
+         * Compares the paths of a node and everything below it by looking each of them up
+         */
+        private void lookUp( Node node ) {
+            for( String path : node.paths ) {
+                if( !orNull( UtilJSONPath.get( this.oldRoot, path ) ).equals( orNull( UtilJSONPath.get( this.newRoot, path ) ) ) ) {
+                    this.changed.add( path );
+                }
+            }
+            for( Node child : node.children.values() ) {
+                this.lookUp( child );
+            }
+        }
+
+        private static JsonElement child( JsonElement element, String segment ) {
+            if( element == null ) {
+                return null;
+            }
+            if( segment.startsWith( "[" ) ) {
+                JsonArray array = element.getAsJsonArray();
+                int index = parseIndex( segment );
+                return index >= 0 && index < array.size() ? array.get( index ) : null;
+            }
+            return element.getAsJsonObject().get( segment );
+        }
+
+        private static int parseIndex( String segment ) {
+            try {
+                return Integer.parseInt( segment.substring( 1, segment.length() - 1 ) );
+            } catch( NumberFormatException e ) {
+                return -1;
+            }
+        }
+
+        private static boolean isContainer( JsonElement element ) {
+            return element == null || element.isJsonObject() || element.isJsonArray();
+        }
+
+        private static boolean canStep( JsonElement element, String segment ) {
+            return element == null || ( segment.startsWith( "[" ) ? element.isJsonArray() : element.isJsonObject() );
+        }
+
+        private static JsonElement orNull( JsonElement element ) {
+            return element == null ? JsonNull.INSTANCE : element;
+        }
+    }
+
+    private static class Node {
+        private final Map<String, Node> children = new HashMap<>();
+        private final Set<String> paths = new HashSet<>();
+
+        boolean isEmpty() {
+            return this.children.isEmpty() && this.paths.isEmpty();
+        }
+    }
+}
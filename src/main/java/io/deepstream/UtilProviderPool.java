@@ -0,0 +1,83 @@
+package io.deepstream;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the requests of a single rpc provider on its own threads, so that a slow provider doesn't hold up the
+ * other rpcs. At most concurrency requests run at a time and at most queueSize wait for a thread, requests
+ * beyond that have to be rejected by the caller.
+ */
+class UtilProviderPool {
+
+    private final ThreadPoolExecutor executor;
+    private final Semaphore permits;
+
+    /**
+     * @param rpcName The name of the rpc, used to name the threads
+     * @param concurrency The maximum amount of requests that are processed in parallel
+     * @param queueSize The maximum amount of requests waiting to be processed
+     */
+    UtilProviderPool( final String rpcName, int concurrency, int queueSize ) {
+        if( concurrency < 1 || queueSize < 0 ) {
+            throw new IllegalArgumentException( "Concurrency has to be at least 1 and the queue size can't be negative" );
+        }
+
+        this.permits = new Semaphore( concurrency + queueSize );
+        this.executor = new ThreadPoolExecutor( concurrency, concurrency, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread( Runnable runnable ) {
+                return new Thread( runnable, "deepstream-rpc-" + rpcName + "-" + count.incrementAndGet() );
+            }
+        } );
+        // Providers that are rarely called don't keep their threads around
+        this.executor.allowCoreThreadTimeOut( true );
+    }
+
+    /**
+     * Reserves room for a request, which has to be passed to {@link UtilProviderPool#execute(Runnable)} afterwards
+     *
+     * @return false if the pool is full and the request should be rejected
+     */
+    boolean tryReserve() {
+        return this.permits.tryAcquire();
+    }
+
+    /**
+     * @param request A request that room was reserved for using {@link UtilProviderPool#tryReserve()}
+     * @return false if the pool was shut down in the meantime and the request should be rejected
+     */
+    boolean execute( final Runnable request ) {
+        try {
+            this.executor.execute( new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        request.run();
+                    } finally {
+                        permits.release();
+                    }
+                }
+            } );
+            return true;
+        } catch( RejectedExecutionException e ) {
+            this.permits.release();
+            return false;
+        }
+    }
+
+    /**
+     * Stops accepting requests, requests that were already accepted are still processed
+     */
+    void shutdown() {
+        this.executor.shutdown();
+    }
+}
@@ -0,0 +1,100 @@
+package io.deepstream;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Caches the successful results of a single rpc by its typed arguments, see
+ * {@link RpcHandler#enableCache(String, int, int)}.
+ *
+ * Requests that are still in flight are kept in the cache as well, so identical calls made before the result
+ * arrives wait for the same request instead of sending their own. Results expire after the ttl, and the least
+ * recently used entries are evicted once the cache is full.
+ */
+class UtilRpcCache {
+
+    private final long ttlNanos;
+    private final LinkedHashMap<String, CachedRpc> entries;
+
+    /**
+     * @param ttl The time in milliseconds a result is cached for
+     * @param maxSize The maximum amount of cached results and requests in flight
+     */
+    UtilRpcCache( int ttl, final int maxSize ) {
+        if( ttl <= 0 || maxSize <= 0 ) {
+            throw new IllegalArgumentException( "The ttl and size of a rpc cache have to be positive" );
+        }
+
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos( ttl );
+        this.entries = new LinkedHashMap<String, CachedRpc>( 16, 0.75f, true ) {
+            @Override
+            protected boolean removeEldestEntry( Map.Entry<String, CachedRpc> eldest ) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * Looks up the result for the arguments, or adds the request if there is none
+     *
+     * @param typedData The arguments of the rpc in their typed form
+     * @param request The request to add if neither a result nor an identical request exists
+     * @return The cached result or the identical request in flight, or null if the request was added and
+     * has to be sent
+     */
+    synchronized DeepstreamFuture<RpcResult> getOrAdd( final String typedData, final DeepstreamFuture<RpcResult> request ) {
+        CachedRpc entry = this.entries.get( typedData );
+        if( entry != null && ( entry.inFlight || System.nanoTime() - entry.completedAt < this.ttlNanos ) ) {
+            return entry.result;
+        }
+
+        this.entries.put( typedData, new CachedRpc( request ) );
+        request.addListener( new DeepstreamFuture.Listener<RpcResult>() {
+            @Override
+            public void onSuccess( RpcResult result ) {
+                onComplete( typedData, request, result.success() );
+            }
+
+            @Override
+            public void onFailure( Throwable error ) {
+                onComplete( typedData, request, false );
+            }
+        } );
+        return null;
+    }
+
+    /**
+     * Removes all cached results
+     */
+    synchronized void clear() {
+        this.entries.clear();
+    }
+
+    /**
+     * Starts the ttl of successful results, failed requests are removed so the next call retries
+     */
+    private synchronized void onComplete( String typedData, DeepstreamFuture<RpcResult> request, boolean success ) {
+        CachedRpc entry = this.entries.get( typedData );
+        if( entry == null || entry.result != request ) {
+            return;
+        }
+        if( success ) {
+            entry.inFlight = false;
+            entry.completedAt = System.nanoTime();
+        } else {
+            this.entries.remove( typedData );
+        }
+    }
+
+    private static class CachedRpc {
+        final DeepstreamFuture<RpcResult> result;
+        boolean inFlight;
+        long completedAt;
+
+        CachedRpc( DeepstreamFuture<RpcResult> result ) {
+            this.result = result;
+            this.inFlight = true;
+        }
+    }
+}
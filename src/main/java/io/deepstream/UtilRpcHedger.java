@@ -0,0 +1,79 @@
+package io.deepstream;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decides when to hedge requests for a single rpc, see {@link RpcHandler#enableHedging(String, double)}.
+ *
+ * Keeps the latencies of the most recent responses and hedges a request once it has been waiting for longer than
+ * the configured percentile of them. Until enough responses have been seen requests aren't hedged at all, since a
+ * percentile of a handful of samples says little about the provider.
+ */
+class UtilRpcHedger {
+
+    private static final int WINDOW_SIZE = 100;
+    private static final int MIN_SAMPLES = 10;
+
+    private final double percentile;
+    private final long[] latencies;
+    private int sampleCount;
+    private int nextSample;
+
+    private long requests;
+    private long hedges;
+    private long hedgeWins;
+
+    /**
+     * @param percentile The percentile of recent latencies after which a request is hedged, between 0 and 100
+     */
+    UtilRpcHedger( double percentile ) {
+        if( !( percentile > 0 && percentile < 100 ) ) {
+            throw new IllegalArgumentException( "The hedging percentile has to be between 0 and 100" );
+        }
+
+        this.percentile = percentile;
+        this.latencies = new long[ WINDOW_SIZE ];
+    }
+
+    /**
+     * Called for every rpc made, the duplicate requests aside
+     *
+     * @return The time in milliseconds after which the request should be hedged, or -1 if it shouldn't be
+     */
+    synchronized long onRequest() {
+        this.requests++;
+        if( this.sampleCount < MIN_SAMPLES ) {
+            return -1;
+        }
+
+        long[] sorted = Arrays.copyOf( this.latencies, this.sampleCount );
+        Arrays.sort( sorted );
+        int index = (int) Math.ceil( this.percentile / 100 * sorted.length ) - 1;
+        return Math.max( 1, TimeUnit.NANOSECONDS.toMillis( sorted[ Math.max( 0, index ) ] ) );
+    }
+
+    /**
+     * Called for every duplicate request sent
+     */
+    synchronized void onHedge() {
+        this.hedges++;
+    }
+
+    /**
+     * @param latency The time in nanoseconds it took for a response to arrive
+     * @param hedgeWon true if the response came from a duplicate request and completed the rpc
+     */
+    synchronized void onResponse( long latency, boolean hedgeWon ) {
+        this.latencies[ this.nextSample ] = latency;
+        this.nextSample = ( this.nextSample + 1 ) % WINDOW_SIZE;
+        this.sampleCount = Math.min( WINDOW_SIZE, this.sampleCount + 1 );
+        if( hedgeWon ) {
+            this.hedgeWins++;
+        }
+    }
+
+    synchronized RpcHedgeMetrics getMetrics() {
+        return new RpcHedgeMetrics( this.requests, this.hedges, this.hedgeWins );
+    }
+}
@@ -0,0 +1,114 @@
+package io.deepstream;
+
+/**
+ * Limits the amount of requests for a single rpc that are in flight at once, see
+ * {@link RpcHandler#enableConcurrencyLimit(String, int, int)}.
+ *
+ * The limit adapts to how the provider copes (additive increase, multiplicative decrease): every fast response
+ * raises it by about one per round trip, while every response timeout and every response that takes more than
+ * twice as long as the fastest recent one lowers it by a tenth. Only the last {@value #WINDOW} to twice as many
+ * responses count as recent, so a single fast outlier is forgotten and a lasting change in latency becomes the new
+ * baseline rather than keeping the limit at its minimum. Requests beyond the limit are rejected rather
+ * than queued, so callers of a struggling provider fail fast instead of piling up.
+ */
+class UtilRpcLimiter {
+
+    private static final double BACKOFF = 0.9;
+    private static final int LATENCY_TOLERANCE = 2;
+    static final int WINDOW = 50;
+
+    private final int maxLimit;
+    private double limit;
+    private int inFlight;
+    private long windowMinLatency;
+    private long previousMinLatency;
+    private int windowSamples;
+
+    /**
+     * @param initialLimit The amount of requests allowed in flight to begin with
+     * @param maxLimit The maximum amount of requests allowed in flight
+     */
+    UtilRpcLimiter( int initialLimit, int maxLimit ) {
+        if( initialLimit < 1 || maxLimit < initialLimit ) {
+            throw new IllegalArgumentException( "The initial limit has to be at least 1 and not exceed the maximum limit" );
+        }
+
+        this.limit = initialLimit;
+        this.maxLimit = maxLimit;
+        this.windowMinLatency = Long.MAX_VALUE;
+        this.previousMinLatency = Long.MAX_VALUE;
+    }
+
+    /**
+     * Reserves room for a request, which has to be followed by exactly one call to
+     * {@link UtilRpcLimiter#onResponse(long)}, {@link UtilRpcLimiter#onTimeout()} or {@link UtilRpcLimiter#release()}
+     *
+     * @return false if the limit is reached and the request should fail
+     */
+    synchronized boolean tryAcquire() {
+        if( this.inFlight >= (int) this.limit ) {
+            return false;
+        }
+        this.inFlight++;
+        return true;
+    }
+
+    /**
+     * @param latency The time in nanoseconds it took for the response to arrive
+     */
+    synchronized void onResponse( long latency ) {
+        // Only grow while the limit is actually being used, otherwise a quiet period would inflate it. This counts
+        // the response itself, or a limit of one could never grow again.
+        boolean inUse = this.inFlight * 2 >= (int) this.limit;
+        this.inFlight--;
+        long minLatency = this.sample( latency );
+
+        if( latency > minLatency * LATENCY_TOLERANCE ) {
+            this.decrease();
+        }
+        else if( inUse ) {
+            this.limit = Math.min( this.maxLimit, this.limit + 1 / this.limit );
+        }
+    }
+
+    /**
+     * Called when the response didn't arrive in time
+     */
+    synchronized void onTimeout() {
+        this.inFlight--;
+        this.decrease();
+    }
+
+    /**
+     * Called when the request completed without telling anything about the provider's load, e.g. an error
+     */
+    synchronized void release() {
+        this.inFlight--;
+    }
+
+    /**
+     * @return The amount of requests currently allowed in flight
+     */
+    synchronized int getLimit() {
+        return (int) this.limit;
+    }
+
+    /**
+     * Adds a latency to the current window, starting a new one once it is full
+     * @return The lowest latency of the current and the previous window
+     */
+    private long sample( long latency ) {
+        this.windowMinLatency = Math.min( this.windowMinLatency, latency );
+        long minLatency = Math.min( this.windowMinLatency, this.previousMinLatency );
+        if( ++this.windowSamples >= WINDOW ) {
+            this.previousMinLatency = this.windowMinLatency;
+            this.windowMinLatency = Long.MAX_VALUE;
+            this.windowSamples = 0;
+        }
+        return minLatency;
+    }
+
+    private void decrease() {
+        this.limit = Math.max( 1, this.limit * BACKOFF );
+    }
+}
@@ -0,0 +1,208 @@
+package io.deepstream;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * A single selector thread that does the socket I/O for any number of {@link EndpointNIO}s, so the amount of
+ * threads no longer grows with the amount of clients.
+ *
+ * All {@link SelectorListener} callbacks happen on the loop thread, which is why they can all share one read buffer.
+ * The read buffer is a heap buffer so that decoders can scan its backing array directly.
+ * Anything that touches the selector from another thread has to go through {@link UtilSelectorLoop#execute(Runnable)}.
+ */
+class UtilSelectorLoop implements Runnable {
+
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+    private static UtilSelectorLoop sharedLoop;
+
+    private final Selector selector;
+    private final ConcurrentLinkedQueue<Runnable> tasks;
+    private final ByteBuffer readBuffer;
+    private final Thread thread;
+
+    /**
+     * Creates a selector loop and starts its thread
+     * @throws IOException Thrown if the selector can't be opened
+     */
+    UtilSelectorLoop() throws IOException {
+        this.selector = Selector.open();
+        this.tasks = new ConcurrentLinkedQueue<>();
+        this.readBuffer = ByteBuffer.allocate( READ_BUFFER_SIZE );
+        this.thread = new Thread( this, "deepstream-selector" );
+        this.thread.setDaemon( true );
+        this.thread.start();
+    }
+
+    /**
+     * Returns the loop shared by every endpoint in the JVM, creating it the first time it is needed
+     * @return The shared selector loop
+     * @throws IOException Thrown if the selector can't be opened
+     */
+    static synchronized UtilSelectorLoop getSharedLoop() throws IOException {
+        if( sharedLoop == null ) {
+            sharedLoop = new UtilSelectorLoop();
+        }
+        return sharedLoop;
+    }
+
+    /**
+     * Registers a channel with the selector. Once registered {@link SelectorListener#onRegistered(SelectionKey)}
+     * is called on the loop thread with the key that will be passed to all further callbacks.
+     *
+     * @param channel The non-blocking channel to register
+     * @param interestOps The initial interest set
+     * @param listener The listener that performs the actual I/O
+     */
+    void register( final SelectableChannel channel, final int interestOps, final SelectorListener listener ) {
+        this.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    SelectionKey key = channel.register( selector, interestOps, listener );
+                    listener.onRegistered( key );
+                } catch( IOException e ) {
+                    listener.onSelectorError( e );
+                }
+            }
+        });
+    }
+
+    /**
+     * Changes the interest set of a key from any thread
+     * @param key The key to update
+     * @param interestOps The new interest set
+     */
+    void setInterestOps( final SelectionKey key, final int interestOps ) {
+        this.execute(new Runnable() {
+            @Override
+            public void run() {
+                if( key.isValid() ) {
+                    key.interestOps( interestOps );
+                }
+            }
+        });
+    }
+
+    /**
+     * Runs the task on the loop thread before the next select
+     * @param task The task to run
+     */
+    void execute( Runnable task ) {
+        this.tasks.add( task );
+        if( Thread.currentThread() != this.thread ) {
+            this.selector.wakeup();
+        }
+    }
+
+    /**
+     * @return true if called from the loop thread, which must never block
+     */
+    boolean inLoop() {
+        return Thread.currentThread() == this.thread;
+    }
+
+    @Override
+    public void run() {
+        while( true ) {
+            runTasks();
+
+            try {
+                this.selector.select();
+            } catch( IOException e ) {
+                e.printStackTrace();
+                continue;
+            }
+
+            Iterator<SelectionKey> iterator = this.selector.selectedKeys().iterator();
+            while( iterator.hasNext() ) {
+                SelectionKey key = iterator.next();
+                iterator.remove();
+                dispatch( key );
+            }
+        }
+    }
+
+    private void runTasks() {
+        Runnable task;
+        while( ( task = this.tasks.poll() ) != null ) {
+            try {
+                task.run();
+            } catch( RuntimeException e ) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * A failing listener must never take the loop down with it, since the loop is shared
+     * with every other connection.
+     */
+    private void dispatch( SelectionKey key ) {
+        SelectorListener listener = (SelectorListener) key.attachment();
+        try {
+            if( key.isValid() && key.isConnectable() ) {
+                listener.onConnectable( key );
+            }
+            if( key.isValid() && key.isReadable() ) {
+                this.readBuffer.clear();
+                listener.onReadable( key, this.readBuffer );
+            }
+            if( key.isValid() && key.isWritable() ) {
+                listener.onWritable( key );
+            }
+        } catch( CancelledKeyException e ) {
+            // The channel was closed while its events were being dispatched
+        } catch( IOException e ) {
+            listener.onSelectorError( e );
+        } catch( RuntimeException e ) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Implemented by anything that wants its channel to be served by the loop. All methods are
+     * called on the loop thread.
+     */
+    interface SelectorListener {
+        /**
+         * Called once the channel has been registered with the selector
+         * @param key The selection key of the channel
+         */
+        void onRegistered( SelectionKey key );
+
+        /**
+         * Called when a pending connect can be completed
+         * @param key The selection key of the channel
+         * @throws IOException Thrown if the connection could not be established
+         */
+        void onConnectable( SelectionKey key ) throws IOException;
+
+        /**
+         * Called when the channel has data to read
+         * @param key The selection key of the channel
+         * @param readBuffer A cleared buffer shared by all channels, only valid for the duration of the call
+         * @throws IOException Thrown if reading failed
+         */
+        void onReadable( SelectionKey key, ByteBuffer readBuffer ) throws IOException;
+
+        /**
+         * Called when the channel can accept more data
+         * @param key The selection key of the channel
+         * @throws IOException Thrown if writing failed
+         */
+        void onWritable( SelectionKey key ) throws IOException;
+
+        /**
+         * Called if any of the above failed
+         * @param e The exception that occurred
+         */
+        void onSelectorError( IOException e );
+    }
+}
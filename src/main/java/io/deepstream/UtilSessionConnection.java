@@ -0,0 +1,46 @@
+package io.deepstream;
+
+/**
+ * The connection of a single session, it sends the messages of the session through the {@link UtilMultiplexer}
+ * of the connection it shares with other sessions
+ */
+class UtilSessionConnection implements IConnection {
+
+    private final UtilMultiplexer multiplexer;
+    private final DeepstreamClient session;
+    private volatile boolean closed;
+
+    /**
+     * @param multiplexer The multiplexer of the shared connection
+     * @param session The session sending the messages
+     */
+    UtilSessionConnection( UtilMultiplexer multiplexer, DeepstreamClient session ) {
+        this.multiplexer = multiplexer;
+        this.session = session;
+    }
+
+    @Override
+    public void sendMsg( Topic topic, Actions action, String[] data ) {
+        if( !this.closed ) {
+            this.multiplexer.send( this.session, topic, action, data );
+        }
+    }
+
+    /**
+     * Raw messages can't be routed, they are passed straight on to the connection
+     */
+    @Override
+    public void send( String message ) {
+        if( !this.closed ) {
+            this.multiplexer.sendRaw( message );
+        }
+    }
+
+    /**
+     * Stops sending messages and unsubscribes from everything no other session is subscribed to
+     */
+    void close() {
+        this.closed = true;
+        this.multiplexer.removeSession( this.session );
+    }
+}
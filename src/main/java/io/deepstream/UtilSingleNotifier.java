@@ -94,7 +94,7 @@ class UtilSingleNotifier implements UtilResubscribeNotifier.UtilResubscribeListe
     }
 
     private void send( String name ) {
-        connection.send( MessageBuilder.getMsg( topic, action, name ) );
+        connection.sendMsg( topic, action, new String[] { name } );
     }
 
     @Override
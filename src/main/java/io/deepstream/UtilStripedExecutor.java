@@ -0,0 +1,72 @@
+package io.deepstream;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs tasks on a fixed number of single threaded lanes, picking the lane by the key of the task. Tasks with
+ * the same key always run on the same lane in the order they were submitted, while tasks with different keys
+ * can run in parallel. A lane's thread stops after a minute without tasks and is started again when needed.
+ */
+class UtilStripedExecutor {
+
+    private final ThreadPoolExecutor[] lanes;
+
+    /**
+     * @param laneCount The amount of lanes, at least one lane is always created
+     * @param name The name of the lane threads, followed by the index of the lane
+     */
+    UtilStripedExecutor( int laneCount, final String name ) {
+        this.lanes = new ThreadPoolExecutor[ Math.max( 1, laneCount ) ];
+        for( int i = 0; i < this.lanes.length; i++ ) {
+            final String threadName = name + "-" + i;
+            this.lanes[ i ] = new ThreadPoolExecutor( 1, 1, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                @Override
+                public Thread newThread( Runnable runnable ) {
+                    return new Thread( runnable, threadName );
+                }
+            } );
+            this.lanes[ i ].allowCoreThreadTimeOut( true );
+        }
+    }
+
+    /**
+     * @param key The key that decides the lane, tasks with equal keys are run in order
+     * @param task The task to run
+     */
+    void execute( String key, Runnable task ) {
+        this.lanes[ this.laneFor( key ) ].execute( task );
+    }
+
+    /**
+     * @param key The key of a task
+     * @return The index of the lane the task will run on
+     */
+    int laneFor( String key ) {
+        if( key == null || this.lanes.length == 1 ) {
+            return 0;
+        }
+        // Spread the hash so that names only differing in their last characters still use all lanes
+        int hash = key.hashCode();
+        hash ^= ( hash >>> 16 );
+        return ( hash & 0x7fffffff ) % this.lanes.length;
+    }
+
+    /**
+     * @return The amount of lanes
+     */
+    int getLaneCount() {
+        return this.lanes.length;
+    }
+
+    /**
+     * Stops the lanes once the tasks they already accepted are done
+     */
+    void shutdown() {
+        for( ThreadPoolExecutor lane : this.lanes ) {
+            lane.shutdown();
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package io.deepstream;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A hashed timing wheel for the many short lived timeouts of a client, such as the ack and response timeouts
+ * in {@link UtilAckTimeoutRegistry}.<br/>
+ *
+ * Timeouts are kept in a ring of buckets, one per tick, each holding a linked list of the timeouts due in that
+ * tick or a later round of the wheel. Adding and cancelling a timeout is O(1) and a cancelled timeout is unlinked
+ * straight away rather than staying queued until its deadline. The price is precision, timeouts fire up to one
+ * tick late.<br/>
+ *
+ * All clients share one wheel and one ticker thread, see {@link UtilTimingWheel#getShared()}. Expired tasks run
+ * on the ticker thread, so they have to return quickly.
+ */
+class UtilTimingWheel {
+
+    private static final long TICK_MILLIS = 10;
+    private static final int WHEEL_SIZE = 512;
+
+    private static UtilTimingWheel shared;
+
+    private final long tickNanos;
+    private final Timeout[] buckets;
+    private final int mask;
+    private long tick;
+
+    /**
+     * @param tickMillis The duration of a tick in milliseconds
+     * @param wheelSize The amount of buckets, rounded up to a power of two
+     */
+    UtilTimingWheel( long tickMillis, int wheelSize ) {
+        int size = Integer.highestOneBit( Math.max( 1, wheelSize - 1 ) ) << 1;
+        this.tickNanos = TimeUnit.MILLISECONDS.toNanos( tickMillis );
+        this.buckets = new Timeout[ size ];
+        this.mask = size - 1;
+    }
+
+    /**
+     * @return The wheel shared by all clients, ticking on a daemon thread
+     */
+    static synchronized UtilTimingWheel getShared() {
+        if( shared == null ) {
+            shared = new UtilTimingWheel( TICK_MILLIS, WHEEL_SIZE );
+            shared.start( "deepstream-timer" );
+        }
+        return shared;
+    }
+
+    /**
+     * Schedules a task
+     *
+     * @param task The task to run once the delay has passed
+     * @param delay The delay in milliseconds
+     * @return The timeout, which can be used to cancel the task
+     */
+    Timeout add( Runnable task, long delay ) {
+        long ticks = Math.max( 1, ( TimeUnit.MILLISECONDS.toNanos( delay ) + this.tickNanos - 1 ) / this.tickNanos );
+        Timeout timeout = new Timeout( this, task );
+        synchronized( this ) {
+            timeout.deadline = this.tick + ticks;
+            this.link( timeout );
+        }
+        return timeout;
+    }
+
+    /**
+     * Advances the wheel by one tick and runs the tasks that are due
+     */
+    void tick() {
+        ArrayList<Runnable> expired = null;
+        synchronized( this ) {
+            this.tick++;
+            Timeout timeout = this.buckets[ (int) ( this.tick & this.mask ) ];
+            while( timeout != null ) {
+                Timeout next = timeout.next;
+                if( timeout.deadline <= this.tick ) {
+                    this.unlink( timeout );
+                    if( expired == null ) {
+                        expired = new ArrayList<>();
+                    }
+                    expired.add( timeout.task );
+                }
+                timeout = next;
+            }
+        }
+
+        if( expired != null ) {
+            for( Runnable task : expired ) {
+                try {
+                    task.run();
+                } catch( RuntimeException e ) {
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+
+    private void start( String name ) {
+        Thread ticker = new Thread( new Runnable() {
+            @Override
+            public void run() {
+                long start = System.nanoTime();
+                long ticks = 0;
+                while( true ) {
+                    long sleep = start + ( ticks + 1 ) * tickNanos - System.nanoTime();
+                    if( sleep > 0 ) {
+                        try {
+                            TimeUnit.NANOSECONDS.sleep( sleep );
+                        } catch( InterruptedException e ) {
+                            return;
+                        }
+                    }
+                    tick();
+                    ticks++;
+                }
+            }
+        }, name );
+        ticker.setDaemon( true );
+        ticker.start();
+    }
+
+    private void link( Timeout timeout ) {
+        int index = (int) ( timeout.deadline & this.mask );
+        Timeout head = this.buckets[ index ];
+        timeout.next = head;
+        if( head != null ) {
+            head.prev = timeout;
+        }
+        this.buckets[ index ] = timeout;
+        timeout.linked = true;
+    }
+
+    private void unlink( Timeout timeout ) {
+        if( timeout.prev != null ) {
+            timeout.prev.next = timeout.next;
+        } else {
+            this.buckets[ (int) ( timeout.deadline & this.mask ) ] = timeout.next;
+        }
+        if( timeout.next != null ) {
+            timeout.next.prev = timeout.prev;
+        }
+        timeout.prev = null;
+        timeout.next = null;
+        timeout.linked = false;
+    }
+
+    /**
+     * A task scheduled on the wheel
+     */
+    static class Timeout {
+        private final UtilTimingWheel wheel;
+        private final Runnable task;
+        private long deadline;
+        private boolean linked;
+        private Timeout prev;
+        private Timeout next;
+
+        private Timeout( UtilTimingWheel wheel, Runnable task ) {
+            this.wheel = wheel;
+            this.task = task;
+        }
+
+        /**
+         * @return true if the task was cancelled, false if it already ran or was cancelled before
+         */
+        boolean cancel() {
+            synchronized( this.wheel ) {
+                if( !this.linked ) {
+                    return false;
+                }
+                this.wheel.unlink( this );
+                return true;
+            }
+        }
+    }
+}
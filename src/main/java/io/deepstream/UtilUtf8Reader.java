@@ -0,0 +1,111 @@
+package io.deepstream;
+
+import java.io.Reader;
+
+/**
+ * Reads chars straight from UTF-8 encoded bytes, so that a message field can be handed to a parser
+ * without decoding it into a String first. Malformed input is replaced with U+FFFD.
+ */
+class UtilUtf8Reader extends Reader {
+
+    private static final char REPLACEMENT = '\ufffd';
+
+    private final byte[] buffer;
+    private final int end;
+    private int position;
+    private char pendingLowSurrogate;
+
+    /**
+     * @param buffer The buffer containing the bytes
+     * @param offset The index of the first byte
+     * @param length The amount of bytes to read
+     */
+    UtilUtf8Reader( byte[] buffer, int offset, int length ) {
+        this.buffer = buffer;
+        this.position = offset;
+        this.end = offset + length;
+        this.pendingLowSurrogate = 0;
+    }
+
+    @Override
+    public int read( char[] chars, int offset, int length ) {
+        if( length == 0 ) {
+            return 0;
+        }
+        if( this.position >= this.end && this.pendingLowSurrogate == 0 ) {
+            return -1;
+        }
+
+        int count = 0;
+        if( this.pendingLowSurrogate != 0 ) {
+            chars[ offset + count++ ] = this.pendingLowSurrogate;
+            this.pendingLowSurrogate = 0;
+        }
+
+        while( count < length && this.position < this.end ) {
+            int b = this.buffer[ this.position ];
+            if( b >= 0 ) {
+                chars[ offset + count++ ] = (char) b;
+                this.position++;
+                continue;
+            }
+
+            int codePoint = this.decodeMultiByte();
+            if( codePoint < 0x10000 ) {
+                chars[ offset + count++ ] = (char) codePoint;
+            } else {
+                chars[ offset + count++ ] = Character.highSurrogate( codePoint );
+                char low = Character.lowSurrogate( codePoint );
+                if( count < length ) {
+                    chars[ offset + count++ ] = low;
+                } else {
+                    this.pendingLowSurrogate = low;
+                }
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public void close() {
+    }
+
+    /**
+     * Decodes the multi byte sequence at the current position and advances past it
+     */
+    private int decodeMultiByte() {
+        int b = this.buffer[ this.position++ ] & 0xff;
+        int continuationBytes;
+        int codePoint;
+        int minimum;
+
+        if( ( b & 0xe0 ) == 0xc0 ) {
+            continuationBytes = 1;
+            codePoint = b & 0x1f;
+            minimum = 0x80;
+        } else if( ( b & 0xf0 ) == 0xe0 ) {
+            continuationBytes = 2;
+            codePoint = b & 0x0f;
+            minimum = 0x800;
+        } else if( ( b & 0xf8 ) == 0xf0 ) {
+            continuationBytes = 3;
+            codePoint = b & 0x07;
+            minimum = 0x10000;
+        } else {
+            return REPLACEMENT;
+        }
+
+        for( int i = 0; i < continuationBytes; i++ ) {
+            if( this.position >= this.end || ( this.buffer[ this.position ] & 0xc0 ) != 0x80 ) {
+                return REPLACEMENT;
+            }
+            codePoint = ( codePoint << 6 ) | ( this.buffer[ this.position++ ] & 0x3f );
+        }
+
+        if( codePoint < minimum || codePoint > Character.MAX_CODE_POINT
+                || ( codePoint >= Character.MIN_SURROGATE && codePoint <= Character.MAX_SURROGATE ) ) {
+            return REPLACEMENT;
+        }
+        return codePoint;
+    }
+}
@@ -29,7 +29,7 @@ public class ConnectionTest {
         this.deepstreamClientMock = mock(DeepstreamClient.class);
 
         this.endpointMock = new EndpointMock(originalUrl, this.connection);
-        this.connection = new Connection(originalUrl, new DeepstreamConfig(), this.deepstreamClientMock, this.endpointMock);
+        this.connection = new Connection(originalUrl, new DeepstreamConfig(), this.deepstreamClientMock, this.endpointMock, new DeepstreamRuntime(1));
         this.endpointMock.setConnection( this.connection );
 
         this.connectionStateListenerMock = mock(ConnectionStateListener.class);
@@ -124,6 +124,21 @@ public class ConnectionTest {
         verify( deepstreamClientMock, times( 1 ) ).onError( Topic.ERROR, Event.IS_CLOSED, "The client\'s connection was closed" );
     }
 
+    @Test
+    public void messagesKeepTheirOrderWhenTheConnectionDropsWhileTheyAreQueued() throws Exception {
+        this.gettingValidAuthenticationBack();
+
+        connection.send( "A" );
+        connection.send( "B" );
+        endpointMock.sendError( new Exception( "Connection lost" ) );
+        connection.send( "C" );
+        Thread.sleep( 100 );
+
+        endpointMock.sendOpenEvent();
+        endpointMock.sendMessage( MessageBuilder.getMsg( Topic.AUTH, Actions.ACK ) );
+        assertEquals( "BC", endpointMock.lastSentMessage );
+    }
+
     private void verifyConnectionState( ConnectionState connectionState) {
         assertEquals( this.connection.getConnectionState(), connectionState);
         verify( this.connectionStateListenerMock, atLeastOnce() ).connectionStateChanged(connectionState);
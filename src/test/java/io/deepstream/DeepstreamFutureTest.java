@@ -0,0 +1,90 @@
+package io.deepstream;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+@RunWith( JUnit4.class )
+public class DeepstreamFutureTest {
+
+    @Test
+    public void notifiesListenersOnce() {
+        DeepstreamFuture<String> future = new DeepstreamFuture<>();
+        RecordingListener before = new RecordingListener();
+        future.addListener( before );
+
+        Assert.assertTrue( future.complete( "result" ) );
+        Assert.assertFalse( future.complete( "other" ) );
+        Assert.assertFalse( future.fail( new DeepstreamError( "error" ) ) );
+
+        RecordingListener after = new RecordingListener();
+        future.addListener( after );
+
+        Assert.assertEquals( "[result]", before.results.toString() );
+        Assert.assertEquals( "[result]", after.results.toString() );
+        Assert.assertTrue( future.isDone() );
+    }
+
+    @Test
+    public void reportsFailures() throws InterruptedException {
+        DeepstreamFuture<String> future = new DeepstreamFuture<>();
+        RecordingListener listener = new RecordingListener();
+        future.addListener( listener );
+        future.fail( new DeepstreamError( "RECORD_NOT_FOUND" ) );
+
+        Assert.assertEquals( "RECORD_NOT_FOUND", listener.errors.get( 0 ).getMessage() );
+        try {
+            future.get();
+            Assert.fail();
+        } catch( ExecutionException e ) {
+            Assert.assertTrue( e.getCause() instanceof DeepstreamError );
+        }
+    }
+
+    @Test
+    public void cancelsAndTimesOut() throws Exception {
+        DeepstreamFuture<String> future = new DeepstreamFuture<>();
+        try {
+            future.get( 10, TimeUnit.MILLISECONDS );
+            Assert.fail();
+        } catch( TimeoutException e ) {
+            // expected
+        }
+
+        RecordingListener listener = new RecordingListener();
+        future.addListener( listener );
+        Assert.assertTrue( future.cancel( false ) );
+        Assert.assertTrue( future.isCancelled() );
+        Assert.assertFalse( future.complete( "late" ) );
+        Assert.assertTrue( listener.errors.get( 0 ) instanceof CancellationException );
+        try {
+            future.get();
+            Assert.fail();
+        } catch( CancellationException e ) {
+            // expected
+        }
+    }
+
+    private static class RecordingListener implements DeepstreamFuture.Listener<String> {
+        final List<String> results = new ArrayList<>();
+        final List<Throwable> errors = new ArrayList<>();
+
+        @Override
+        public void onSuccess( String result ) {
+            results.add( result );
+        }
+
+        @Override
+        public void onFailure( Throwable error ) {
+            errors.add( error );
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package io.deepstream;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+@RunWith( JUnit4.class )
+public class DeepstreamRuntimeTest {
+
+    @Test
+    public void runsScheduledTasksOnADaemonThread() throws InterruptedException {
+        DeepstreamRuntime runtime = new DeepstreamRuntime( 1 );
+        final CountDownLatch ran = new CountDownLatch( 1 );
+        final boolean[] daemon = new boolean[ 1 ];
+        runtime.schedule( new Runnable() {
+            @Override
+            public void run() {
+                daemon[ 0 ] = Thread.currentThread().isDaemon();
+                ran.countDown();
+            }
+        }, 10 );
+
+        Assert.assertTrue( ran.await( 5, TimeUnit.SECONDS ) );
+        Assert.assertTrue( daemon[ 0 ] );
+        runtime.shutdown();
+    }
+
+    @Test
+    public void cancelledTasksDoNotRun() throws InterruptedException {
+        DeepstreamRuntime runtime = new DeepstreamRuntime( 1 );
+        final CountDownLatch ran = new CountDownLatch( 1 );
+        runtime.schedule( new Runnable() {
+            @Override
+            public void run() {
+                ran.countDown();
+            }
+        }, 20 ).cancel( false );
+
+        Assert.assertFalse( ran.await( 100, TimeUnit.MILLISECONDS ) );
+        runtime.shutdown();
+    }
+
+    @Test( expected = RejectedExecutionException.class )
+    public void rejectsTasksOnceShutDown() {
+        DeepstreamRuntime runtime = new DeepstreamRuntime( 1 );
+        runtime.shutdown();
+        runtime.execute( new Runnable() {
+            @Override
+            public void run() {
+            }
+        } );
+    }
+}
@@ -137,6 +137,27 @@ public class JSONPathTest {
         Assert.assertEquals( "randomValue", coreElement.get( "randomKey" ).getAsString() );
     }
 
+    @Test
+    public void copiesOnlyThePathThatIsSet() {
+        JsonObject copy = UtilJSONPath.copyWith( coreElement, "pastAddresses[1].street", gson.toJsonTree( "someStreet" ) ).getAsJsonObject();
+
+        Assert.assertEquals( "secondstreet", jsonPath.get( "pastAddresses[1].street" ).getAsString() );
+        Assert.assertEquals( "someStreet", UtilJSONPath.get( copy, "pastAddresses[1].street" ).getAsString() );
+        Assert.assertSame( coreElement.get( "address" ), copy.get( "address" ) );
+        Assert.assertSame(
+                coreElement.get( "pastAddresses" ).getAsJsonArray().get( 0 ),
+                copy.get( "pastAddresses" ).getAsJsonArray().get( 0 )
+        );
+    }
+
+    @Test
+    public void copiesWhenExtendingArrays() {
+        JsonObject copy = UtilJSONPath.copyWith( coreElement, "randomKey[ 0 ].name", gson.toJsonTree( "randomValue" ) ).getAsJsonObject();
+
+        Assert.assertNull( coreElement.get( "randomKey" ) );
+        Assert.assertEquals( "randomValue", UtilJSONPath.get( copy, "randomKey[0].name" ).getAsString() );
+    }
+
     @Test
     public void extendsExisitingArrays() {
         jsonPath.set( "randomKey[ 0 ].name", gson.toJsonTree( "randomValue" ) );
@@ -0,0 +1,83 @@
+package io.deepstream;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonSyntaxException;
+import io.deepstream.jackson.JacksonPayloadSerializer;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+@RunWith( JUnit4.class )
+public class JacksonPayloadSerializerTest {
+
+    private static final Charset UTF8 = Charset.forName( "UTF-8" );
+    private static final String JSON = "{\"name\":\"s\u00e9m\ud83d\ude00\",\"age\":1.50,\"tags\":[1,true,null,\"a\"],\"address\":{\"street\":\"b\"}}";
+
+    JacksonPayloadSerializer serializer;
+    GsonPayloadSerializer gsonSerializer;
+
+    @Before
+    public void setUp() {
+        this.serializer = new JacksonPayloadSerializer();
+        this.gsonSerializer = new GsonPayloadSerializer();
+    }
+
+    @Test
+    public void parsesTheSameTreeAsGson() {
+        byte[] bytes = ( "xx" + JSON + "yy" ).getBytes( UTF8 );
+        JsonElement expected = gsonSerializer.parse( JSON );
+
+        Assert.assertEquals( expected, serializer.parse( JSON ) );
+        Assert.assertEquals( expected, serializer.parse( bytes, 2, bytes.length - 4 ) );
+        Assert.assertEquals( "1.50", serializer.parse( JSON ).getAsJsonObject().get( "age" ).getAsString() );
+        Assert.assertNull( serializer.parse( "" ) );
+    }
+
+    @Test
+    public void writesTreesLikeGson() {
+        JsonObject tree = gsonSerializer.parse( JSON ).getAsJsonObject();
+        tree.add( "missing", JsonNull.INSTANCE );
+
+        Assert.assertEquals( gsonSerializer.toJson( tree ), serializer.toJson( tree ) );
+        Assert.assertEquals( tree.get( "tags" ).toString(), serializer.toTypedJson( tree.get( "tags" ) ) );
+    }
+
+    @Test
+    public void convertsObjectsWithGson() {
+        Map<String, Object> value = new HashMap<>();
+        value.put( "name", "sam" );
+
+        Assert.assertEquals( "{\"name\":\"sam\"}", serializer.toJson( value ) );
+        Assert.assertEquals( "sam", serializer.toJsonTree( value ).getAsJsonObject().get( "name" ).getAsString() );
+    }
+
+    @Test( expected = JsonSyntaxException.class )
+    public void rejectsMalformedJson() {
+        serializer.parse( "{\"name\":" );
+    }
+
+    @Test
+    public void isSelectedByConfig() throws InvalidDeepstreamConfig {
+        Properties properties = new Properties();
+        properties.setProperty( ConfigOptions.PAYLOAD_SERIALIZER.toString(), JacksonPayloadSerializer.class.getName() );
+
+        Assert.assertTrue( new DeepstreamConfig( properties ).getPayloadSerializer() instanceof JacksonPayloadSerializer );
+        Assert.assertTrue( new DeepstreamConfig().getPayloadSerializer() instanceof GsonPayloadSerializer );
+    }
+
+    @Test( expected = InvalidDeepstreamConfig.class )
+    public void rejectsUnknownSerializers() throws InvalidDeepstreamConfig {
+        Properties properties = new Properties();
+        properties.setProperty( ConfigOptions.PAYLOAD_SERIALIZER.toString(), "io.deepstream.Missing" );
+        new DeepstreamConfig( properties );
+    }
+}
@@ -0,0 +1,125 @@
+package io.deepstream;
+
+import com.google.gson.JsonElement;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.nio.charset.Charset;
+import java.util.List;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+@RunWith( JUnit4.class )
+public class MessageParserTest {
+
+    private static final Charset UTF8 = Charset.forName( "UTF-8" );
+
+    DeepstreamClientMock deepstreamClientMock;
+    DeepstreamRuntimeErrorHandler errorCallbackMock;
+
+    @Before
+    public void setUp() {
+        this.deepstreamClientMock = new DeepstreamClientMock();
+        this.errorCallbackMock = mock( DeepstreamRuntimeErrorHandler.class );
+        this.deepstreamClientMock.setRuntimeErrorHandler( errorCallbackMock );
+    }
+
+    @Test
+    public void parsesMessageFields() {
+        Message message = MessageParser.parseMessage( TestUtil.replaceSeperators( "R|R|recordA|1|{\"name\":\"sam\"}" ), deepstreamClientMock );
+
+        Assert.assertEquals( Topic.RECORD, message.topic );
+        Assert.assertEquals( Actions.READ, message.action );
+        Assert.assertEquals( 3, message.dataLength() );
+        Assert.assertEquals( "recordA", message.data( 0 ) );
+        Assert.assertEquals( "1", message.data( 1 ) );
+        Assert.assertEquals( TestUtil.replaceSeperators( "R|R|recordA|1|{\"name\":\"sam\"}" ), message.raw() );
+    }
+
+    @Test
+    public void parsesMessageFromTheMiddleOfABuffer() {
+        byte[] bytes = TestUtil.replaceSeperators( "E|EVT|event1|Sd\u00e9j\u00e0 vu+E|A|S|event2+" ).getBytes( UTF8 );
+        int length = TestUtil.replaceSeperators( "E|EVT|event1|Sd\u00e9j\u00e0 vu" ).getBytes( UTF8 ).length;
+
+        Message message = MessageParser.parseMessage( bytes, length + 1, bytes.length - length - 2, deepstreamClientMock );
+
+        Assert.assertEquals( Actions.ACK, message.action );
+        Assert.assertEquals( "event2", message.data( 1 ) );
+
+        message = MessageParser.parseMessage( bytes, 0, length, deepstreamClientMock );
+        Assert.assertEquals( "Sd\u00e9j\u00e0 vu", message.data( 1 ) );
+    }
+
+    @Test
+    public void dropsTrailingEmptyFields() {
+        Message message = MessageParser.parseMessage( TestUtil.replaceSeperators( "E|EVT|event1||" ), deepstreamClientMock );
+        Assert.assertEquals( 1, message.dataLength() );
+
+        message = MessageParser.parseMessage( TestUtil.replaceSeperators( "E|EVT||event1" ), deepstreamClientMock );
+        Assert.assertEquals( 2, message.dataLength() );
+        Assert.assertEquals( "", message.data( 0 ) );
+    }
+
+    @Test
+    public void parsesEveryMessageInABlock() {
+        List<Message> messages = MessageParser.parse( TestUtil.replaceSeperators( "E|A|S|event1+E|A|S|event2+" ), deepstreamClientMock );
+        Assert.assertEquals( 2, messages.size() );
+        Assert.assertEquals( "event2", messages.get( 1 ).data( 1 ) );
+    }
+
+    @Test
+    public void readsPayloadWithoutDecodingIt() {
+        Message message = MessageParser.parseMessage( TestUtil.replaceSeperators( "R|R|recordA|1|{\"name\":\"\u00e9\ud83d\ude00\"}" ), deepstreamClientMock );
+        JsonElement data = deepstreamClientMock.getJsonCodec().parse( message, 2 );
+        Assert.assertEquals( "\u00e9\ud83d\ude00", data.getAsJsonObject().get( "name" ).getAsString() );
+    }
+
+    @Test
+    public void convertsTypedFields() {
+        Message message = MessageParser.parseMessage( TestUtil.replaceSeperators( "E|EVT|event1|O{\"a\":1}|SsomeString|N12" ), deepstreamClientMock );
+        JsonElement object = (JsonElement) MessageParser.convertTyped( message, 1, deepstreamClientMock );
+
+        Assert.assertEquals( 1, object.getAsJsonObject().get( "a" ).getAsInt() );
+        Assert.assertEquals( "someString", MessageParser.convertTyped( message, 2, deepstreamClientMock ) );
+        Assert.assertEquals( 12f, MessageParser.convertTyped( message, 3, deepstreamClientMock ) );
+    }
+
+    @Test
+    public void decodesEveryTopicAndAction() {
+        for( Topic topic : Topic.values() ) {
+            for( Actions action : Actions.values() ) {
+                Message message = MessageParser.parseMessage( MessageBuilder.getMsg( topic, action, "data" ), deepstreamClientMock );
+                Assert.assertEquals( topic, message.topic );
+                Assert.assertEquals( action, message.action );
+                Assert.assertEquals( action, Actions.getAction( action.toString() ) );
+            }
+        }
+        for( Types type : Types.values() ) {
+            Assert.assertEquals( type, Types.getType( type.toString().charAt( 0 ) ) );
+        }
+    }
+
+    @Test
+    public void reportsUnknownActions() {
+        Assert.assertNull( MessageParser.parseMessage( TestUtil.replaceSeperators( "E|EVTX|event1" ), deepstreamClientMock ) );
+        verify( errorCallbackMock ).onException( null, Event.MESSAGE_PARSE_ERROR, "Unknown action EVTX" );
+        Assert.assertNull( Actions.getAction( "EV" ) );
+        Assert.assertNull( Types.getType( '\u00e9' ) );
+    }
+
+    @Test
+    public void reportsUnknownTopics() {
+        Assert.assertNull( MessageParser.parseMessage( TestUtil.replaceSeperators( "Z|A|S|event1" ), deepstreamClientMock ) );
+        verify( errorCallbackMock ).onException( null, Event.MESSAGE_PARSE_ERROR, "Received message for unknown topic Z" );
+    }
+
+    @Test
+    public void reportsInsufficientParts() {
+        Assert.assertNull( MessageParser.parseMessage( TestUtil.replaceSeperators( "E|" ), deepstreamClientMock ) );
+        verify( errorCallbackMock ).onException( null, Event.MESSAGE_PARSE_ERROR, "Insufficient message parts" );
+    }
+}
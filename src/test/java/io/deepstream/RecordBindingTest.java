@@ -0,0 +1,114 @@
+package io.deepstream;
+
+import com.google.gson.annotations.SerializedName;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.net.URISyntaxException;
+import java.util.HashMap;
+import java.util.Properties;
+
+import static org.mockito.Mockito.*;
+
+@RunWith( JUnit4.class )
+public class RecordBindingTest {
+
+    private Record record;
+    private DeepstreamClientMock deepstreamClientMock;
+
+    @Before
+    public void setUp() throws URISyntaxException, InvalidDeepstreamConfig {
+        ConnectionMock connectionMock = new ConnectionMock();
+        this.deepstreamClientMock = new DeepstreamClientMock();
+        this.deepstreamClientMock.setRuntimeErrorHandler( mock( DeepstreamRuntimeErrorHandler.class ) );
+        this.deepstreamClientMock.setConnectionState( ConnectionState.OPEN );
+
+        Properties options = new Properties();
+        options.put( "subscriptionTimeout", "10" );
+        options.put( "recordDeleteTimeout", "10" );
+        options.put( "recordReadAckTimeout", "10" );
+        options.put( "recordReadTimeout", "20" );
+
+        this.record = new Record( "testRecord", new HashMap(), connectionMock, new DeepstreamConfig( options ), deepstreamClientMock );
+        record.onMessage( MessageParser.parseMessage( TestUtil.replaceSeperators( "R|A|S|testRecord" ), deepstreamClientMock ) );
+        record.onMessage( MessageParser.parseMessage( TestUtil.replaceSeperators( "R|R|testRecord|0|{\"firstname\":\"Wolfram\",\"years\":30,\"address\":{\"city\":\"Munich\"}}" ), deepstreamClientMock ) );
+    }
+
+    @Test
+    public void bindsTheCurrentData() throws DeepstreamRecordDestroyedException {
+        Person person = record.bind( Person.class ).get();
+
+        Assert.assertEquals( "Wolfram", person.firstname );
+        Assert.assertEquals( 30, person.age );
+        Assert.assertEquals( "Munich", person.address.city );
+    }
+
+    @SuppressWarnings( "unchecked" )
+    @Test
+    public void patchesOnlyConvertTheFieldTheyChange() throws DeepstreamRecordDestroyedException {
+        RecordBindingCallback<Person> callback = mock( RecordBindingCallback.class );
+        RecordBinding<Person> binding = record.bind( Person.class, callback );
+        Person person = binding.get();
+        Address address = person.address;
+
+        record.onMessage( MessageParser.parseMessage( TestUtil.replaceSeperators( "R|P|testRecord|1|firstname|SAlex" ), deepstreamClientMock ) );
+
+        Assert.assertSame( person, binding.get() );
+        Assert.assertSame( address, person.address );
+        Assert.assertEquals( "Alex", person.firstname );
+        verify( callback ).onRecordBindingChanged( "testRecord", person );
+
+        record.onMessage( MessageParser.parseMessage( TestUtil.replaceSeperators( "R|P|testRecord|2|address.city|SBerlin" ), deepstreamClientMock ) );
+
+        Assert.assertSame( person, binding.get() );
+        Assert.assertEquals( "Berlin", person.address.city );
+        verify( callback, times( 2 ) ).onRecordBindingChanged( "testRecord", person );
+    }
+
+    @SuppressWarnings( "unchecked" )
+    @Test
+    public void updatesThatChangeNoFieldDontNotify() throws DeepstreamRecordDestroyedException {
+        RecordBindingCallback<Person> callback = mock( RecordBindingCallback.class );
+        record.bind( Person.class, callback );
+
+        record.onMessage( MessageParser.parseMessage( TestUtil.replaceSeperators( "R|P|testRecord|1|unbound|SValue" ), deepstreamClientMock ) );
+        record.onMessage( MessageParser.parseMessage( TestUtil.replaceSeperators( "R|U|testRecord|2|{\"firstname\":\"Wolfram\",\"years\":30,\"address\":{\"city\":\"Munich\"},\"unbound\":\"Value\"}" ), deepstreamClientMock ) );
+
+        verify( callback, never() ).onRecordBindingChanged( anyString(), any( Person.class ) );
+    }
+
+    @Test
+    public void removedKeysResetTheirFields() throws DeepstreamRecordDestroyedException {
+        RecordBinding<Person> binding = record.bind( Person.class );
+
+        record.set( new HashMap() );
+
+        Assert.assertNull( binding.get().firstname );
+        Assert.assertEquals( 0, binding.get().age );
+        Assert.assertNull( binding.get().address );
+    }
+
+    @Test
+    public void unboundObjectsAreNoLongerUpdated() throws DeepstreamRecordDestroyedException {
+        RecordBinding<Person> binding = record.bind( Person.class );
+
+        binding.unbind();
+        record.set( "firstname", "Alex" );
+
+        Assert.assertEquals( "Wolfram", binding.get().firstname );
+    }
+
+    private static class Person {
+        String firstname;
+        @SerializedName( "years" )
+        int age;
+        Address address;
+    }
+
+    private static class Address {
+        String city;
+    }
+}
@@ -68,6 +68,20 @@ public class RecordSetTest {
         Assert.assertEquals( "Hempel", record.get( "lastname" ).getAsString() );
     }
 
+    @Test
+    public void snapshotsDontChangeWithLaterUpdates() throws DeepstreamRecordDestroyedException {
+        sendsUpdateMessageForEntireRecord();
+        RecordSnapshot before = record.getSnapshot();
+
+        record.set( "lastname", "Hempel" );
+        record.onMessage( MessageParser.parseMessage( TestUtil.replaceSeperators( "R|P|testRecord|3|firstname|SAlex" ), deepstreamClientMock ) );
+
+        Assert.assertEquals( "Wolfram", before.get( "firstname" ).getAsString() );
+        Assert.assertNull( before.get( "lastname" ) );
+        Assert.assertEquals( "Alex", record.getSnapshot( "firstname" ).getAsString() );
+        Assert.assertEquals( "Hempel", record.getSnapshot().get( "lastname" ).getAsString() );
+    }
+
     @Test
     public void deletesValueWhenSendingUndefined() throws DeepstreamRecordDestroyedException {
         //TODO
@@ -147,4 +147,33 @@ public class RecordSubscriptionLocalTest {
         );
     }
 
+    @Test
+    public void patchesNotifyThePathsAboveAndBelowThem() throws DeepstreamRecordDestroyedException {
+        JsonObject brother = new JsonObject();
+        brother.add( "age", new JsonObject() );
+        record.set( "brother", brother );
+
+        RecordPathChangedCallback siblingCallback = mock( RecordPathChangedCallback.class );
+        record.subscribe( "brother", recordPathChangedCallback );
+        record.subscribe( "brother.age.years", recordPathChangedCallback );
+        record.subscribe( "sister", siblingCallback );
+
+        record.onMessage( MessageParser.parseMessage( TestUtil.replaceSeperators( "R|P|testRecord|2|brother.age|O{\"years\":28}" ), deepstreamClientMock ) );
+
+        verify( recordPathChangedCallback, times( 1 ) ).onRecordPathChanged( eq( "testRecord" ), eq( "brother" ), any( JsonElement.class ) );
+        verify( recordPathChangedCallback, times( 1 ) ).onRecordPathChanged( eq( "testRecord" ), eq( "brother.age.years" ), any( JsonElement.class ) );
+        verify( siblingCallback, never() ).onRecordPathChanged( anyString(), anyString(), any( JsonElement.class ) );
+    }
+
+    @Test
+    public void aKeyNamedLikeTheRecordEventIsJustAPath() throws DeepstreamRecordDestroyedException {
+        record.set( "ALL_EVENT", "unchanged" );
+        record.subscribe( "ALL_EVENT", recordPathChangedCallback );
+
+        record.set( "firstname", "Wolfram" );
+        record.onMessage( MessageParser.parseMessage( TestUtil.replaceSeperators( "R|U|testRecord|3|{\"ALL_EVENT\":\"unchanged\",\"firstname\":\"Alex\"}" ), deepstreamClientMock ) );
+
+        verify( recordChangedCallback, times( 3 ) ).onRecordChanged( eq( "testRecord" ), any( JsonElement.class ) );
+        verify( recordPathChangedCallback, never() ).onRecordPathChanged( anyString(), anyString(), any( JsonElement.class ) );
+    }
 }
@@ -11,6 +11,9 @@ import org.junit.runners.JUnit4;
 
 import java.net.URISyntaxException;
 import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 
 import static org.mockito.Mockito.*;
 
@@ -94,6 +97,39 @@ public class RpcHandlerTest {
         Assert.assertEquals( TestUtil.replaceSeperators( "P|REJ|doesNotExist|123+" ), connectionMock.lastSentMessage );
     }
 
+    @Test
+    public void rejectsRequestsWhenTheProviderPoolIsFull() throws InterruptedException {
+        final CountDownLatch release = new CountDownLatch( 1 );
+        final Semaphore completed = new Semaphore( 0 );
+        rpcHandler.provide( "slow", new RpcRequestedListener() {
+            @Override
+            public void onRPCRequested( String rpcName, Object data, RpcResponse response ) {
+                try {
+                    release.await();
+                } catch( InterruptedException e ) {
+                    Thread.currentThread().interrupt();
+                }
+                response.send( data );
+                completed.release();
+            }
+        }, 1, 1 );
+
+        rpcHandler.handle( new Message( "raw", Topic.RPC, Actions.REQUEST, new String[] { "slow", "1", "Sa" } ) );
+        Assert.assertEquals( TestUtil.replaceSeperators( "P|A|slow|1+" ), connectionMock.lastSentMessage );
+        rpcHandler.handle( new Message( "raw", Topic.RPC, Actions.REQUEST, new String[] { "slow", "2", "Sb" } ) );
+        Assert.assertEquals( TestUtil.replaceSeperators( "P|A|slow|2+" ), connectionMock.lastSentMessage );
+        rpcHandler.handle( new Message( "raw", Topic.RPC, Actions.REQUEST, new String[] { "slow", "3", "Sc" } ) );
+        Assert.assertEquals( TestUtil.replaceSeperators( "P|REJ|slow|3+" ), connectionMock.lastSentMessage );
+
+        release.countDown();
+        Assert.assertTrue( completed.tryAcquire( 2, 5, TimeUnit.SECONDS ) );
+        Assert.assertEquals( TestUtil.replaceSeperators( "P|RES|slow|2|Sb+" ), connectionMock.lastSentMessage );
+
+        rpcHandler.handle( new Message( "raw", Topic.RPC, Actions.REQUEST, new String[] { "slow", "4", "Sd" } ) );
+        Assert.assertTrue( completed.tryAcquire( 1, 5, TimeUnit.SECONDS ) );
+        Assert.assertEquals( TestUtil.replaceSeperators( "P|RES|slow|4|Sd+" ), connectionMock.lastSentMessage );
+    }
+
     @Test
     public void deregistersAProvider() {
         rpcHandler.provide( "addTwo", addTwoCallback );
@@ -135,15 +171,172 @@ public class RpcHandlerTest {
                 "raw",
                 Topic.RPC,
                 Actions.RESPONSE,
-                new String[]{ "addTwo", "1", "N11" }
+                new String[]{ "addTwo", "1-1", "N11" }
         ));
         Thread.sleep( 20 );
 
-        Assert.assertEquals(TestUtil.replaceSeperators("P|REQ|addTwo|1|O{\"numA\":3,\"numB\":8}+"), connectionMock.lastSentMessage);
+        Assert.assertEquals(TestUtil.replaceSeperators("P|REQ|addTwo|1-1|O{\"numA\":3,\"numB\":8}+"), connectionMock.lastSentMessage);
         Assert.assertTrue( rpcResponse[0].success() );
         Assert.assertEquals( rpcResponse[0].getData(), (float) 11.0 );
     }
 
+    @Test
+    public void makesAsyncRpcWithoutBlocking() throws Exception {
+        final JsonObject data = new JsonObject();
+        data.addProperty("numA", 3);
+        data.addProperty("numB", 8);
+
+        DeepstreamFuture<RpcResult> future = rpcHandler.makeAsync("addTwo", data);
+        Assert.assertFalse( future.isDone() );
+        Assert.assertEquals(TestUtil.replaceSeperators("P|REQ|addTwo|1-1|O{\"numA\":3,\"numB\":8}+"), connectionMock.lastSentMessage);
+
+        rpcHandler.handle(new Message(
+                "raw",
+                Topic.RPC,
+                Actions.RESPONSE,
+                new String[]{ "addTwo", "1-1", "N11" }
+        ));
+
+        Assert.assertTrue( future.isDone() );
+        Assert.assertTrue( future.get().success() );
+        Assert.assertEquals( future.get().getData(), (float) 11.0 );
+    }
+
+    @Test
+    public void pipelinesRpcsWithUniqueCorrelationIds() throws Exception {
+        DeepstreamFuture<RpcResult> first = rpcHandler.makeAsync("addTwo", "a");
+        Assert.assertEquals(TestUtil.replaceSeperators("P|REQ|addTwo|1-1|Sa+"), connectionMock.lastSentMessage);
+        DeepstreamFuture<RpcResult> second = rpcHandler.makeAsync("addTwo", "b");
+        Assert.assertEquals(TestUtil.replaceSeperators("P|REQ|addTwo|1-2|Sb+"), connectionMock.lastSentMessage);
+
+        rpcHandler.handle(new Message("raw", Topic.RPC, Actions.RESPONSE, new String[]{ "addTwo", "1-2", "Ssecond" }));
+        Assert.assertFalse( first.isDone() );
+        rpcHandler.handle(new Message("raw", Topic.RPC, Actions.RESPONSE, new String[]{ "addTwo", "1-1", "Sfirst" }));
+
+        Assert.assertEquals( "first", first.get().getData() );
+        Assert.assertEquals( "second", second.get().getData() );
+
+        rpcHandler.handle(new Message("raw", Topic.RPC, Actions.RESPONSE, new String[]{ "addTwo", "1-1", "Sfirst" }));
+        verify( errorCallbackMock ).onException( Topic.RPC, Event.UNSOLICITED_MESSAGE, "raw" );
+    }
+
+    @Test
+    public void coalescesAndCachesIdenticalRpcs() throws Exception {
+        rpcHandler.enableCache( "lookup", 1000, 10 );
+
+        DeepstreamFuture<RpcResult> first = rpcHandler.makeAsync( "lookup", "a" );
+        Assert.assertEquals( TestUtil.replaceSeperators( "P|REQ|lookup|1-1|Sa+" ), connectionMock.lastSentMessage );
+        connectionMock.lastSentMessage = null;
+        DeepstreamFuture<RpcResult> second = rpcHandler.makeAsync( "lookup", "a" );
+        Assert.assertNull( connectionMock.lastSentMessage );
+
+        rpcHandler.handle( new Message( "raw", Topic.RPC, Actions.RESPONSE, new String[]{ "lookup", "1-1", "Sresult" } ) );
+        Assert.assertEquals( "result", first.get().getData() );
+        Assert.assertEquals( "result", second.get().getData() );
+
+        Assert.assertEquals( "result", rpcHandler.makeAsync( "lookup", "a" ).get().getData() );
+        Assert.assertNull( connectionMock.lastSentMessage );
+
+        rpcHandler.makeAsync( "lookup", "b" );
+        Assert.assertEquals( TestUtil.replaceSeperators( "P|REQ|lookup|1-2|Sb+" ), connectionMock.lastSentMessage );
+    }
+
+    @Test
+    public void doesNotCacheErrorsOrExpiredResults() throws Exception {
+        rpcHandler.enableCache( "lookup", 20, 10 );
+
+        DeepstreamFuture<RpcResult> failed = rpcHandler.makeAsync( "lookup", "a" );
+        rpcHandler.handle( new Message( "raw", Topic.RPC, Actions.ERROR, new String[]{ "NO_PROVIDER", "lookup", "1-1" } ) );
+        Assert.assertFalse( failed.get().success() );
+
+        rpcHandler.makeAsync( "lookup", "a" );
+        Assert.assertEquals( TestUtil.replaceSeperators( "P|REQ|lookup|1-2|Sa+" ), connectionMock.lastSentMessage );
+        rpcHandler.handle( new Message( "raw", Topic.RPC, Actions.RESPONSE, new String[]{ "lookup", "1-2", "Sresult" } ) );
+
+        Thread.sleep( 40 );
+        rpcHandler.makeAsync( "lookup", "a" );
+        Assert.assertEquals( TestUtil.replaceSeperators( "P|REQ|lookup|1-3|Sa+" ), connectionMock.lastSentMessage );
+    }
+
+    @Test
+    public void evictsTheLeastRecentlyUsedResult() throws Exception {
+        rpcHandler.enableCache( "lookup", 1000, 2 );
+        for( String argument : new String[] { "a", "b" } ) {
+            rpcHandler.makeAsync( "lookup", argument );
+            String correlationId = connectionMock.lastSentMessage.split( "\u001f" )[ 3 ];
+            rpcHandler.handle( new Message( "raw", Topic.RPC, Actions.RESPONSE, new String[]{ "lookup", correlationId, "S" + argument } ) );
+        }
+
+        connectionMock.lastSentMessage = null;
+        rpcHandler.makeAsync( "lookup", "a" );
+        rpcHandler.makeAsync( "lookup", "c" );
+        Assert.assertEquals( TestUtil.replaceSeperators( "P|REQ|lookup|1-3|Sc+" ), connectionMock.lastSentMessage );
+
+        rpcHandler.makeAsync( "lookup", "b" );
+        Assert.assertEquals( TestUtil.replaceSeperators( "P|REQ|lookup|1-4|Sb+" ), connectionMock.lastSentMessage );
+    }
+
+    @Test
+    public void failsFastOnceTheConcurrencyLimitIsReached() throws Exception {
+        rpcHandler.enableConcurrencyLimit( "lookup", 2, 10 );
+
+        DeepstreamFuture<RpcResult> first = rpcHandler.makeAsync( "lookup", "a" );
+        rpcHandler.makeAsync( "lookup", "b" );
+        connectionMock.lastSentMessage = null;
+        RpcResult rejected = rpcHandler.makeAsync( "lookup", "c" ).get();
+        Assert.assertFalse( rejected.success() );
+        Assert.assertEquals( Event.RPC_LIMIT_EXCEEDED.toString(), rejected.getData() );
+        Assert.assertNull( connectionMock.lastSentMessage );
+
+        rpcHandler.handle( new Message( "raw", Topic.RPC, Actions.RESPONSE, new String[]{ "lookup", "1-1", "Sa" } ) );
+        Assert.assertTrue( first.get().success() );
+        rpcHandler.makeAsync( "lookup", "c" );
+        Assert.assertEquals( TestUtil.replaceSeperators( "P|REQ|lookup|1-3|Sc+" ), connectionMock.lastSentMessage );
+    }
+
+    @Test
+    public void lowersTheConcurrencyLimitOnResponseTimeouts() throws Exception {
+        rpcHandler.enableConcurrencyLimit( "lookup", 2, 10 );
+
+        DeepstreamFuture<RpcResult> timedOut = rpcHandler.makeAsync( "lookup", "a" );
+        Assert.assertEquals( Event.RESPONSE_TIMEOUT.toString(), timedOut.get( 1, TimeUnit.SECONDS ).getData() );
+
+        rpcHandler.makeAsync( "lookup", "b" );
+        Assert.assertEquals( Event.RPC_LIMIT_EXCEEDED.toString(), rpcHandler.makeAsync( "lookup", "c" ).get().getData() );
+    }
+
+    @Test
+    public void hedgesSlowRpcsAndIgnoresTheLoser() throws Exception {
+        Properties options = new Properties();
+        options.put( "rpcAckTimeout", "1000" );
+        options.put( "rpcResponseTimeout", "1000" );
+        rpcHandler = new RpcHandler( new DeepstreamConfig( options ), connectionMock, deepstreamClientMock );
+        rpcHandler.enableHedging( "lookup", 50 );
+
+        for( int i = 1; i <= 10; i++ ) {
+            rpcHandler.makeAsync( "lookup", "a" );
+            rpcHandler.handle( new Message( "raw", Topic.RPC, Actions.RESPONSE, new String[]{ "lookup", "1-" + Integer.toString( i, 36 ), "Sfast" } ) );
+        }
+
+        DeepstreamFuture<RpcResult> slow = rpcHandler.makeAsync( "lookup", "b" );
+        Assert.assertEquals( TestUtil.replaceSeperators( "P|REQ|lookup|1-b|Sb+" ), connectionMock.lastSentMessage );
+        for( int i = 0; i < 100 && connectionMock.lastSentMessage.contains( "1-b" ); i++ ) {
+            Thread.sleep( 10 );
+        }
+        Assert.assertEquals( TestUtil.replaceSeperators( "P|REQ|lookup|1-c|Sb+" ), connectionMock.lastSentMessage );
+
+        rpcHandler.handle( new Message( "raw", Topic.RPC, Actions.RESPONSE, new String[]{ "lookup", "1-c", "Shedged" } ) );
+        Assert.assertEquals( "hedged", slow.get().getData() );
+        rpcHandler.handle( new Message( "raw", Topic.RPC, Actions.RESPONSE, new String[]{ "lookup", "1-b", "Sslow" } ) );
+        Assert.assertEquals( "hedged", slow.get().getData() );
+        verify( errorCallbackMock, never() ).onException( any( Topic.class ), any( Event.class ), anyString() );
+
+        RpcHedgeMetrics metrics = rpcHandler.getHedgeMetrics( "lookup" );
+        Assert.assertEquals( 11, metrics.getRequests() );
+        Assert.assertEquals( 1, metrics.getHedges() );
+        Assert.assertEquals( 1, metrics.getHedgeWins() );
+    }
+
     @Test
     public void makesRpcFor_addTwoButReceivesError() throws InterruptedException {
         final JsonObject data = new JsonObject();
@@ -159,18 +352,18 @@ public class RpcHandlerTest {
         }).start();
 
         Thread.sleep( 20 );
-        Assert.assertEquals(TestUtil.replaceSeperators("P|REQ|addTwo|1|O{\"numA\":3,\"numB\":8}+"), connectionMock.lastSentMessage);
+        Assert.assertEquals(TestUtil.replaceSeperators("P|REQ|addTwo|1-1|O{\"numA\":3,\"numB\":8}+"), connectionMock.lastSentMessage);
 
         rpcHandler.handle(new Message(
                 "raw",
                 Topic.RPC,
                 Actions.ERROR,
-                new String[]{ "NO_PROVIDER", "addTwo", "1" }
+                new String[]{ "NO_PROVIDER", "addTwo", "1-1" }
         ));
 
         Thread.sleep( 20 );
 
-        Assert.assertEquals(TestUtil.replaceSeperators("P|REQ|addTwo|1|O{\"numA\":3,\"numB\":8}+"), connectionMock.lastSentMessage);
+        Assert.assertEquals(TestUtil.replaceSeperators("P|REQ|addTwo|1-1|O{\"numA\":3,\"numB\":8}+"), connectionMock.lastSentMessage);
         Assert.assertFalse( rpcResponse[0].success() );
         Assert.assertEquals( rpcResponse[0].getData(), "NO_PROVIDER" );
     }
@@ -190,10 +383,10 @@ public class RpcHandlerTest {
         }).start();
 
         Thread.sleep(200);
-        Assert.assertEquals( TestUtil.replaceSeperators("P|REQ|addTwo|1|O{\"numA\":3,\"numB\":8}+"), connectionMock.lastSentMessage);
+        Assert.assertEquals( TestUtil.replaceSeperators("P|REQ|addTwo|1-1|O{\"numA\":3,\"numB\":8}+"), connectionMock.lastSentMessage);
         Thread.sleep(250);
 
-        verify(this.errorCallbackMock, times(1)).onException( Topic.RPC, Event.ACK_TIMEOUT, "No ACK message received in time for REQUEST 1" );
+        verify(this.errorCallbackMock, times(1)).onException( Topic.RPC, Event.ACK_TIMEOUT, "No ACK message received in time for REQUEST 1-1" );
     }
 
     @Test
@@ -211,7 +404,7 @@ public class RpcHandlerTest {
         }).start();
 
         Thread.sleep( 20 );
-        Assert.assertEquals( TestUtil.replaceSeperators("P|REQ|addTwo|1|O{\"numA\":3,\"numB\":8}+"), connectionMock.lastSentMessage);
+        Assert.assertEquals( TestUtil.replaceSeperators("P|REQ|addTwo|1-1|O{\"numA\":3,\"numB\":8}+"), connectionMock.lastSentMessage);
 
         Thread.sleep(100);
         Assert.assertFalse( rpcResponse[0].success() );
@@ -7,7 +7,10 @@ import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
 
 import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.List;
 
+import static org.junit.Assert.assertEquals;
 import static org.mockito.Mockito.*;
 
 @RunWith( JUnit4.class )
@@ -62,6 +65,62 @@ public class UtilAckTimeoutTest {
         verify(this.deepstreamRuntimeErrorHandlerMock, times(1)).onException(  Topic.EVENT, Event.ACK_TIMEOUT, "No ACK message received in time for SUBSCRIBE Event1" );
     }
 
+    @Test
+    public void acksClearedBeforeConnectionStateIsOpenAreNotSent() throws InterruptedException {
+        Message message = new Message( null, Topic.EVENT, Actions.ACK, new String[]{ Actions.SUBSCRIBE.toString(), "Event1" } );
+        deepstreamClientMock.setConnectionState( ConnectionState.CLOSED );
+
+        ackTimeoutRegistry.add( Topic.EVENT, Actions.SUBSCRIBE, "Event1", 20 );
+        ackTimeoutRegistry.clear( message );
+        deepstreamClientMock.setConnectionState( ConnectionState.OPEN );
+        Thread.sleep(50);
+        verify(this.deepstreamRuntimeErrorHandlerMock, times(0)).onException( any( Topic.class ), any( Event.class ), anyString() );
+    }
+
+    @Test
+    public void batchedAcksOnlyReportTheStragglers() throws InterruptedException {
+        ackTimeoutRegistry.setBatchWindow( 20 );
+        for( int i = 0; i < 100; i++ ) {
+            ackTimeoutRegistry.add( Topic.RECORD, Actions.SUBSCRIBE, "record" + i, 20 );
+        }
+        for( int i = 0; i < 100; i++ ) {
+            if( i != 42 ) {
+                ackTimeoutRegistry.clear( new Message( null, Topic.RECORD, Actions.ACK, new String[]{ Actions.SUBSCRIBE.toString(), "record" + i } ) );
+            }
+        }
+
+        Thread.sleep(80);
+        verify(this.deepstreamRuntimeErrorHandlerMock, times(1)).onException( Topic.RECORD, Event.ACK_TIMEOUT, "No ACK message received in time for SUBSCRIBE record42" );
+        verify(this.deepstreamRuntimeErrorHandlerMock, times(1)).onException( any( Topic.class ), any( Event.class ), anyString() );
+    }
+
+    @Test
+    public void expiredAcksAreHandedOverTogether() throws InterruptedException {
+        final List<Runnable> tasks = new ArrayList<>();
+        DeepstreamClientMock client = new DeepstreamClientMock() {
+            @Override
+            void execute( Runnable task ) {
+                synchronized( tasks ) {
+                    tasks.add( task );
+                }
+            }
+        };
+        client.setConnectionState( ConnectionState.OPEN );
+        client.setRuntimeErrorHandler( this.deepstreamRuntimeErrorHandlerMock );
+        UtilAckTimeoutRegistry registry = new UtilAckTimeoutRegistry( client );
+        registry.setBatchWindow( 20 );
+        for( int i = 0; i < 100; i++ ) {
+            registry.add( Topic.RECORD, Actions.SUBSCRIBE, "record" + i, 20 );
+        }
+
+        Thread.sleep(80);
+        synchronized( tasks ) {
+            assertEquals( 1, tasks.size() );
+            tasks.get( 0 ).run();
+        }
+        verify(this.deepstreamRuntimeErrorHandlerMock, times(100)).onException( eq( Topic.RECORD ), eq( Event.ACK_TIMEOUT ), anyString() );
+    }
+
     @Test
     public void acksAddedTwiceOnlySentOnce() throws InterruptedException {
         ackTimeoutRegistry.add( Topic.EVENT, Actions.SUBSCRIBE, "Event1", 20 );
@@ -0,0 +1,45 @@
+package io.deepstream;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith( JUnit4.class )
+public class UtilCompiledPathTest {
+
+    @Test
+    public void splitsKeysAndIndices() {
+        UtilCompiledPath.Token[] tokens = UtilCompiledPath.compile( "pets[ 2 ].name" ).tokens;
+
+        Assert.assertEquals( 2, tokens.length );
+        Assert.assertTrue( tokens[ 0 ].isArray );
+        Assert.assertEquals( "pets", tokens[ 0 ].prefix );
+        Assert.assertEquals( 2, tokens[ 0 ].index );
+        Assert.assertEquals( "2", tokens[ 0 ].indexText );
+        Assert.assertFalse( tokens[ 1 ].isArray );
+        Assert.assertEquals( "name", tokens[ 1 ].name );
+    }
+
+    @Test
+    public void keepsBracketsThatArentAnIndexInTheKey() {
+        UtilCompiledPath.Token token = UtilCompiledPath.compile( "pets[first]" ).tokens[ 0 ];
+
+        Assert.assertFalse( token.isArray );
+        Assert.assertEquals( "pets[first]", token.prefix );
+    }
+
+    @Test
+    public void compilesEachPathOnce() {
+        Assert.assertSame( UtilCompiledPath.compile( "a.b[1]" ), UtilCompiledPath.compile( "a.b[1]" ) );
+    }
+
+    @Test
+    public void keepsPathsInUseWhenTheCacheIsFull() {
+        UtilCompiledPath hot = UtilCompiledPath.compile( "hot.path" );
+        for( int i = 0; i < 10 * UtilCompiledPath.CACHE_SIZE; i++ ) {
+            UtilCompiledPath.compile( "items[" + i + "].x" );
+            Assert.assertSame( hot, UtilCompiledPath.compile( "hot.path" ) );
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package io.deepstream;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+
+@RunWith( JUnit4.class )
+public class UtilFrameDecoderTest {
+
+    private static final Charset UTF8 = Charset.forName( "UTF-8" );
+
+    ArrayList<String> frames;
+    UtilFrameDecoder frameDecoder;
+
+    @Before
+    public void setUp() {
+        this.frames = new ArrayList<>();
+        this.frameDecoder = new UtilFrameDecoder(new UtilFrameDecoder.FrameListener() {
+            @Override
+            public void onFrame(byte[] buffer, int offset, int length) {
+                frames.add( new String( buffer, offset, length, UTF8 ) );
+            }
+        });
+    }
+
+    @Test
+    public void emitsSingleMessage() {
+        decode( "E|EVT|event1|SsomeData+" );
+        Assert.assertEquals( 1, frames.size() );
+        Assert.assertEquals( TestUtil.replaceSeperators( "E|EVT|event1|SsomeData" ), frames.get( 0 ) );
+    }
+
+    @Test
+    public void emitsEveryMessageInAChunk() {
+        decode( "E|A|S|event1+E|A|S|event2+E|A|S|event3+" );
+        Assert.assertEquals( 3, frames.size() );
+        Assert.assertEquals( TestUtil.replaceSeperators( "E|A|S|event3" ), frames.get( 2 ) );
+    }
+
+    @Test
+    public void emitsCompleteMessagesBeforeTheChunkEnds() {
+        decode( "E|A|S|event1+E|A|S|ev" );
+        Assert.assertEquals( 1, frames.size() );
+
+        decode( "ent2+" );
+        Assert.assertEquals( 2, frames.size() );
+        Assert.assertEquals( TestUtil.replaceSeperators( "E|A|S|event2" ), frames.get( 1 ) );
+    }
+
+    @Test
+    public void joinsMessagesSplitOverManyChunks() {
+        StringBuilder payload = new StringBuilder();
+        for( int i = 0; i < 5000; i++ ) {
+            payload.append( "x" );
+        }
+        String message = TestUtil.replaceSeperators( "R|R|recordA|1|{\"a\":\"" ) + payload + "\"}";
+        byte[] bytes = ( message + '\u001e' ).getBytes( UTF8 );
+
+        for( int i = 0; i < bytes.length; i += 7 ) {
+            frameDecoder.decode( bytes, i, Math.min( 7, bytes.length - i ) );
+        }
+
+        Assert.assertEquals( 1, frames.size() );
+        Assert.assertEquals( message, frames.get( 0 ) );
+    }
+
+    @Test
+    public void keepsMultiByteCharactersSplitAcrossChunks() {
+        byte[] bytes = TestUtil.replaceSeperators( "E|EVT|event1|Sd\u00e9j\u00e0 vu+" ).getBytes( UTF8 );
+        int split = 16;
+
+        frameDecoder.decode( bytes, 0, split );
+        frameDecoder.decode( bytes, split, bytes.length - split );
+
+        Assert.assertEquals( TestUtil.replaceSeperators( "E|EVT|event1|Sd\u00e9j\u00e0 vu" ), frames.get( 0 ) );
+    }
+
+    @Test
+    public void decodesDirectBuffers() {
+        byte[] bytes = TestUtil.replaceSeperators( "E|A|S|event1+E|A|S|event2+" ).getBytes( UTF8 );
+        ByteBuffer buffer = ByteBuffer.allocateDirect( bytes.length );
+        buffer.put( bytes );
+        buffer.flip();
+
+        frameDecoder.decode( buffer );
+
+        Assert.assertEquals( 2, frames.size() );
+        Assert.assertFalse( buffer.hasRemaining() );
+    }
+
+    @Test
+    public void resetDropsIncompleteMessage() {
+        decode( "E|A|S|ev" );
+        frameDecoder.reset();
+        decode( "E|A|S|event2+" );
+
+        Assert.assertEquals( 1, frames.size() );
+        Assert.assertEquals( TestUtil.replaceSeperators( "E|A|S|event2" ), frames.get( 0 ) );
+    }
+
+    private void decode( String data ) {
+        byte[] bytes = TestUtil.replaceSeperators( data ).getBytes( UTF8 );
+        frameDecoder.decode( bytes, 0, bytes.length );
+    }
+}
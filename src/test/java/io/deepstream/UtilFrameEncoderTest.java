@@ -0,0 +1,148 @@
+package io.deepstream;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.charset.Charset;
+
+@RunWith( JUnit4.class )
+public class UtilFrameEncoderTest {
+
+    private static final Charset UTF8 = Charset.forName( "UTF-8" );
+
+    UtilFrameEncoder encoder;
+    ChannelMock channel;
+
+    @Before
+    public void setUp() {
+        this.encoder = new UtilFrameEncoder( new UtilBufferPool( 4 ) );
+        this.channel = new ChannelMock( Integer.MAX_VALUE );
+    }
+
+    @Test
+    public void encodesAscii() throws IOException {
+        String message = TestUtil.replaceSeperators( "E|EVT|event1|SsomeData+" );
+        encoder.encode( message );
+        Assert.assertEquals( message.length(), encoder.size() );
+
+        Assert.assertTrue( encoder.writeTo( channel ) );
+        Assert.assertArrayEquals( message.getBytes( UTF8 ), channel.written() );
+        Assert.assertTrue( encoder.isEmpty() );
+    }
+
+    @Test
+    public void encodesMultiByteCharacters() throws IOException {
+        String message = TestUtil.replaceSeperators( "E|EVT|event1|Sd\u00e9j\u00e0 vu \u20ac \ud83d\ude00+" );
+        encoder.encode( message );
+        encoder.writeTo( channel );
+        Assert.assertArrayEquals( message.getBytes( UTF8 ), channel.written() );
+    }
+
+    @Test
+    public void replacesUnpairedSurrogates() throws IOException {
+        encoder.encode( "a\ud83db\ude00c" );
+        encoder.writeTo( channel );
+        Assert.assertEquals( "a?b?c", new String( channel.written(), UTF8 ) );
+    }
+
+    @Test
+    public void encodesMessagesLargerThanABuffer() throws IOException {
+        StringBuilder message = new StringBuilder();
+        for( int i = 0; i < UtilBufferPool.BUFFER_SIZE * 3; i++ ) {
+            message.append( i % 7 == 0 ? '\u00e9' : 'x' );
+        }
+        encoder.encode( message.toString() );
+        encoder.encode( "+" );
+        encoder.writeTo( channel );
+        Assert.assertArrayEquals( ( message + "+" ).getBytes( UTF8 ), channel.written() );
+    }
+
+    @Test
+    public void resumesPartialWrites() throws IOException {
+        StringBuilder message = new StringBuilder();
+        for( int i = 0; i < UtilBufferPool.BUFFER_SIZE * 2; i++ ) {
+            message.append( 'x' );
+        }
+        channel = new ChannelMock( 10000 );
+        encoder.encode( message.toString() );
+
+        int writes = 1;
+        while( !encoder.writeTo( channel ) ) {
+            channel.accept( 10000 );
+            writes++;
+        }
+
+        Assert.assertEquals( 4, writes );
+        Assert.assertEquals( message.length(), channel.written().length );
+        Assert.assertTrue( encoder.isEmpty() );
+    }
+
+    @Test( expected = IllegalStateException.class )
+    public void cannotEncodeWhileWriting() throws IOException {
+        channel = new ChannelMock( 0 );
+        encoder.encode( "abc" );
+        encoder.writeTo( channel );
+        encoder.encode( "def" );
+    }
+
+    /**
+     * A channel that accepts a limited amount of bytes, like a non-blocking socket with a full send buffer
+     */
+    private static class ChannelMock implements GatheringByteChannel {
+        private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        private int accepting;
+
+        ChannelMock( int accepting ) {
+            this.accepting = accepting;
+        }
+
+        void accept( int bytes ) {
+            this.accepting = bytes;
+        }
+
+        byte[] written() {
+            return this.out.toByteArray();
+        }
+
+        @Override
+        public long write( ByteBuffer[] srcs, int offset, int length ) {
+            long written = 0;
+            for( int i = offset; i < offset + length; i++ ) {
+                written += this.write( srcs[ i ] );
+            }
+            return written;
+        }
+
+        @Override
+        public long write( ByteBuffer[] srcs ) {
+            return this.write( srcs, 0, srcs.length );
+        }
+
+        @Override
+        public int write( ByteBuffer src ) {
+            int written = 0;
+            while( src.hasRemaining() && this.accepting > 0 ) {
+                this.out.write( src.get() );
+                this.accepting--;
+                written++;
+            }
+            return written;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package io.deepstream;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@RunWith( JUnit4.class )
+public class UtilJsonCodecTest {
+
+    UtilJsonCodec jsonCodec;
+
+    @Before
+    public void setUp() {
+        this.jsonCodec = new UtilJsonCodec();
+    }
+
+    @Test
+    public void parsesStringsAndMessageFields() {
+        DeepstreamClientMock deepstreamClientMock = new DeepstreamClientMock();
+        Message message = MessageParser.parseMessage( TestUtil.replaceSeperators( "E|EVT|event1|O{\"name\":\"sam\",\"tags\":[1,2]}" ), deepstreamClientMock );
+        JsonElement fromString = jsonCodec.parse( "{\"name\":\"sam\",\"tags\":[1,2]}" );
+
+        Assert.assertEquals( "sam", fromString.getAsJsonObject().get( "name" ).getAsString() );
+        Assert.assertEquals( fromString, jsonCodec.parseTyped( message, 1 ) );
+        // Once the field has been decoded the cached String is parsed instead
+        Assert.assertEquals( fromString, jsonCodec.parse( message.data( 1 ).substring( 1 ) ) );
+        Assert.assertEquals( fromString, jsonCodec.parseTyped( message, 1 ) );
+        Assert.assertNull( jsonCodec.parse( "" ) );
+    }
+
+    @Test
+    public void serializesLikeGson() {
+        Map<String, Object> value = new HashMap<>();
+        value.put( "name", "<sam>" );
+        value.put( "missing", null );
+
+        Assert.assertEquals( "{\"name\":\"\\u003csam\\u003e\"}", jsonCodec.toJson( value ) );
+        Assert.assertEquals( "null", jsonCodec.toJson( null ) );
+        Assert.assertEquals( "\"sam\"", jsonCodec.toJson( "sam" ) );
+    }
+
+    @Test
+    public void serializesComplexMapKeysAsPairs() {
+        Map<Person, Integer> value = new HashMap<>();
+        value.put( new Person( "sam" ), 1 );
+
+        Assert.assertEquals( "[[{\"name\":\"sam\"},1]]", jsonCodec.toTypedJson( value ) );
+        Assert.assertEquals( "{\"sam\":1}", jsonCodec.toJson( value ) );
+    }
+
+    @Test
+    public void convertsToAndFromTrees() {
+        JsonElement tree = jsonCodec.toJsonTree( new Person( "sam" ) );
+        Assert.assertEquals( "sam", tree.getAsJsonObject().get( "name" ).getAsString() );
+        Assert.assertEquals( "sam", jsonCodec.<Person>fromJsonTree( tree, Person.class ).name );
+    }
+
+    @Test
+    public void deepCopiesShareNoState() {
+        JsonObject original = jsonCodec.parse( "{\"address\":{\"street\":\"a\"},\"tags\":[\"b\"]}" ).getAsJsonObject();
+        JsonObject copy = jsonCodec.deepCopy( original ).getAsJsonObject();
+
+        copy.getAsJsonObject( "address" ).addProperty( "street", "c" );
+        ( (JsonArray) copy.get( "tags" ) ).add( "d" );
+
+        Assert.assertEquals( "a", original.getAsJsonObject( "address" ).get( "street" ).getAsString() );
+        Assert.assertEquals( 1, original.getAsJsonArray( "tags" ).size() );
+        Assert.assertEquals( JsonNull.INSTANCE, jsonCodec.deepCopy( null ) );
+    }
+
+    static class Person {
+        String name;
+
+        Person( String name ) {
+            this.name = name;
+        }
+
+        @Override
+        public String toString() {
+            return this.name;
+        }
+    }
+}
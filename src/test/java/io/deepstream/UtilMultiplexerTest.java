@@ -0,0 +1,200 @@
+package io.deepstream;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.mockito.ArgumentCaptor;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertTrue;
+import static org.mockito.Mockito.*;
+
+@RunWith( JUnit4.class )
+public class UtilMultiplexerTest {
+
+    Connection connectionMock;
+    DeepstreamClient root;
+    DeepstreamClient session;
+    UtilMultiplexer multiplexer;
+
+    @Before
+    public void setUp() {
+        this.connectionMock = mock( Connection.class );
+        this.root = mockSession( "root" );
+        this.session = mockSession( "session" );
+        this.multiplexer = new UtilMultiplexer( this.connectionMock, this.root );
+        this.multiplexer.addSession( this.root );
+        this.multiplexer.addSession( this.session );
+    }
+
+    @Test
+    public void sameRecordIsOnlySubscribedOnce() {
+        this.multiplexer.send( this.root, Topic.RECORD, Actions.CREATEORREAD, new String[] { "recordA" } );
+        this.multiplexer.send( this.session, Topic.RECORD, Actions.CREATEORREAD, new String[] { "recordA" } );
+
+        verify( this.connectionMock, times( 1 ) ).sendMsg( Topic.RECORD, Actions.CREATEORREAD, new String[] { "recordA" } );
+        verify( this.connectionMock, never() ).sendMsg( eq( Topic.RECORD ), eq( Actions.SNAPSHOT ), any( String[].class ) );
+
+        assertEquals( Arrays.asList( this.root, this.session ), route( Topic.RECORD, Actions.ACK, "S", "recordA" ) );
+        assertEquals( Arrays.asList( this.root, this.session ), route( Topic.RECORD, Actions.READ, "recordA", "1", "{}" ) );
+        assertEquals( Arrays.asList( this.root, this.session ), route( Topic.RECORD, Actions.UPDATE, "recordA", "2", "{}" ) );
+    }
+
+    @Test
+    public void sessionJoiningAfterTheReadGetsAckAndSnapshot() {
+        this.multiplexer.send( this.root, Topic.RECORD, Actions.CREATEORREAD, new String[] { "recordA" } );
+        route( Topic.RECORD, Actions.ACK, "S", "recordA" );
+        route( Topic.RECORD, Actions.READ, "recordA", "1", "{}" );
+
+        this.multiplexer.send( this.session, Topic.RECORD, Actions.CREATEORREAD, new String[] { "recordA" } );
+
+        Message ack = verifyDispatched( this.session );
+        assertEquals( TestUtil.replaceSeperators( "R|A|S|recordA+" ), ack.raw() );
+        verify( this.connectionMock ).sendMsg( Topic.RECORD, Actions.SNAPSHOT, new String[] { "recordA" } );
+        assertEquals( Collections.singletonList( this.session ), route( Topic.RECORD, Actions.READ, "recordA", "1", "{}" ) );
+    }
+
+    @Test
+    public void onlyTheLastUnsubscribeIsSent() {
+        this.multiplexer.send( this.root, Topic.EVENT, Actions.SUBSCRIBE, new String[] { "eventA" } );
+        this.multiplexer.send( this.session, Topic.EVENT, Actions.SUBSCRIBE, new String[] { "eventA" } );
+        route( Topic.EVENT, Actions.ACK, "S", "eventA" );
+
+        this.multiplexer.send( this.session, Topic.EVENT, Actions.UNSUBSCRIBE, new String[] { "eventA" } );
+        verify( this.connectionMock, never() ).sendMsg( Topic.EVENT, Actions.UNSUBSCRIBE, new String[] { "eventA" } );
+        assertEquals( TestUtil.replaceSeperators( "E|A|US|eventA+" ), verifyDispatched( this.session ).raw() );
+        assertEquals( Collections.singletonList( this.root ), route( Topic.EVENT, Actions.EVENT, "eventA" ) );
+
+        this.multiplexer.send( this.root, Topic.EVENT, Actions.UNSUBSCRIBE, new String[] { "eventA" } );
+        verify( this.connectionMock ).sendMsg( Topic.EVENT, Actions.UNSUBSCRIBE, new String[] { "eventA" } );
+        assertEquals( Collections.singletonList( this.root ), route( Topic.EVENT, Actions.ACK, "US", "eventA" ) );
+    }
+
+    @Test
+    public void eventsAreLoopedBackToOtherSessions() {
+        this.multiplexer.send( this.root, Topic.EVENT, Actions.SUBSCRIBE, new String[] { "eventA" } );
+        this.multiplexer.send( this.session, Topic.EVENT, Actions.SUBSCRIBE, new String[] { "eventA" } );
+        route( Topic.EVENT, Actions.ACK, "S", "eventA" );
+        reset( this.connectionMock );
+
+        this.multiplexer.send( this.root, Topic.EVENT, Actions.EVENT, new String[] { "eventA", "SHello" } );
+
+        verify( this.connectionMock ).sendMsg( Topic.EVENT, Actions.EVENT, new String[] { "eventA", "SHello" } );
+        assertEquals( TestUtil.replaceSeperators( "E|EVT|eventA|SHello+" ), verifyDispatched( this.session ).raw() );
+    }
+
+    @Test
+    public void rpcResponsesGoToTheSessionThatMadeTheRequest() {
+        assertEquals( Collections.singletonList( this.session ), route( Topic.RPC, Actions.RESPONSE, "addTwo", "session-1", "N3" ) );
+        assertEquals( Collections.singletonList( this.session ), route( Topic.RPC, Actions.ERROR, "NO_RPC_PROVIDER", "addTwo", "session-2" ) );
+        assertEquals( Collections.singletonList( this.root ), route( Topic.RPC, Actions.ACK, "REQ", "addTwo", "root-3" ) );
+    }
+
+    @Test
+    public void rpcRequestsGoToTheFirstProvider() {
+        this.multiplexer.send( this.session, Topic.RPC, Actions.SUBSCRIBE, new String[] { "addTwo" } );
+        this.multiplexer.send( this.root, Topic.RPC, Actions.SUBSCRIBE, new String[] { "addTwo" } );
+
+        verify( this.connectionMock, times( 1 ) ).sendMsg( Topic.RPC, Actions.SUBSCRIBE, new String[] { "addTwo" } );
+        assertEquals( Collections.singletonList( this.session ), route( Topic.RPC, Actions.REQUEST, "addTwo", "other-1", "N1" ) );
+    }
+
+    @Test
+    public void removingASessionUnsubscribesWhatOnlyItWasSubscribedTo() {
+        this.multiplexer.send( this.root, Topic.RECORD, Actions.CREATEORREAD, new String[] { "shared" } );
+        this.multiplexer.send( this.session, Topic.RECORD, Actions.CREATEORREAD, new String[] { "shared" } );
+        this.multiplexer.send( this.session, Topic.RECORD, Actions.CREATEORREAD, new String[] { "own" } );
+
+        this.multiplexer.removeSession( this.session );
+
+        verify( this.connectionMock ).sendMsg( Topic.RECORD, Actions.UNSUBSCRIBE, new String[] { "own" } );
+        verify( this.connectionMock, never() ).sendMsg( Topic.RECORD, Actions.UNSUBSCRIBE, new String[] { "shared" } );
+        assertEquals( 1, this.multiplexer.getSessionCount() );
+    }
+
+    @Test
+    public void subscriptionsAreSentAgainAfterAReset() {
+        this.multiplexer.send( this.root, Topic.EVENT, Actions.SUBSCRIBE, new String[] { "eventA" } );
+        this.multiplexer.send( this.session, Topic.EVENT, Actions.SUBSCRIBE, new String[] { "eventA" } );
+        route( Topic.EVENT, Actions.ACK, "S", "eventA" );
+
+        this.multiplexer.reset( "" );
+        this.multiplexer.send( this.session, Topic.EVENT, Actions.SUBSCRIBE, new String[] { "eventA" } );
+        this.multiplexer.send( this.root, Topic.EVENT, Actions.SUBSCRIBE, new String[] { "eventA" } );
+
+        verify( this.connectionMock, times( 2 ) ).sendMsg( Topic.EVENT, Actions.SUBSCRIBE, new String[] { "eventA" } );
+        assertEquals( Arrays.asList( this.session, this.root ), route( Topic.EVENT, Actions.ACK, "S", "eventA" ) );
+    }
+
+    @Test
+    public void requestsThatWereNotSentYetSurviveAReset() {
+        this.multiplexer.send( this.session, Topic.RECORD, Actions.SNAPSHOT, new String[] { "sent" } );
+        this.multiplexer.send( this.session, Topic.RECORD, Actions.SNAPSHOT, new String[] { "buffered" } );
+        this.multiplexer.send( this.session, Topic.RECORD, Actions.HAS, new String[] { "buffered" } );
+
+        this.multiplexer.reset( MessageBuilder.getMsg( Topic.RECORD, Actions.SNAPSHOT, new String[] { "buffered" } )
+                + MessageBuilder.getMsg( Topic.RECORD, Actions.HAS, new String[] { "buffered" } ) );
+
+        assertEquals( Collections.emptyList(), route( Topic.RECORD, Actions.READ, "sent", "1", "{}" ) );
+        assertEquals( Collections.singletonList( this.session ), route( Topic.RECORD, Actions.READ, "buffered", "1", "{}" ) );
+        assertEquals( Collections.singletonList( this.session ), route( Topic.RECORD, Actions.HAS, "buffered", "T" ) );
+    }
+
+    @Test
+    public void routingDoesNotWaitForABlockedSend() throws InterruptedException {
+        final CountDownLatch sending = new CountDownLatch( 1 );
+        final CountDownLatch release = new CountDownLatch( 1 );
+        final AtomicBoolean released = new AtomicBoolean();
+        doAnswer( new Answer<Void>() {
+            @Override
+            public Void answer( InvocationOnMock invocation ) throws Throwable {
+                sending.countDown();
+                released.set( release.await( 2, TimeUnit.SECONDS ) );
+                return null;
+            }
+        } ).when( this.connectionMock ).sendMsg( Topic.EVENT, Actions.SUBSCRIBE, new String[] { "eventA" } );
+
+        Thread sender = new Thread( new Runnable() {
+            @Override
+            public void run() {
+                multiplexer.send( root, Topic.EVENT, Actions.SUBSCRIBE, new String[] { "eventA" } );
+            }
+        } );
+        sender.start();
+        assertTrue( sending.await( 5, TimeUnit.SECONDS ) );
+
+        assertEquals( Collections.singletonList( this.root ), route( Topic.EVENT, Actions.EVENT, "eventA" ) );
+        release.countDown();
+        sender.join();
+        assertTrue( released.get() );
+    }
+
+    private List<DeepstreamClient> route( Topic topic, Actions action, String... data ) {
+        return this.multiplexer.route( new Message( MessageBuilder.getMsg( topic, action, data ), topic, action, data ) );
+    }
+
+    @SuppressWarnings( "unchecked" )
+    private Message verifyDispatched( DeepstreamClient session ) {
+        ArgumentCaptor<Message> message = ArgumentCaptor.forClass( Message.class );
+        ArgumentCaptor<List> sessions = ArgumentCaptor.forClass( List.class );
+        verify( this.connectionMock, atLeastOnce() ).dispatch( message.capture(), sessions.capture() );
+        assertEquals( Collections.singletonList( session ), sessions.getValue() );
+        return message.getValue();
+    }
+
+    private static DeepstreamClient mockSession( String uid ) {
+        DeepstreamClient session = mock( DeepstreamClient.class );
+        when( session.getUid() ).thenReturn( uid );
+        return session;
+    }
+}
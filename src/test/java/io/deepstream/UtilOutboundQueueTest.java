@@ -0,0 +1,153 @@
+package io.deepstream;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+@RunWith( JUnit4.class )
+public class UtilOutboundQueueTest {
+
+    @Test
+    public void returnsItemsInOrder() throws InterruptedException {
+        UtilOutboundQueue<String> queue = new UtilOutboundQueue<>( 10, OutboundQueuePolicy.BLOCK );
+        queue.offer( "a" );
+        queue.offer( "b" );
+
+        Assert.assertEquals( "a", queue.take() );
+        Assert.assertEquals( "b", queue.poll() );
+        Assert.assertNull( queue.poll() );
+        Assert.assertTrue( queue.isEmpty() );
+    }
+
+    @Test
+    public void dropsItemsWhenFull() {
+        UtilOutboundQueue<String> queue = new UtilOutboundQueue<>( 2, OutboundQueuePolicy.DROP );
+        Assert.assertTrue( queue.offer( "a" ) );
+        Assert.assertTrue( queue.offer( "b" ) );
+        Assert.assertFalse( queue.offer( "c" ) );
+
+        queue.poll();
+        Assert.assertTrue( queue.offer( "d" ) );
+    }
+
+    @Test
+    public void failsWhenFull() {
+        UtilOutboundQueue<String> queue = new UtilOutboundQueue<>( 1, OutboundQueuePolicy.FAIL );
+        queue.offer( "a" );
+
+        try {
+            queue.offer( "b" );
+            Assert.fail( "Expected the queue to be full" );
+        } catch( DeepstreamException e ) {
+            Assert.assertEquals( Event.OUTBOUND_QUEUE_FULL, e.event );
+        }
+    }
+
+    @Test
+    public void tryOfferDoesNotBlockWhenFull() {
+        UtilOutboundQueue<String> queue = new UtilOutboundQueue<>( 1, OutboundQueuePolicy.BLOCK );
+        Assert.assertTrue( queue.tryOffer( "a" ) );
+        Assert.assertFalse( queue.tryOffer( "b" ) );
+
+        Assert.assertEquals( "a", queue.poll() );
+        Assert.assertTrue( queue.tryOffer( "c" ) );
+    }
+
+    @Test
+    public void blocksUntilThereIsSpace() throws InterruptedException {
+        final UtilOutboundQueue<String> queue = new UtilOutboundQueue<>( 1, OutboundQueuePolicy.BLOCK );
+        final CountDownLatch offered = new CountDownLatch( 1 );
+        queue.offer( "a" );
+
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                queue.offer( "b" );
+                offered.countDown();
+            }
+        }).start();
+
+        Assert.assertFalse( offered.await( 50, TimeUnit.MILLISECONDS ) );
+        Assert.assertEquals( "a", queue.poll() );
+        Assert.assertTrue( offered.await( 1, TimeUnit.SECONDS ) );
+        Assert.assertEquals( "b", queue.poll() );
+    }
+
+    @Test
+    public void takeWaitsForItems() throws InterruptedException {
+        final UtilOutboundQueue<String> queue = new UtilOutboundQueue<>( 10, OutboundQueuePolicy.BLOCK );
+
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep( 20 );
+                } catch( InterruptedException e ) {
+                    return;
+                }
+                queue.offer( "a" );
+            }
+        }).start();
+
+        Assert.assertEquals( "a", queue.take() );
+    }
+
+    @Test
+    public void closeWakesWaitingThreads() throws InterruptedException {
+        final UtilOutboundQueue<String> queue = new UtilOutboundQueue<>( 1, OutboundQueuePolicy.BLOCK );
+        final CountDownLatch done = new CountDownLatch( 2 );
+        final AtomicBoolean offerResult = new AtomicBoolean( true );
+        queue.offer( "a" );
+
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                offerResult.set( queue.offer( "b" ) );
+                done.countDown();
+            }
+        }).start();
+
+        Thread.sleep( 20 );
+        queue.close();
+
+        final UtilOutboundQueue<String> emptyQueue = new UtilOutboundQueue<>( 1, OutboundQueuePolicy.BLOCK );
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    if( emptyQueue.take() == null ) {
+                        done.countDown();
+                    }
+                } catch( InterruptedException e ) {
+                }
+            }
+        }).start();
+        Thread.sleep( 20 );
+        emptyQueue.close();
+
+        Assert.assertTrue( done.await( 1, TimeUnit.SECONDS ) );
+        Assert.assertFalse( offerResult.get() );
+    }
+
+    @Test
+    public void policyIsSelectedByConfig() throws InvalidDeepstreamConfig {
+        Properties properties = new Properties();
+        properties.setProperty( ConfigOptions.OUTBOUND_QUEUE_POLICY.toString(), "drop" );
+
+        Assert.assertEquals( OutboundQueuePolicy.DROP, new DeepstreamConfig( properties ).getOutboundQueuePolicy() );
+        Assert.assertEquals( OutboundQueuePolicy.BLOCK, new DeepstreamConfig().getOutboundQueuePolicy() );
+    }
+
+    @Test( expected = InvalidDeepstreamConfig.class )
+    public void rejectsUnknownPolicies() throws InvalidDeepstreamConfig {
+        Properties properties = new Properties();
+        properties.setProperty( ConfigOptions.OUTBOUND_QUEUE_POLICY.toString(), "FAIL" );
+        new DeepstreamConfig( properties );
+    }
+}
@@ -0,0 +1,84 @@
+package io.deepstream;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+
+@RunWith( JUnit4.class )
+public class UtilPacketQueueTest {
+
+    List<String> packets;
+    UtilPacketQueue packetQueue;
+
+    @Before
+    public void setUp() throws InvalidDeepstreamConfig {
+        this.packets = Collections.synchronizedList( new ArrayList<String>() );
+        this.packetQueue = createQueue( "3", "20" );
+    }
+
+    @Test
+    public void sendsFirstMessageImmediately() {
+        packetQueue.add( "a" );
+        Assert.assertEquals( 1, packets.size() );
+        Assert.assertEquals( "a", packets.get( 0 ) );
+    }
+
+    @Test
+    public void coalescesMessagesSentInQuickSuccession() throws InterruptedException {
+        packetQueue.add( "a" );
+        packetQueue.add( "b" );
+        packetQueue.add( "c" );
+        Assert.assertEquals( 1, packets.size() );
+
+        Thread.sleep( 60 );
+        Assert.assertEquals( 2, packets.size() );
+        Assert.assertEquals( "bc", packets.get( 1 ) );
+    }
+
+    @Test
+    public void sendsPacketOnceItIsFull() {
+        packetQueue.add( "a" );
+        packetQueue.add( "b" );
+        packetQueue.add( "c" );
+        packetQueue.add( "d" );
+        packetQueue.add( "e" );
+        Assert.assertEquals( 2, packets.size() );
+        Assert.assertEquals( "bcd", packets.get( 1 ) );
+    }
+
+    @Test
+    public void sendsImmediatelyAgainOnceIdle() throws InterruptedException {
+        packetQueue.add( "a" );
+        Thread.sleep( 60 );
+        packetQueue.add( "b" );
+        Assert.assertEquals( 2, packets.size() );
+        Assert.assertEquals( "b", packets.get( 1 ) );
+    }
+
+    @Test
+    public void doesNotBatchWithSingleMessagePackets() throws InvalidDeepstreamConfig {
+        packetQueue = createQueue( "1", "20" );
+        packetQueue.add( "a" );
+        packetQueue.add( "b" );
+        Assert.assertEquals( 2, packets.size() );
+    }
+
+    private UtilPacketQueue createQueue( String maxMessagesPerPacket, String timeBetweenSendingQueuedPackages ) throws InvalidDeepstreamConfig {
+        Properties properties = new Properties();
+        properties.put( ConfigOptions.MAX_MESSAGES_PER_PACKET.toString(), maxMessagesPerPacket );
+        properties.put( ConfigOptions.TIME_BETWEEN_SENDING_QUEUED_PACKAGES.toString(), timeBetweenSendingQueuedPackages );
+        return new UtilPacketQueue( new DeepstreamConfig( properties ), new UtilPacketQueue.PacketSender() {
+            @Override
+            public void sendPacket( String packet ) {
+                packets.add( packet );
+            }
+        }, new DeepstreamRuntime( 1 ), "test" );
+    }
+}
@@ -0,0 +1,118 @@
+package io.deepstream;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonParser;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+@RunWith( JUnit4.class )
+public class UtilPathTrieTest {
+
+    private UtilPathTrie trie;
+
+    @Before
+    public void setUp() {
+        trie = new UtilPathTrie();
+        trie.add( "a" );
+        trie.add( "a.b" );
+        trie.add( "a.b[3].c" );
+        trie.add( "a.b[3].c.d" );
+        trie.add( "a.b[4]" );
+        trie.add( "x.y" );
+    }
+
+    @Test
+    public void findsThePathItselfAndThePathsAboveAndBelow() {
+        Assert.assertEquals( new HashSet<>( Arrays.asList( "a", "a.b", "a.b[3].c", "a.b[3].c.d" ) ), trie.getAffected( "a.b[3].c" ) );
+    }
+
+    @Test
+    public void findsEverythingBelowAnAncestor() {
+        Assert.assertEquals( new HashSet<>( Arrays.asList( "a", "a.b", "a.b[3].c", "a.b[3].c.d", "a.b[4]" ) ), trie.getAffected( "a.b" ) );
+    }
+
+    @Test
+    public void findsNothingForUnrelatedPaths() {
+        Assert.assertEquals( new HashSet<String>(), trie.getAffected( "z" ) );
+        Assert.assertEquals( new HashSet<>( Arrays.asList( "a", "a.b" ) ), trie.getAffected( "a.b[5].c" ) );
+    }
+
+    @Test
+    public void ignoresWhitespacesInIndices() {
+        Assert.assertEquals( new HashSet<>( Arrays.asList( "a", "a.b", "a.b[4]" ) ), trie.getAffected( "a.b[ 4 ]" ) );
+    }
+
+    @Test
+    public void removedPathsAreNoLongerFound() {
+        trie.remove( "a.b[3].c.d" );
+        trie.remove( "x.y" );
+        Assert.assertEquals( new HashSet<>( Arrays.asList( "a", "a.b", "a.b[3].c" ) ), trie.getAffected( "a.b[3].c" ) );
+        Assert.assertEquals( new HashSet<String>(), trie.getAffected( "x" ) );
+    }
+
+    @Test
+    public void findsTheChangedPathsOfTwoVersions() {
+        Set<String> changed = new HashSet<>();
+        Assert.assertTrue( trie.getChanged(
+                parse( "{ 'a': { 'b': [ 0, 1, 2, { 'c': { 'd': 1 } }, 4 ] }, 'x': { 'y': 1 } }" ),
+                parse( "{ 'a': { 'b': [ 0, 1, 2, { 'c': { 'd': 2 } }, 4 ] }, 'x': { 'y': 1 } }" ),
+                changed ) );
+        Assert.assertEquals( new HashSet<>( Arrays.asList( "a", "a.b", "a.b[3].c", "a.b[3].c.d" ) ), changed );
+    }
+
+    @Test
+    public void findsNothingForEqualVersions() {
+        Set<String> changed = new HashSet<>();
+        String json = "{ 'a': { 'b': [ 0, 1, 2, { 'c': { 'd': 1 } }, 4 ] }, 'x': { 'y': 1 }, 'z': true }";
+        Assert.assertFalse( trie.getChanged( parse( json ), parse( json ), changed ) );
+        Assert.assertEquals( new HashSet<String>(), changed );
+    }
+
+    @Test
+    public void treatsMissingPathsAsNull() {
+        Set<String> changed = new HashSet<>();
+        Assert.assertTrue( trie.getChanged( parse( "{ 'x': {} }" ), parse( "{ 'x': { 'y': null } }" ), changed ) );
+        Assert.assertEquals( new HashSet<String>(), changed );
+    }
+
+    @Test
+    public void agreesWithLookingUpEveryPath() {
+        String[][] versions = {
+                { "{ 'a': { 'b': [ 0, 1, 2, { 'c': {} }, {} ] }, 'x': { 'y': 1 } }", "{ 'a': { 'b': [ 0, 1, 2, { 'c': {} } ] }, 'x': { 'y': 2 } }" },
+                { "{ 'a': { 'b': [ 0, 1, 2, { 'c': 5 } ] } }", "{ 'a': { 'b': [ 0, 1, 2, { 'c': { 'd': 5 } } ] } }" },
+                { "{ 'a': { 'b': [] }, 'x': 'y' }", "{ 'x': { 'y': 'y' } }" },
+                { "{}", "{ 'a': { 'b': [ 0, 1, 2, { 'c': { 'd': null } }, 4 ] } }" },
+        };
+        for( String[] pair : versions ) {
+            JsonElement oldRoot = parse( pair[ 0 ] );
+            JsonElement newRoot = parse( pair[ 1 ] );
+
+            Set<String> expected = new HashSet<>();
+            for( String path : Arrays.asList( "a", "a.b", "a.b[3].c", "a.b[3].c.d", "a.b[4]", "x.y" ) ) {
+                if( !orNull( UtilJSONPath.get( oldRoot, path ) ).equals( orNull( UtilJSONPath.get( newRoot, path ) ) ) ) {
+                    expected.add( path );
+                }
+            }
+
+            Set<String> changed = new HashSet<>();
+            Assert.assertTrue( trie.getChanged( oldRoot, newRoot, changed ) );
+            Assert.assertEquals( pair[ 0 ] + " -> " + pair[ 1 ], expected, changed );
+        }
+    }
+
+    private static JsonElement parse( String json ) {
+        return new JsonParser().parse( json.replace( '\'', '"' ) );
+    }
+
+    private static JsonElement orNull( JsonElement element ) {
+        return element == null ? JsonNull.INSTANCE : element;
+    }
+}
@@ -0,0 +1,27 @@
+package io.deepstream;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith( JUnit4.class )
+public class UtilProviderPoolTest {
+
+    @Test
+    public void requestsReservedBeforeAShutdownAreRefused() {
+        UtilProviderPool pool = new UtilProviderPool( "addTwo", 1, 0 );
+        Assert.assertTrue( pool.tryReserve() );
+
+        pool.shutdown();
+
+        Assert.assertFalse( pool.execute( new Runnable() {
+            @Override
+            public void run() {
+                Assert.fail( "A request was run after the shutdown" );
+            }
+        } ) );
+        // The room that was reserved is free again
+        Assert.assertTrue( pool.tryReserve() );
+    }
+}
@@ -0,0 +1,61 @@
+package io.deepstream;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.concurrent.TimeUnit;
+
+@RunWith( JUnit4.class )
+public class UtilRpcHedgerTest {
+
+    @Test
+    public void doesNotHedgeUntilEnoughResponsesWereSeen() {
+        UtilRpcHedger hedger = new UtilRpcHedger( 90 );
+        for( int i = 0; i < 9; i++ ) {
+            Assert.assertEquals( -1, hedger.onRequest() );
+            hedger.onResponse( TimeUnit.MILLISECONDS.toNanos( 5 ), false );
+        }
+        Assert.assertEquals( -1, hedger.onRequest() );
+        hedger.onResponse( TimeUnit.MILLISECONDS.toNanos( 5 ), false );
+        Assert.assertEquals( 5, hedger.onRequest() );
+    }
+
+    @Test
+    public void hedgesAfterThePercentileOfRecentLatencies() {
+        UtilRpcHedger hedger = new UtilRpcHedger( 90 );
+        for( int i = 1; i <= 100; i++ ) {
+            hedger.onResponse( TimeUnit.MILLISECONDS.toNanos( i ), false );
+        }
+        Assert.assertEquals( 90, hedger.onRequest() );
+
+        // Older latencies drop out of the window
+        for( int i = 0; i < 100; i++ ) {
+            hedger.onResponse( TimeUnit.MILLISECONDS.toNanos( 3 ), false );
+        }
+        Assert.assertEquals( 3, hedger.onRequest() );
+    }
+
+    @Test
+    public void countsHedgesAndWins() {
+        UtilRpcHedger hedger = new UtilRpcHedger( 50 );
+        hedger.onRequest();
+        hedger.onRequest();
+        hedger.onRequest();
+        hedger.onRequest();
+        hedger.onHedge();
+        hedger.onResponse( 1000, true );
+
+        RpcHedgeMetrics metrics = hedger.getMetrics();
+        Assert.assertEquals( 4, metrics.getRequests() );
+        Assert.assertEquals( 1, metrics.getHedges() );
+        Assert.assertEquals( 1, metrics.getHedgeWins() );
+        Assert.assertEquals( 0.25, metrics.getHedgeRate(), 0 );
+    }
+
+    @Test( expected = IllegalArgumentException.class )
+    public void rejectsInvalidPercentiles() {
+        new UtilRpcHedger( 100 );
+    }
+}
@@ -0,0 +1,84 @@
+package io.deepstream;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith( JUnit4.class )
+public class UtilRpcLimiterTest {
+
+    @Test
+    public void rejectsRequestsBeyondTheLimit() {
+        UtilRpcLimiter limiter = new UtilRpcLimiter( 2, 10 );
+        Assert.assertTrue( limiter.tryAcquire() );
+        Assert.assertTrue( limiter.tryAcquire() );
+        Assert.assertFalse( limiter.tryAcquire() );
+
+        limiter.release();
+        Assert.assertTrue( limiter.tryAcquire() );
+    }
+
+    @Test
+    public void growsWhileResponsesAreFast() {
+        UtilRpcLimiter limiter = new UtilRpcLimiter( 2, 4 );
+        for( int i = 0; i < 100; i++ ) {
+            while( limiter.tryAcquire() );
+            limiter.onResponse( 1000 );
+        }
+        Assert.assertEquals( 4, limiter.getLimit() );
+    }
+
+    @Test
+    public void doesNotGrowWhileIdle() {
+        UtilRpcLimiter limiter = new UtilRpcLimiter( 4, 10 );
+        for( int i = 0; i < 100; i++ ) {
+            limiter.tryAcquire();
+            limiter.onResponse( 1000 );
+        }
+        Assert.assertEquals( 4, limiter.getLimit() );
+    }
+
+    @Test
+    public void shrinksOnTimeoutsAndSlowResponses() {
+        UtilRpcLimiter limiter = new UtilRpcLimiter( 10, 10 );
+        limiter.tryAcquire();
+        limiter.onTimeout();
+        Assert.assertEquals( 9, limiter.getLimit() );
+
+        limiter.tryAcquire();
+        limiter.onResponse( 1000 );
+        limiter.tryAcquire();
+        limiter.onResponse( 5000 );
+        Assert.assertEquals( 8, limiter.getLimit() );
+
+        for( int i = 0; i < 100; i++ ) {
+            limiter.tryAcquire();
+            limiter.onTimeout();
+        }
+        Assert.assertEquals( 1, limiter.getLimit() );
+        Assert.assertTrue( limiter.tryAcquire() );
+    }
+
+    @Test
+    public void recoversOnceLatencyStaysHigher() {
+        UtilRpcLimiter limiter = new UtilRpcLimiter( 10, 10 );
+        for( int i = 0; i < UtilRpcLimiter.WINDOW; i++ ) {
+            limiter.tryAcquire();
+            limiter.onResponse( 1000 );
+        }
+
+        // The provider permanently takes five times as long, which shrinks the limit until it is the new baseline
+        for( int i = 0; i < UtilRpcLimiter.WINDOW; i++ ) {
+            while( limiter.tryAcquire() );
+            limiter.onResponse( 5000 );
+        }
+        Assert.assertEquals( 1, limiter.getLimit() );
+
+        for( int i = 0; i < 2 * UtilRpcLimiter.WINDOW; i++ ) {
+            while( limiter.tryAcquire() );
+            limiter.onResponse( 5000 );
+        }
+        Assert.assertEquals( 10, limiter.getLimit() );
+    }
+}
@@ -0,0 +1,79 @@
+package io.deepstream;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+@RunWith( JUnit4.class )
+public class UtilStripedExecutorTest {
+
+    @Test
+    public void runsTasksWithTheSameKeyInOrder() throws InterruptedException {
+        UtilStripedExecutor executor = new UtilStripedExecutor( 4, "test" );
+        final List<Integer> order = Collections.synchronizedList( new ArrayList<Integer>() );
+        final CountDownLatch done = new CountDownLatch( 1000 );
+
+        for( int i = 0; i < 1000; i++ ) {
+            final int index = i;
+            executor.execute( "recordA", new Runnable() {
+                @Override
+                public void run() {
+                    order.add( index );
+                    done.countDown();
+                }
+            } );
+        }
+
+        Assert.assertTrue( done.await( 5, TimeUnit.SECONDS ) );
+        for( int i = 0; i < 1000; i++ ) {
+            Assert.assertEquals( i, (int) order.get( i ) );
+        }
+    }
+
+    @Test
+    public void runsTasksWithDifferentKeysInParallel() throws InterruptedException {
+        UtilStripedExecutor executor = new UtilStripedExecutor( 4, "test" );
+        String blockedKey = "recordA";
+        String otherKey = "recordB";
+        for( int i = 0; executor.laneFor( otherKey ) == executor.laneFor( blockedKey ); i++ ) {
+            otherKey = "record" + i;
+        }
+
+        final CountDownLatch release = new CountDownLatch( 1 );
+        final CountDownLatch otherRan = new CountDownLatch( 1 );
+        executor.execute( blockedKey, new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    release.await();
+                } catch( InterruptedException e ) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        } );
+        executor.execute( otherKey, new Runnable() {
+            @Override
+            public void run() {
+                otherRan.countDown();
+            }
+        } );
+
+        Assert.assertTrue( otherRan.await( 5, TimeUnit.SECONDS ) );
+        release.countDown();
+    }
+
+    @Test
+    public void usesAtLeastOneLane() {
+        UtilStripedExecutor executor = new UtilStripedExecutor( 0, "test" );
+        Assert.assertEquals( 1, executor.getLaneCount() );
+        Assert.assertEquals( 0, executor.laneFor( "recordA" ) );
+        Assert.assertEquals( 0, executor.laneFor( null ) );
+    }
+}
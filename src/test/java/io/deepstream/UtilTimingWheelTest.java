@@ -0,0 +1,79 @@
+package io.deepstream;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@RunWith( JUnit4.class )
+public class UtilTimingWheelTest {
+
+    private final List<String> fired = new ArrayList<>();
+
+    private Runnable task( final String name ) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                fired.add( name );
+            }
+        };
+    }
+
+    @Test
+    public void runsTasksOnceTheirDelayHasPassed() {
+        UtilTimingWheel wheel = new UtilTimingWheel( 10, 8 );
+        wheel.add( task( "short" ), 20 );
+        wheel.add( task( "rounded" ), 25 );
+        wheel.add( task( "immediate" ), 0 );
+
+        wheel.tick();
+        Assert.assertEquals( "[immediate]", fired.toString() );
+        wheel.tick();
+        Assert.assertEquals( "[immediate, short]", fired.toString() );
+        wheel.tick();
+        Assert.assertEquals( "[immediate, short, rounded]", fired.toString() );
+    }
+
+    @Test
+    public void runsTasksThatAreDueInALaterRound() {
+        UtilTimingWheel wheel = new UtilTimingWheel( 10, 4 );
+        wheel.add( task( "later" ), 100 );
+        for( int i = 0; i < 9; i++ ) {
+            wheel.tick();
+        }
+        Assert.assertTrue( fired.isEmpty() );
+        wheel.tick();
+        Assert.assertEquals( "[later]", fired.toString() );
+    }
+
+    @Test
+    public void doesNotRunCancelledTasks() {
+        UtilTimingWheel wheel = new UtilTimingWheel( 10, 8 );
+        UtilTimingWheel.Timeout first = wheel.add( task( "first" ), 10 );
+        UtilTimingWheel.Timeout second = wheel.add( task( "second" ), 10 );
+        wheel.add( task( "third" ), 10 );
+
+        Assert.assertTrue( second.cancel() );
+        Assert.assertFalse( second.cancel() );
+        wheel.tick();
+        Assert.assertEquals( "[third, first]", fired.toString() );
+        Assert.assertFalse( first.cancel() );
+    }
+
+    @Test
+    public void keepsTickingWhenATaskThrows() {
+        UtilTimingWheel wheel = new UtilTimingWheel( 10, 8 );
+        wheel.add( task( "after" ), 10 );
+        wheel.add( new Runnable() {
+            @Override
+            public void run() {
+                throw new IllegalStateException( "expected by test" );
+            }
+        }, 10 );
+        wheel.tick();
+        Assert.assertEquals( "[after]", fired.toString() );
+    }
+}